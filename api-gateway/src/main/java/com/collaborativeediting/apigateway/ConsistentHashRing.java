@@ -0,0 +1,73 @@
+package com.collaborativeediting.apigateway;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Immutable hash ring with virtual nodes. Adding or removing a node only moves the keys that
+ * hash between that node's points and their predecessors, roughly 1/N of all keys.
+ */
+public class ConsistentHashRing<T> {
+
+    private final NavigableMap<Long, T> ring;
+
+    public ConsistentHashRing(Collection<T> nodes, int virtualNodes) {
+        TreeMap<Long, T> points = new TreeMap<>();
+        for (T node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(node + "#" + i), node);
+            }
+        }
+        this.ring = Collections.unmodifiableNavigableMap(points);
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    public T nodeFor(String key) {
+        return nodeFor(key, node -> true);
+    }
+
+    /**
+     * Walks clockwise from the key's position and returns the first node accepted by
+     * {@code eligible}, or null if none is.
+     */
+    public T nodeFor(String key, Predicate<T> eligible) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        long position = hash(key);
+        for (Map.Entry<Long, T> entry : ring.tailMap(position, true).entrySet()) {
+            if (eligible.test(entry.getValue())) {
+                return entry.getValue();
+            }
+        }
+        for (Map.Entry<Long, T> entry : ring.headMap(position, false).entrySet()) {
+            if (eligible.test(entry.getValue())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.collaborativeediting.apigateway;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+/**
+ * Sends every request that concerns one document, REST or WebSocket, to the same
+ * document-editing-service instance. Runs after the route URI has been resolved and replaces its
+ * host with the instance the document hashes to, skipping instances whose circuit is open.
+ */
+@Component
+public class DocumentAffinityFilter implements GatewayFilter, Ordered {
+
+    public static final String INSTANCE_ATTR = DocumentAffinityFilter.class.getName() + ".instance";
+
+    private static final String DOCUMENTS_PATH = "/api/documents/";
+    private static final String WEBSOCKET_PATH = "/ws/";
+
+    @Autowired
+    private DocumentInstanceRegistry registry;
+
+    @Autowired
+    private InstanceCircuitBreakers circuitBreakers;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String key = affinityKey(exchange.getRequest());
+        URI instance = key != null
+                ? registry.instanceFor(key, circuitBreakers::allowRequest)
+                : registry.anyInstance(circuitBreakers::allowRequest);
+        URI requestUrl = exchange.getRequiredAttribute(GATEWAY_REQUEST_URL_ATTR);
+
+        URI routed = UriComponentsBuilder.fromUri(requestUrl)
+                .scheme(instance.getScheme())
+                .host(instance.getHost())
+                .port(instance.getPort())
+                .build(true)
+                .toUri();
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, routed);
+        exchange.getAttributes().put(INSTANCE_ATTR, instance);
+        return chain.filter(exchange)
+                .doOnSuccess(done -> {
+                    if (!exchange.getAttributes().containsKey(HedgedReadFilter.OUTCOME_RECORDED_ATTR)) {
+                        Integer status = exchange.getResponse().getRawStatusCode();
+                        if (status != null && status >= 500) {
+                            circuitBreakers.recordFailure(instance);
+                        } else {
+                            circuitBreakers.recordSuccess(instance);
+                        }
+                    }
+                })
+                .doOnError(e -> {
+                    if (!exchange.getAttributes().containsKey(HedgedReadFilter.OUTCOME_RECORDED_ATTR)) {
+                        circuitBreakers.recordFailure(instance);
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (!exchange.getAttributes().containsKey(HedgedReadFilter.OUTCOME_RECORDED_ATTR)) {
+                        circuitBreakers.releaseProbe(instance);
+                    }
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // Same slot a load balancer filter would take: after the route URL has been resolved
+        return RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 150;
+    }
+
+    /**
+     * Document id from {@code /api/documents/{id}/...} or a {@code documentId} query parameter
+     * (set by WebSocket clients on the SockJS URL); otherwise the SockJS session id so that all
+     * transport requests of one session stay together. Null means any instance will do.
+     */
+    static String affinityKey(ServerHttpRequest request) {
+        String documentId = request.getQueryParams().getFirst("documentId");
+        if (documentId != null && !documentId.isEmpty()) {
+            return "document:" + documentId;
+        }
+
+        String path = request.getPath().value();
+        if (path.startsWith(DOCUMENTS_PATH)) {
+            String segment = firstSegment(path.substring(DOCUMENTS_PATH.length()));
+            if (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit)) {
+                return "document:" + segment;
+            }
+        } else if (path.startsWith(WEBSOCKET_PATH)) {
+            // SockJS transport URLs look like /ws/{server-id}/{session-id}/{transport}
+            String[] segments = path.substring(WEBSOCKET_PATH.length()).split("/");
+            if (segments.length >= 3) {
+                return "session:" + segments[1];
+            }
+        }
+        return null;
+    }
+
+    private static String firstSegment(String path) {
+        int slash = path.indexOf('/');
+        return slash < 0 ? path : path.substring(0, slash);
+    }
+}
@@ -0,0 +1,155 @@
+package com.collaborativeediting.apigateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Tracks the configured document-editing-service instances and their health, and maps each
+ * document to one healthy instance through a consistent hash ring.
+ */
+@Component
+public class DocumentInstanceRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentInstanceRegistry.class);
+
+    @Value("${gateway.documents.instances:http://localhost:8082}")
+    private List<URI> instances;
+
+    @Value("${gateway.documents.virtual-nodes:160}")
+    private int virtualNodes;
+
+    @Value("${gateway.documents.health-path:/actuator/health}")
+    private String healthPath;
+
+    @Value("${gateway.documents.health-interval-ms:5000}")
+    private long healthIntervalMs;
+
+    @Value("${gateway.documents.health-timeout-ms:2000}")
+    private long healthTimeoutMs;
+
+    @Value("${gateway.documents.unhealthy-threshold:2}")
+    private int unhealthyThreshold;
+
+    private final WebClient webClient = WebClient.create();
+    private final Map<URI, InstanceHealth> health = new LinkedHashMap<>();
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    private volatile ConsistentHashRing<URI> ring;
+    private volatile List<URI> healthyInstances;
+    private Disposable healthChecks;
+
+    @PostConstruct
+    public void start() {
+        for (URI instance : instances) {
+            health.put(instance, new InstanceHealth());
+        }
+        rebuild();
+        healthChecks = Flux.interval(Duration.ZERO, Duration.ofMillis(healthIntervalMs))
+                .flatMap(tick -> Flux.fromIterable(instances).flatMap(this::check))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (healthChecks != null) {
+            healthChecks.dispose();
+        }
+    }
+
+    public URI instanceFor(String affinityKey) {
+        URI instance = ring.nodeFor(affinityKey);
+        return instance != null ? instance : instances.get(0);
+    }
+
+    /**
+     * The first instance clockwise from the key that {@code eligible} accepts, or the key's usual
+     * instance when none does.
+     */
+    public URI instanceFor(String affinityKey, Predicate<URI> eligible) {
+        URI instance = ring.nodeFor(affinityKey, eligible);
+        return instance != null ? instance : instanceFor(affinityKey);
+    }
+
+    public URI anyInstance() {
+        List<URI> candidates = healthyInstances;
+        return candidates.get(Math.floorMod(roundRobin.getAndIncrement(), candidates.size()));
+    }
+
+    public URI anyInstance(Predicate<URI> eligible) {
+        List<URI> candidates = healthyInstances;
+        int start = roundRobin.getAndIncrement();
+        for (int i = 0; i < candidates.size(); i++) {
+            URI instance = candidates.get(Math.floorMod(start + i, candidates.size()));
+            if (eligible.test(instance)) {
+                return instance;
+            }
+        }
+        return candidates.get(Math.floorMod(start, candidates.size()));
+    }
+
+    public List<URI> getHealthyInstances() {
+        return healthyInstances;
+    }
+
+    private Mono<Void> check(URI instance) {
+        return webClient.get()
+                .uri(instance.resolve(healthPath))
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(Duration.ofMillis(healthTimeoutMs))
+                .map(response -> true)
+                .onErrorReturn(false)
+                .doOnNext(up -> record(instance, up))
+                .then();
+    }
+
+    private synchronized void record(URI instance, boolean up) {
+        InstanceHealth state = health.get(instance);
+        boolean wasHealthy = state.healthy;
+        if (up) {
+            state.consecutiveFailures = 0;
+            state.healthy = true;
+        } else if (++state.consecutiveFailures >= unhealthyThreshold) {
+            state.healthy = false;
+        }
+        if (wasHealthy != state.healthy) {
+            log.info("Document instance {} is now {}", instance, state.healthy ? "UP" : "DOWN");
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        List<URI> up = new ArrayList<>();
+        for (Map.Entry<URI, InstanceHealth> entry : health.entrySet()) {
+            if (entry.getValue().healthy) {
+                up.add(entry.getKey());
+            }
+        }
+        // With nothing healthy, keep routing to every instance rather than failing all requests
+        List<URI> members = up.isEmpty() ? new ArrayList<>(instances) : up;
+        healthyInstances = members;
+        ring = new ConsistentHashRing<>(members, virtualNodes);
+    }
+
+    private static class InstanceHealth {
+        private boolean healthy = true;
+        private int consecutiveFailures;
+    }
+}
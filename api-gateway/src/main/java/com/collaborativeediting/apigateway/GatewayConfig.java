@@ -1,5 +1,6 @@
 package com.collaborativeediting.apigateway;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
@@ -14,20 +15,41 @@ import java.util.Arrays;
 @Configuration
 public class GatewayConfig {
 
+    @Autowired
+    private DocumentAffinityFilter documentAffinityFilter;
+
+    @Autowired
+    private RequestCoalescingFilter requestCoalescingFilter;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private HedgedReadFilter hedgedReadFilter;
+
     @Bean
     public RouteLocator customRouteLocator(RouteLocatorBuilder builder) {
         return builder.routes()
             .route("auth-service", r -> r.path("/api/auth/**")
-                .filters(f -> f.preserveHostHeader())
+                .filters(f -> f.preserveHostHeader().filter(rateLimitFilter))
                 .uri("http://localhost:8081"))
             .route("user-service", r -> r.path("/api/users/**")
-                .filters(f -> f.preserveHostHeader())
+                .filters(f -> f.preserveHostHeader().filter(rateLimitFilter))
                 .uri("http://localhost:8081"))
+            // Reads a whole team fires at once when a document link is shared
+            .route("document-reads", r -> r.method(HttpMethod.GET)
+                .and().path("/api/documents/{id}", "/api/documents/{id}/permission", "/api/documents/{id}/open")
+                .filters(f -> f.preserveHostHeader().filter(rateLimitFilter).filter(requestCoalescingFilter).filter(documentAffinityFilter).filter(hedgedReadFilter))
+                .uri("http://localhost:8082"))
+            // Host is replaced per request with the instance the document hashes to
             .route("document-service", r -> r.path("/api/documents/**")
-                .filters(f -> f.preserveHostHeader())
+                .filters(f -> f.preserveHostHeader().filter(rateLimitFilter).filter(documentAffinityFilter))
+                .uri("http://localhost:8082"))
+            .route("document-websocket", r -> r.path("/ws/**")
+                .filters(f -> f.filter(documentAffinityFilter))
                 .uri("http://localhost:8082"))
             .route("version-service", r -> r.path("/api/versions/**")
-                .filters(f -> f.preserveHostHeader())
+                .filters(f -> f.preserveHostHeader().filter(rateLimitFilter))
                 .uri("http://localhost:8083"))
             .build();
     }
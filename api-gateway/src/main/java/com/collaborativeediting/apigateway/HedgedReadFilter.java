@@ -0,0 +1,256 @@
+package com.collaborativeediting.apigateway;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.PRESERVE_HOST_HEADER_ATTRIBUTE;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+/**
+ * Proxies idempotent GETs itself instead of leaving them to the Netty routing filter, so that it
+ * can bound them with a timeout derived from the route's recent latencies and, when hedging is
+ * enabled, send a second copy once the first has taken longer than the route's usual high
+ * percentile. The second copy goes to the same instance: only the document's owner holds its live
+ * state, and any other instance would answer with stale content and an old ETag. Whichever
+ * answers first wins; the other is cancelled. Every attempt feeds the per-instance circuit breakers.
+ */
+@Component
+public class HedgedReadFilter implements GatewayFilter, Ordered {
+
+    public static final String OUTCOME_RECORDED_ATTR = HedgedReadFilter.class.getName() + ".outcomeRecorded";
+
+    @Value("${gateway.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${gateway.hedging.delay-percentile:95}")
+    private double delayPercentile;
+
+    @Value("${gateway.hedging.min-delay-ms:10}")
+    private long minDelayMs;
+
+    @Value("${gateway.hedging.default-delay-ms:100}")
+    private long defaultDelayMs;
+
+    @Value("${gateway.hedging.max-body-bytes:10485760}")
+    private int maxBodyBytes;
+
+    @Value("${gateway.timeouts.percentile:99}")
+    private double timeoutPercentile;
+
+    @Value("${gateway.timeouts.multiplier:3}")
+    private double timeoutMultiplier;
+
+    @Value("${gateway.timeouts.min-ms:500}")
+    private long minTimeoutMs;
+
+    @Value("${gateway.timeouts.max-ms:10000}")
+    private long maxTimeoutMs;
+
+    @Value("${gateway.timeouts.default-ms:5000}")
+    private long defaultTimeoutMs;
+
+    @Autowired
+    private InstanceCircuitBreakers circuitBreakers;
+
+    @Autowired
+    private RouteLatencyTracker latencyTracker;
+
+    @Autowired
+    private ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+
+    private WebClient webClient;
+
+    @PostConstruct
+    public void init() {
+        webClient = WebClient.builder()
+                .exchangeStrategies(ExchangeStrategies.builder()
+                        .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxBodyBytes))
+                        .build())
+                .build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        URI primary = exchange.getAttribute(DocumentAffinityFilter.INSTANCE_ATTR);
+        if (exchange.getRequest().getMethod() != HttpMethod.GET || route == null || primary == null) {
+            return chain.filter(exchange);
+        }
+
+        String routeId = route.getId();
+        String key = DocumentAffinityFilter.affinityKey(exchange.getRequest());
+        exchange.getAttributes().put(OUTCOME_RECORDED_ATTR, true);
+        setAlreadyRouted(exchange);
+
+        Sinks.Empty<Void> primaryFailed = Sinks.empty();
+        Mono<Attempt> first = attempt(exchange, primary, routeId)
+                .doOnError(e -> primaryFailed.tryEmitEmpty());
+
+        Mono<Attempt> winner = first;
+        if (hedgingEnabled && key != null) {
+            // Hedge to the owner again after the delay, or straight away if the primary has already failed
+            Mono<Attempt> hedge = Mono.firstWithSignal(Mono.delay(Duration.ofMillis(hedgeDelayMs(routeId))).then(), primaryFailed.asMono())
+                    .then(Mono.defer(() -> circuitBreakers.allowRequest(primary)
+                            ? attempt(exchange, primary, routeId)
+                            : Mono.<Attempt>empty()));
+            winner = Mono.firstWithValue(first, hedge);
+        }
+
+        return winner
+                .timeout(Duration.ofMillis(timeoutMs(routeId)))
+                .flatMap(attempt -> write(exchange, attempt.response))
+                .onErrorResume(e -> {
+                    UpstreamFailure failure = findUpstreamFailure(e);
+                    if (failure != null) {
+                        return write(exchange, failure.attempt.response);
+                    }
+                    boolean timedOut = e instanceof TimeoutException;
+                    if (timedOut) {
+                        circuitBreakers.recordFailure(primary);
+                    }
+                    exchange.getResponse().setStatusCode(timedOut ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY);
+                    return exchange.getResponse().setComplete();
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // After DocumentAffinityFilter has picked the primary instance
+        return RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 200;
+    }
+
+    long timeoutMs(String routeId) {
+        long recent = latencyTracker.percentile(routeId, timeoutPercentile);
+        if (recent < 0) {
+            return defaultTimeoutMs;
+        }
+        return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, (long) (recent * timeoutMultiplier)));
+    }
+
+    long hedgeDelayMs(String routeId) {
+        long recent = latencyTracker.percentile(routeId, delayPercentile);
+        return Math.max(minDelayMs, recent < 0 ? defaultDelayMs : recent);
+    }
+
+    private Mono<Attempt> attempt(ServerWebExchange exchange, URI instance, String routeId) {
+        URI requestUrl = exchange.getRequiredAttribute(GATEWAY_REQUEST_URL_ATTR);
+        URI target = UriComponentsBuilder.fromUri(requestUrl)
+                .scheme(instance.getScheme())
+                .host(instance.getHost())
+                .port(instance.getPort())
+                .build(true)
+                .toUri();
+        HttpHeaders headers = HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange);
+        String host = exchange.getRequest().getHeaders().getFirst(HttpHeaders.HOST);
+        boolean preserveHost = exchange.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.get()
+                    .uri(target)
+                    .headers(outgoing -> {
+                        outgoing.addAll(headers);
+                        outgoing.remove(HttpHeaders.HOST);
+                        if (preserveHost && host != null) {
+                            outgoing.set(HttpHeaders.HOST, host);
+                        }
+                    })
+                    .exchangeToMono(response -> response.toEntity(byte[].class))
+                    .flatMap(response -> {
+                        latencyTracker.record(routeId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        Attempt attempt = new Attempt(response);
+                        if (response.getStatusCodeValue() >= 500) {
+                            circuitBreakers.recordFailure(instance);
+                            return Mono.error(new UpstreamFailure(attempt));
+                        }
+                        circuitBreakers.recordSuccess(instance);
+                        return Mono.just(attempt);
+                    })
+                    .doOnError(e -> {
+                        if (!(e instanceof UpstreamFailure)) {
+                            circuitBreakers.recordFailure(instance);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        // A losing or timed-out attempt took at least this long, and says nothing about the instance
+                        latencyTracker.record(routeId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        circuitBreakers.releaseProbe(instance);
+                    });
+        });
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, ResponseEntity<byte[]> upstream) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setRawStatusCode(upstream.getStatusCodeValue());
+        HttpHeaders filtered = HttpHeadersFilter.filter(headersFilters.getIfAvailable(), upstream.getHeaders(), exchange, HttpHeadersFilter.Type.RESPONSE);
+        for (Map.Entry<String, List<String>> header : filtered.entrySet()) {
+            // Keep headers this exchange already set itself, such as CORS
+            if (!response.getHeaders().containsKey(header.getKey())) {
+                response.getHeaders().put(header.getKey(), header.getValue());
+            }
+        }
+        byte[] body = upstream.getBody() != null ? upstream.getBody() : new byte[0];
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private static UpstreamFailure findUpstreamFailure(Throwable error) {
+        for (Throwable e : Exceptions.unwrapMultiple(error)) {
+            if (e instanceof UpstreamFailure) {
+                return (UpstreamFailure) e;
+            }
+            for (Throwable suppressed : e.getSuppressed()) {
+                if (suppressed instanceof UpstreamFailure) {
+                    return (UpstreamFailure) suppressed;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class Attempt {
+        private final ResponseEntity<byte[]> response;
+
+        Attempt(ResponseEntity<byte[]> response) {
+            this.response = response;
+        }
+    }
+
+    private static class UpstreamFailure extends RuntimeException {
+        private final Attempt attempt;
+
+        UpstreamFailure(Attempt attempt) {
+            super("Upstream returned " + attempt.response.getStatusCodeValue(), null, false, false);
+            this.attempt = attempt;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.collaborativeediting.apigateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One circuit breaker per document-editing-service instance. After {@code failure-threshold}
+ * consecutive failed requests an instance is skipped for {@code open-ms}; then a single probe
+ * request is let through, and its outcome closes or reopens the breaker. A probe that is
+ * cancelled before its outcome is known is released, and one that never reports back is given
+ * up after {@code probe-timeout-ms}, so that another probe can go.
+ */
+@Component
+public class InstanceCircuitBreakers {
+
+    private static final Logger log = LoggerFactory.getLogger(InstanceCircuitBreakers.class);
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${gateway.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${gateway.circuit-breaker.open-ms:10000}")
+    private long openMs;
+
+    @Value("${gateway.circuit-breaker.probe-timeout-ms:10000}")
+    private long probeTimeoutMs;
+
+    private final ConcurrentMap<URI, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Whether a request may be sent to the instance now. Letting the half-open probe through
+     * counts as sending it, so only call this for the instance that will actually be used.
+     */
+    public boolean allowRequest(URI instance) {
+        Breaker breaker = breakers.computeIfAbsent(instance, key -> new Breaker());
+        long now = System.currentTimeMillis();
+        synchronized (breaker) {
+            switch (breaker.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now - breaker.openedAt < openMs) {
+                        return false;
+                    }
+                    breaker.state = State.HALF_OPEN;
+                    breaker.probeStartedAt = now;
+                    return true;
+                default:
+                    // The probe is still in flight, unless it has been lost
+                    if (now - breaker.probeStartedAt < probeTimeoutMs) {
+                        return false;
+                    }
+                    log.info("Probe of {} did not report back, sending another", instance);
+                    breaker.probeStartedAt = now;
+                    return true;
+            }
+        }
+    }
+
+    public void recordSuccess(URI instance) {
+        Breaker breaker = breakers.computeIfAbsent(instance, key -> new Breaker());
+        synchronized (breaker) {
+            if (breaker.state != State.CLOSED) {
+                log.info("Circuit for {} closed", instance);
+            }
+            breaker.state = State.CLOSED;
+            breaker.consecutiveFailures = 0;
+        }
+    }
+
+    public void recordFailure(URI instance) {
+        Breaker breaker = breakers.computeIfAbsent(instance, key -> new Breaker());
+        synchronized (breaker) {
+            breaker.consecutiveFailures++;
+            // A failure while open, such as a probe that timed out after being released, restarts the cool-down
+            if (breaker.state != State.CLOSED || breaker.consecutiveFailures >= failureThreshold) {
+                if (breaker.state != State.OPEN) {
+                    log.info("Circuit for {} opened after {} consecutive failures", instance, breaker.consecutiveFailures);
+                }
+                breaker.state = State.OPEN;
+                breaker.openedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * A request to the instance was cancelled before its outcome was known, e.g. a losing hedge or
+     * a client that went away. If the breaker is waiting on a probe, the next request may probe.
+     */
+    public void releaseProbe(URI instance) {
+        Breaker breaker = breakers.get(instance);
+        if (breaker == null) {
+            return;
+        }
+        synchronized (breaker) {
+            if (breaker.state == State.HALF_OPEN) {
+                breaker.state = State.OPEN;
+                breaker.openedAt = System.currentTimeMillis() - openMs;
+            }
+        }
+    }
+
+    State stateOf(URI instance) {
+        Breaker breaker = breakers.get(instance);
+        return breaker != null ? breaker.state : State.CLOSED;
+    }
+
+    private static class Breaker {
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private long probeStartedAt;
+    }
+}
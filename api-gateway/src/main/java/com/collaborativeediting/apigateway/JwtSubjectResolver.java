@@ -0,0 +1,63 @@
+package com.collaborativeediting.apigateway;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.net.InetSocketAddress;
+
+/**
+ * Identifies the caller of a request: the subject of a valid bearer token signed with the shared
+ * user-management secret, or the client address for anonymous and invalid tokens.
+ */
+@Component
+public class JwtSubjectResolver {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Value("${gateway.jwt.secret:mySecretKeyForJwtTokenGenerationWhichIsLongEnough}")
+    private String secret;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer parseTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        parseTimer = meterRegistry.timer("gateway.jwt.parse");
+    }
+
+    public String resolve(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            String subject = parseTimer.record(() -> subject(authorization.substring(BEARER_PREFIX.length())));
+            if (subject != null) {
+                return "user:" + subject;
+            }
+        }
+
+        InetSocketAddress remote = request.getRemoteAddress();
+        return "ip:" + (remote != null && remote.getAddress() != null ? remote.getAddress().getHostAddress() : "unknown");
+    }
+
+    private String subject(String token) {
+        try {
+            return Jwts.parser()
+                    .setSigningKey(secret)
+                    .parseClaimsJws(token)
+                    .getBody()
+                    .getSubject();
+        } catch (JwtException | IllegalArgumentException e) {
+            // Invalid token: the caller is identified by address instead
+            return null;
+        }
+    }
+}
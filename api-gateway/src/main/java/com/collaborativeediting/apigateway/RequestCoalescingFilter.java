@@ -0,0 +1,151 @@
+package com.collaborativeediting.apigateway;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collapses identical concurrent GET requests (same path, query and Authorization header) into a
+ * single upstream call. The first request goes upstream while its response is copied; requests
+ * arriving while it is in flight, or within the short reuse window after it completes, are
+ * answered from that copy. Only applied to routes that opt in.
+ */
+@Component
+public class RequestCoalescingFilter implements GatewayFilter, Ordered {
+
+    @Value("${gateway.coalescing.reuse-window-ms:50}")
+    private long reuseWindowMs;
+
+    @Value("${gateway.coalescing.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+
+    @Value("${gateway.coalescing.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    private final ConcurrentMap<String, Mono<CoalescedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+
+        String key = coalescingKey(request);
+        Sinks.One<CoalescedResponse> sink = Sinks.one();
+        Mono<CoalescedResponse> shared = sink.asMono();
+        Mono<CoalescedResponse> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            // Leader failed or its response could not be shared: go upstream ourselves
+            return existing.timeout(Duration.ofMillis(waitTimeoutMs))
+                    .flatMap(response -> write(exchange.getResponse(), response))
+                    .onErrorResume(e -> chain.filter(exchange));
+        }
+
+        CapturingResponse capturing = new CapturingResponse(exchange.getResponse(), sink);
+        return chain.filter(exchange.mutate().response(capturing).build())
+                .doOnError(e -> sink.tryEmitError(e))
+                .doFinally(signal -> {
+                    sink.tryEmitError(new IllegalStateException("Response was not captured"));
+                    release(key, shared);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // Must wrap the response before NettyWriteResponseFilter writes the upstream body
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    static String coalescingKey(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        return request.getURI().getRawPath() + "?" + request.getURI().getRawQuery() + "|" + authorization;
+    }
+
+    private void release(String key, Mono<CoalescedResponse> shared) {
+        if (reuseWindowMs <= 0) {
+            inFlight.remove(key, shared);
+        } else {
+            Mono.delay(Duration.ofMillis(reuseWindowMs)).subscribe(tick -> inFlight.remove(key, shared));
+        }
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, CoalescedResponse coalesced) {
+        response.setStatusCode(coalesced.status);
+        for (Map.Entry<String, List<String>> header : coalesced.headers.entrySet()) {
+            // Keep headers this exchange already set itself, such as CORS
+            if (!response.getHeaders().containsKey(header.getKey())) {
+                response.getHeaders().put(header.getKey(), header.getValue());
+            }
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(coalesced.body)));
+    }
+
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+        private final Sinks.One<CoalescedResponse> sink;
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private boolean oversized;
+
+        CapturingResponse(ServerHttpResponse delegate, Sinks.One<CoalescedResponse> sink) {
+            super(delegate);
+            this.sink = sink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            Flux<? extends DataBuffer> copying = Flux.from(body).doOnNext(buffer -> {
+                if (!oversized && copy.size() + buffer.readableByteCount() <= maxBodyBytes) {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.asByteBuffer().get(bytes);
+                    copy.write(bytes, 0, bytes.length);
+                } else {
+                    oversized = true;
+                }
+            });
+            return super.writeWith(copying).doOnSuccess(done -> {
+                if (oversized) {
+                    sink.tryEmitError(new IllegalStateException("Response too large to share"));
+                } else {
+                    HttpStatus status = getDelegate().getStatusCode();
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.putAll(getDelegate().getHeaders());
+                    sink.tryEmitValue(new CoalescedResponse(status != null ? status : HttpStatus.OK, headers, copy.toByteArray()));
+                }
+            });
+        }
+    }
+
+    private static class CoalescedResponse {
+        private final HttpStatus status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        CoalescedResponse(HttpStatus status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.collaborativeediting.apigateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Recent upstream latencies per route, kept in a fixed-size ring of samples. Percentiles are
+ * recomputed from a sorted copy every {@code RECOMPUTE_EVERY} samples rather than on every read.
+ */
+@Component
+public class RouteLatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    @Value("${gateway.latency.window-size:1024}")
+    private int windowSize;
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void record(String routeId, long latencyMs) {
+        windows.computeIfAbsent(routeId, key -> new Window(windowSize)).add(latencyMs);
+    }
+
+    /**
+     * The given percentile (0-100) of recent latencies, or -1 until enough samples have been seen.
+     */
+    public long percentile(String routeId, double percentile) {
+        Window window = windows.get(routeId);
+        return window != null ? window.percentile(percentile) : -1;
+    }
+
+    private static class Window {
+        private final long[] samples;
+        private int next;
+        private int count;
+        private int sinceRecompute;
+        private long[] sorted = new long[0];
+
+        Window(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void add(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            if (++sinceRecompute >= RECOMPUTE_EVERY) {
+                sinceRecompute = 0;
+                long[] copy = Arrays.copyOf(samples, count);
+                Arrays.sort(copy);
+                sorted = copy;
+            }
+        }
+
+        synchronized long percentile(double percentile) {
+            if (sorted.length < RECOMPUTE_EVERY) {
+                return -1;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+}
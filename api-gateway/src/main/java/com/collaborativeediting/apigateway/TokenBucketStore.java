@@ -0,0 +1,107 @@
+package com.collaborativeediting.apigateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process token buckets, one per key. Keys are spread over independently locked stripes; each
+ * stripe is an access-ordered map capped at its share of {@code max-buckets}, and buckets idle for
+ * longer than {@code idle-eviction-ms} are dropped from the cold end as the stripe is used.
+ */
+@Component
+public class TokenBucketStore {
+
+    @Value("${gateway.rate-limit.stripes:64}")
+    private int stripeCount;
+
+    @Value("${gateway.rate-limit.max-buckets:100000}")
+    private int maxBuckets;
+
+    @Value("${gateway.rate-limit.idle-eviction-ms:600000}")
+    private long idleEvictionMs;
+
+    private Stripe[] stripes;
+    private long idleEvictionNanos;
+
+    @PostConstruct
+    public void init() {
+        int perStripe = Math.max(1, maxBuckets / stripeCount);
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        idleEvictionNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+    }
+
+    /**
+     * Takes one token from the key's bucket. Returns 0 if a token was available, otherwise the
+     * number of nanoseconds until one will be.
+     */
+    public long tryConsume(String key, int capacity, double refillPerSecond, long nowNanos) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        synchronized (stripe) {
+            stripe.evictIdle(nowNanos, idleEvictionNanos);
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, nowNanos);
+                stripe.buckets.put(key, bucket);
+            }
+
+            double elapsedSeconds = (nowNanos - bucket.lastRefillNanos) / 1e9;
+            bucket.tokens = Math.min(capacity, bucket.tokens + elapsedSeconds * refillPerSecond);
+            bucket.lastRefillNanos = nowNanos;
+
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / refillPerSecond * 1e9);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private static class Stripe {
+        private final LinkedHashMap<String, Bucket> buckets;
+
+        Stripe(int maxEntries) {
+            this.buckets = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        void evictIdle(long nowNanos, long idleNanos) {
+            Iterator<Bucket> coldestFirst = buckets.values().iterator();
+            while (coldestFirst.hasNext() && nowNanos - coldestFirst.next().lastRefillNanos > idleNanos) {
+                coldestFirst.remove();
+            }
+        }
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(int capacity, long nowNanos) {
+            this.tokens = capacity;
+            this.lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.collaborativeediting.apigateway;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void testAddingNodeMovesOnlyItsShareOfKeys() {
+        ConsistentHashRing<String> three = new ConsistentHashRing<>(Arrays.asList("a", "b", "c"), 160);
+        ConsistentHashRing<String> four = new ConsistentHashRing<>(Arrays.asList("a", "b", "c", "d"), 160);
+
+        int moved = 0;
+        for (int id = 0; id < 10000; id++) {
+            String before = three.nodeFor("document:" + id);
+            String after = four.nodeFor("document:" + id);
+            if (!before.equals(after)) {
+                moved++;
+                assertEquals("d", after);
+            }
+        }
+        // Ideal is 1/4 of the keys
+        assertTrue(moved > 1500 && moved < 3500, "moved " + moved);
+    }
+
+    @Test
+    public void testIneligibleNodeIsSkipped() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(Arrays.asList("a", "b"), 160);
+        for (int id = 0; id < 100; id++) {
+            assertEquals("b", ring.nodeFor("document:" + id, node -> !node.equals("a")));
+        }
+    }
+
+    @Test
+    public void testAffinityKeys() {
+        assertEquals("document:42", DocumentAffinityFilter.affinityKey(MockServerHttpRequest.get("/api/documents/42/permission").build()));
+        assertEquals("document:7", DocumentAffinityFilter.affinityKey(MockServerHttpRequest.get("/ws/123/abc/websocket?documentId=7").build()));
+        assertEquals("session:abc", DocumentAffinityFilter.affinityKey(MockServerHttpRequest.get("/ws/123/abc/xhr_streaming").build()));
+        assertNull(DocumentAffinityFilter.affinityKey(MockServerHttpRequest.get("/api/documents/templates").build()));
+    }
+}
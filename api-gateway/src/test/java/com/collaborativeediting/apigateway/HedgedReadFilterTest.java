@@ -0,0 +1,81 @@
+package com.collaborativeediting.apigateway;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "gateway.hedging.enabled=true",
+        "gateway.hedging.default-delay-ms=100"
+})
+public class HedgedReadFilterTest {
+
+    // The owner stalls on its first request only; the replica must never be asked
+    private static final AtomicInteger ownerRequests = new AtomicInteger();
+    private static final AtomicInteger replicaRequests = new AtomicInteger();
+    private static final DisposableServer owner = backend(ownerRequests, "owner", Duration.ofSeconds(3));
+    private static final DisposableServer replica = backend(replicaRequests, "replica", Duration.ofMillis(20));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DocumentInstanceRegistry registry;
+
+    @DynamicPropertySource
+    static void backendProperties(DynamicPropertyRegistry properties) {
+        properties.add("gateway.documents.instances", () -> "http://localhost:" + owner.port() + ",http://localhost:" + replica.port());
+    }
+
+    @AfterAll
+    static void stopBackends() {
+        owner.disposeNow();
+        replica.disposeNow();
+    }
+
+    private static DisposableServer backend(AtomicInteger requests, String name, Duration firstDelay) {
+        return HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/api/documents/{id}", (request, response) -> {
+                    Duration delay = requests.getAndIncrement() == 0 ? firstDelay : Duration.ofMillis(20);
+                    return response.sendString(Mono.delay(delay).map(tick -> name));
+                }))
+                .bindNow();
+    }
+
+    @Test
+    public void testSlowPrimaryIsHedgedToTheOwnerAgain() {
+        URI ownerInstance = URI.create("http://localhost:" + owner.port());
+        int documentId = 1;
+        while (!registry.instanceFor("document:" + documentId).equals(ownerInstance)) {
+            documentId++;
+        }
+
+        long start = System.nanoTime();
+        String body = WebClient.create("http://localhost:" + port).get()
+                .uri("/api/documents/" + documentId)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(10));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("owner", body);
+        assertTrue(elapsedMs < 2000, "took " + elapsedMs + " ms");
+        assertEquals(2, ownerRequests.get());
+        assertEquals(0, replicaRequests.get());
+    }
+}
@@ -0,0 +1,72 @@
+package com.collaborativeediting.apigateway;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstanceCircuitBreakersTest {
+
+    @Test
+    public void testOpensAfterConsecutiveFailuresAndProbesAfterCoolDown() throws InterruptedException {
+        InstanceCircuitBreakers breakers = new InstanceCircuitBreakers();
+        ReflectionTestUtils.setField(breakers, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breakers, "openMs", 50L);
+        ReflectionTestUtils.setField(breakers, "probeTimeoutMs", 10_000L);
+        URI instance = URI.create("http://localhost:8082");
+
+        breakers.recordFailure(instance);
+        breakers.recordFailure(instance);
+        breakers.recordSuccess(instance);
+        breakers.recordFailure(instance);
+        breakers.recordFailure(instance);
+        assertTrue(breakers.allowRequest(instance));
+
+        breakers.recordFailure(instance);
+        assertEquals(InstanceCircuitBreakers.State.OPEN, breakers.stateOf(instance));
+        assertFalse(breakers.allowRequest(instance));
+
+        Thread.sleep(80);
+        // Exactly one probe goes through
+        assertTrue(breakers.allowRequest(instance));
+        assertFalse(breakers.allowRequest(instance));
+
+        breakers.recordFailure(instance);
+        assertEquals(InstanceCircuitBreakers.State.OPEN, breakers.stateOf(instance));
+
+        Thread.sleep(80);
+        assertTrue(breakers.allowRequest(instance));
+        breakers.recordSuccess(instance);
+        assertEquals(InstanceCircuitBreakers.State.CLOSED, breakers.stateOf(instance));
+    }
+
+    @Test
+    public void testCancelledOrLostProbeLetsAnotherProbeThrough() throws InterruptedException {
+        InstanceCircuitBreakers breakers = new InstanceCircuitBreakers();
+        ReflectionTestUtils.setField(breakers, "failureThreshold", 1);
+        ReflectionTestUtils.setField(breakers, "openMs", 50L);
+        ReflectionTestUtils.setField(breakers, "probeTimeoutMs", 100L);
+        URI instance = URI.create("http://localhost:8082");
+
+        breakers.recordFailure(instance);
+        Thread.sleep(80);
+        assertTrue(breakers.allowRequest(instance));
+        assertFalse(breakers.allowRequest(instance));
+
+        // The probe was a hedge that lost
+        breakers.releaseProbe(instance);
+        assertTrue(breakers.allowRequest(instance));
+        assertFalse(breakers.allowRequest(instance));
+
+        // This probe never reports back at all
+        Thread.sleep(130);
+        assertTrue(breakers.allowRequest(instance));
+        assertEquals(InstanceCircuitBreakers.State.HALF_OPEN, breakers.stateOf(instance));
+
+        breakers.recordSuccess(instance);
+        breakers.releaseProbe(instance);
+        assertEquals(InstanceCircuitBreakers.State.CLOSED, breakers.stateOf(instance));
+    }
+}
@@ -0,0 +1,71 @@
+package com.collaborativeediting.apigateway;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RequestCoalescingFilterTest {
+
+    private static final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private static final DisposableServer backend = HttpServer.create()
+            .port(0)
+            .route(routes -> routes.get("/api/documents/{id}", (request, response) -> {
+                upstreamCalls.incrementAndGet();
+                return response.sendString(Mono.delay(Duration.ofMillis(300)).map(tick -> "{\"id\":" + request.param("id") + "}"));
+            }))
+            .bindNow();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void backendProperties(DynamicPropertyRegistry registry) {
+        registry.add("gateway.documents.instances", () -> "http://localhost:" + backend.port());
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.disposeNow();
+    }
+
+    @Test
+    public void testConcurrentIdenticalReadsShareOneUpstreamCall() {
+        WebClient client = WebClient.create("http://localhost:" + port);
+        upstreamCalls.set(0);
+
+        List<String> bodies = Flux.range(0, 10)
+                .flatMap(i -> client.get().uri("/api/documents/5")
+                        .header("Authorization", "Bearer same-user")
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(10, bodies.size());
+        bodies.forEach(body -> assertEquals("{\"id\":5}", body));
+        assertEquals(1, upstreamCalls.get());
+
+        client.get().uri("/api/documents/5")
+                .header("Authorization", "Bearer other-user")
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(10));
+        assertEquals(2, upstreamCalls.get());
+    }
+}
@@ -0,0 +1,53 @@
+package com.collaborativeediting.apigateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketStoreTest {
+
+    private TokenBucketStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new TokenBucketStore();
+        ReflectionTestUtils.setField(store, "stripeCount", 4);
+        ReflectionTestUtils.setField(store, "maxBuckets", 8);
+        ReflectionTestUtils.setField(store, "idleEvictionMs", 1000L);
+        store.init();
+    }
+
+    @Test
+    public void testBurstThenRefill() {
+        long now = 0;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.tryConsume("user:alice|document-service", 3, 2.0, now));
+        }
+
+        long wait = store.tryConsume("user:alice|document-service", 3, 2.0, now);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), wait);
+        // Other users and routes have their own buckets
+        assertEquals(0, store.tryConsume("user:bob|document-service", 3, 2.0, now));
+        assertEquals(0, store.tryConsume("user:alice|document-reads", 3, 2.0, now));
+
+        assertEquals(0, store.tryConsume("user:alice|document-service", 3, 2.0, now + wait));
+    }
+
+    @Test
+    public void testBucketStateIsBounded() {
+        for (int i = 0; i < 1000; i++) {
+            store.tryConsume("user:" + i, 5, 1.0, 0);
+        }
+        assertTrue(store.size() <= 8);
+
+        long later = TimeUnit.SECONDS.toNanos(5);
+        for (int i = 0; i < 4; i++) {
+            store.tryConsume("user:fresh" + i, 5, 1.0, later);
+        }
+        assertTrue(store.size() <= 4);
+    }
+}
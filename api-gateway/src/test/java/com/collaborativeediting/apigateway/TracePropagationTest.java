@@ -0,0 +1,69 @@
+package com.collaborativeediting.apigateway;
+
+import com.collaborativeediting.tracing.TraceCollector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class TracePropagationTest {
+
+    private static final AtomicReference<String> receivedTraceparent = new AtomicReference<>();
+
+    private static final DisposableServer backend = HttpServer.create()
+            .port(0)
+            .route(routes -> routes.get("/api/documents/{id}", (request, response) -> {
+                receivedTraceparent.set(request.requestHeaders().get("traceparent"));
+                return response.sendString(Mono.just("{}"));
+            }))
+            .bindNow();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TraceCollector traceCollector;
+
+    @DynamicPropertySource
+    static void backendProperties(DynamicPropertyRegistry registry) {
+        registry.add("gateway.documents.instances", () -> "http://localhost:" + backend.port());
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.disposeNow();
+    }
+
+    @Test
+    public void testTraceContextReachesTheBackend() throws InterruptedException {
+        String traceId = "0af7651916cd43dd8448eb211c80319c";
+        WebClient.create("http://localhost:" + port).get().uri("/api/documents/9")
+                .header("traceparent", "00-" + traceId + "-b7ad6b7169203331-01")
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(receivedTraceparent.get());
+        assertTrue(receivedTraceparent.get().startsWith("00-" + traceId + "-"), receivedTraceparent.get());
+
+        // The gateway's own spans finish just after the response has been written
+        long deadline = System.currentTimeMillis() + 5000;
+        while (traceCollector.trace(traceId).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(traceCollector.trace(traceId).isEmpty());
+    }
+}
@@ -0,0 +1,20 @@
+package com.collaborativeediting.benchmarks;
+
+import java.lang.reflect.Field;
+
+/** Sets the {@code @Autowired} fields of service beans that benchmarks create without Spring. */
+public final class Fields {
+
+    private Fields() {
+    }
+
+    public static void inject(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.collaborativeediting.documentediting;
+
+import com.collaborativeediting.benchmarks.Fields;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Export of one document per format, from a short note to a large manuscript. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DocumentExportBenchmark {
+
+    @Param({"TXT", "HTML", "JSON"})
+    private DocumentExportService.ExportFormat format;
+
+    @Param({"1024", "65536", "1048576"})
+    private int contentLength;
+
+    private DocumentExportService exportService;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        exportService = new DocumentExportService();
+        Fields.inject(exportService, "meterRegistry", new SimpleMeterRegistry());
+        document = new Document("Quarterly \"plan\" <draft>", SampleText.of(contentLength), "alice");
+        document.setId(42L);
+    }
+
+    @Benchmark
+    public byte[] export() {
+        return exportService.exportDocument(document, format);
+    }
+}
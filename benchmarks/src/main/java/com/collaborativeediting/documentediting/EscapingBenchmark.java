@@ -0,0 +1,45 @@
+package com.collaborativeediting.documentediting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** The HTML and JSON escaping used by the exports, on text with a realistic share of special characters. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EscapingBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int contentLength;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = SampleText.of(contentLength);
+    }
+
+    @Benchmark
+    public String escapeHtml() {
+        return DocumentExportService.escapeHtml(text);
+    }
+
+    @Benchmark
+    public String escapeJson() {
+        return DocumentExportService.escapeJson(text);
+    }
+}
@@ -0,0 +1,46 @@
+package com.collaborativeediting.documentediting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Share permission check, over every granted/required combination. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PermissionBenchmark {
+
+    private static final SharePermission[] PERMISSIONS = SharePermission.values();
+    private static final int COMBINATIONS = 9;
+
+    private final SharePermission[] granted = new SharePermission[COMBINATIONS];
+    private final SharePermission[] required = new SharePermission[COMBINATIONS];
+
+    public PermissionBenchmark() {
+        for (int i = 0; i < COMBINATIONS; i++) {
+            granted[i] = PERMISSIONS[i / PERMISSIONS.length];
+            required[i] = PERMISSIONS[i % PERMISSIONS.length];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINATIONS)
+    public void hasRequiredPermission(Blackhole blackhole) {
+        for (int i = 0; i < COMBINATIONS; i++) {
+            blackhole.consume(DocumentService.hasRequiredPermission(granted[i], required[i]));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.collaborativeediting.documentediting;
+
+/** Deterministic document text with quotes, markup, tabs and line breaks sprinkled through prose. */
+final class SampleText {
+
+    private static final String PARAGRAPH = "The editor said \"ship it\" & the <team> agreed.\n"
+            + "\tAction items: review section 2, fix the table layout, and update the O'Brien quote.\n"
+            + "Plain prose makes up most of a document, so escaping must be cheap when nothing needs it.\n\n";
+
+    private SampleText() {
+    }
+
+    static String of(int length) {
+        StringBuilder text = new StringBuilder(length + PARAGRAPH.length());
+        while (text.length() < length) {
+            text.append(PARAGRAPH);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+}
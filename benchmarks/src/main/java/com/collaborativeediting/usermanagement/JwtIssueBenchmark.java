@@ -0,0 +1,40 @@
+package com.collaborativeediting.usermanagement;
+
+import com.collaborativeediting.benchmarks.Fields;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Token issue at login and registration. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtIssueBenchmark {
+
+    private JwtUtil jwtUtil;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        Fields.inject(jwtUtil, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtil.registerMetrics();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("alice");
+    }
+}
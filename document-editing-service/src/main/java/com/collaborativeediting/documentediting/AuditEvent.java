@@ -0,0 +1,70 @@
+package com.collaborativeediting.documentediting;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the audit trail: who read, exported or shared a document, or was refused. Written
+ * by {@link AuditLog} to rolling files or, with {@code documents.audit.sink=TABLE}, to this table.
+ */
+@Entity
+@Table(name = "audit_events", indexes = @Index(name = "idx_audit_events_document", columnList = "document_id, occurredAt"))
+public class AuditEvent {
+
+    public enum Type {
+        READ,
+        EXPORT,
+        SHARE,
+        REVOKE,
+        PERMISSION_DENIED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    private String username;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(length = 1000)
+    private String detail;
+
+    // Constructors
+    public AuditEvent() {}
+
+    public AuditEvent(LocalDateTime occurredAt, Type type, String username, Long documentId, String detail) {
+        this.occurredAt = occurredAt;
+        this.type = type;
+        this.username = username;
+        this.documentId = documentId;
+        this.detail = detail;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public String getDetail() { return detail; }
+    public void setDetail(String detail) { this.detail = detail; }
+}
@@ -0,0 +1,12 @@
+package com.collaborativeediting.documentediting;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Destination of the audit trail; called from the single audit consumer thread only. */
+interface AuditEventWriter {
+
+    void write(List<AuditEvent> batch) throws IOException;
+
+    void close() throws IOException;
+}
@@ -0,0 +1,245 @@
+package com.collaborativeediting.documentediting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous audit trail. Request threads claim a slot of a preallocated ring buffer with a
+ * single compare-and-set and fill it in place, so publishing never locks, allocates or waits on
+ * I/O. One consumer thread drains the buffer in order and writes batches to the configured sink.
+ * When the consumer falls behind, events are dropped and counted as {@code audit.events} with
+ * outcome {@code dropped} according to {@code documents.audit.overflow-policy}.
+ */
+@Component
+public class AuditLog {
+
+    public enum OverflowPolicy {
+        // Drop any event that finds the buffer full
+        DROP_NEWEST,
+        // Above the read high-water mark drop reads, keeping room for exports, shares and denials
+        SHED_READS
+    }
+
+    public enum Sink {
+        FILE,
+        TABLE
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    @Value("${documents.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${documents.audit.buffer-size:16384}")
+    private int bufferSize;
+
+    @Value("${documents.audit.batch-size:512}")
+    private int batchSize;
+
+    @Value("${documents.audit.overflow-policy:SHED_READS}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${documents.audit.read-high-water-mark:0.75}")
+    private double readHighWaterMark;
+
+    @Value("${documents.audit.sink:FILE}")
+    private Sink sink;
+
+    @Value("${documents.audit.directory:${java.io.tmpdir}/document-editing-audit-${server.port:8082}}")
+    private String directory;
+
+    @Value("${documents.audit.max-file-size:67108864}")
+    private long maxFileSize;
+
+    @Value("${documents.audit.max-files:30}")
+    private int maxFiles;
+
+    @Value("${documents.audit.idle-wait-ms:5}")
+    private long idleWaitMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Slot[] slots;
+    private int mask;
+    private long readLimit;
+
+    // Next sequence to hand to a publisher, next one the consumer will read, and next one to be written
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private volatile long writtenUpTo;
+
+    private AuditEventWriter writer;
+    private Thread consumer;
+    private volatile boolean running;
+
+    private Counter written;
+    private Counter dropped;
+    private Counter failed;
+
+    @PostConstruct
+    public void start() throws IOException {
+        written = meterRegistry.counter("audit.events", "outcome", "written");
+        dropped = meterRegistry.counter("audit.events", "outcome", "dropped");
+        failed = meterRegistry.counter("audit.events", "outcome", "failed");
+        if (!enabled) {
+            return;
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+        readLimit = overflowPolicy == OverflowPolicy.SHED_READS ? (long) (capacity * readHighWaterMark) : capacity;
+        Gauge.builder("audit.buffer.depth", this, AuditLog::depth).register(meterRegistry);
+
+        writer = sink == Sink.TABLE
+                ? new JdbcAuditEventWriter(jdbcTemplate)
+                : new RollingAuditFileWriter(Paths.get(directory), maxFileSize, maxFiles, objectMapper);
+        running = true;
+        consumer = new Thread(this::consume, "audit-log-writer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (consumer != null) {
+            running = false;
+            LockSupport.unpark(consumer);
+            consumer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /** Records an event without blocking; returns false if it was dropped. */
+    public boolean publish(AuditEvent.Type type, String username, Long documentId, String detail) {
+        if (!enabled) {
+            return false;
+        }
+        long limit = type == AuditEvent.Type.READ ? readLimit : slots.length;
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= limit) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.occurredAt = System.currentTimeMillis();
+        slot.type = type;
+        slot.username = username;
+        slot.documentId = documentId;
+        slot.detail = detail;
+        // Publishes the fields above to the consumer
+        slot.sequence = sequence;
+        return true;
+    }
+
+    /** Events published but not yet taken by the consumer. */
+    public long depth() {
+        return enabled ? claimed.get() - consumed : 0;
+    }
+
+    /** Waits until every event published so far has been handed to the sink. */
+    public boolean awaitWritten(long timeoutMillis) throws InterruptedException {
+        long target = claimed.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (writtenUpTo < target) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private void consume() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long next = consumed;
+        while (true) {
+            Slot slot = slots[(int) (next & mask)];
+            while (batch.size() < batchSize && slot.sequence == next) {
+                batch.add(new AuditEvent(toLocalDateTime(slot.occurredAt), slot.type, slot.username, slot.documentId, slot.detail));
+                slot.username = null;
+                slot.detail = null;
+                next++;
+                slot = slots[(int) (next & mask)];
+            }
+
+            if (batch.isEmpty()) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(idleWaitMs));
+                continue;
+            }
+
+            // Free the slots before the slow part, so publishers can reuse them meanwhile
+            consumed = next;
+            write(batch);
+            writtenUpTo = next;
+            batch.clear();
+        }
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Closing the audit log failed", e);
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            writer.write(batch);
+            written.increment(batch.size());
+        } catch (IOException | RuntimeException e) {
+            failed.increment(batch.size());
+            log.warn("Writing {} audit events failed", batch.size(), e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static class Slot {
+        // Sequence of the event in this slot; -1 until first published
+        private volatile long sequence = -1;
+        private long occurredAt;
+        private AuditEvent.Type type;
+        private String username;
+        private Long documentId;
+        private String detail;
+    }
+}
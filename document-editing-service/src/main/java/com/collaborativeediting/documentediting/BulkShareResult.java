@@ -0,0 +1,30 @@
+package com.collaborativeediting.documentediting;
+
+/**
+ * Outcome of a bulk share or revoke for one recipient.
+ */
+public class BulkShareResult {
+
+    public enum Status {
+        SHARED,
+        ALREADY_SHARED,
+        REVOKED,
+        NOT_SHARED,
+        DUPLICATE,
+        INVALID
+    }
+
+    private final String sharedWithUser;
+    private final SharePermission permission;
+    private final Status status;
+
+    public BulkShareResult(String sharedWithUser, SharePermission permission, Status status) {
+        this.sharedWithUser = sharedWithUser;
+        this.permission = permission;
+        this.status = status;
+    }
+
+    public String getSharedWithUser() { return sharedWithUser; }
+    public SharePermission getPermission() { return permission; }
+    public Status getStatus() { return status; }
+}
@@ -0,0 +1,76 @@
+package com.collaborativeediting.documentediting;
+
+/**
+ * One captured request, stored as a tab-separated line: start offset and duration in
+ * microseconds, HTTP or STOMP, method, endpoint pattern, concrete path, pseudonymous user,
+ * status, the id of an entity the request created, and the anonymized JSON body. Redacted
+ * strings in the body are stored as {@code {"$len": n}} so only their length is kept.
+ */
+public class CapturedExchange {
+
+    public static final String HEADER = "# capture v1\toffsetMicros\tkind\tmethod\tendpoint\tpath\tuser\tstatus\tdurationMicros\tcreatedId\tbody";
+    public static final String LENGTH_MARKER = "$len";
+    public static final String HTTP = "HTTP";
+    public static final String STOMP = "STOMP";
+
+    private static final String NONE = "-";
+
+    private final long offsetMicros;
+    private final String kind;
+    private final String method;
+    private final String endpoint;
+    private final String path;
+    private final String user;
+    private final int status;
+    private final long durationMicros;
+    private final Long createdId;
+    private final String body;
+
+    public CapturedExchange(long offsetMicros, String kind, String method, String endpoint, String path, String user,
+                            int status, long durationMicros, Long createdId, String body) {
+        this.offsetMicros = offsetMicros;
+        this.kind = kind;
+        this.method = method;
+        this.endpoint = endpoint;
+        this.path = path;
+        this.user = user;
+        this.status = status;
+        this.durationMicros = durationMicros;
+        this.createdId = createdId;
+        this.body = body;
+    }
+
+    public static CapturedExchange parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 10) {
+            throw new IllegalArgumentException("Expected 10 fields in capture line but got " + fields.length);
+        }
+        return new CapturedExchange(Long.parseLong(fields[0]), fields[1], fields[2], fields[3], fields[4],
+                value(fields[5]), Integer.parseInt(fields[6]), Long.parseLong(fields[7]),
+                NONE.equals(fields[8]) ? null : Long.valueOf(fields[8]), value(fields[9]));
+    }
+
+    public String format() {
+        return offsetMicros + "\t" + kind + "\t" + method + "\t" + endpoint + "\t" + path + "\t" + field(user) + "\t"
+                + status + "\t" + durationMicros + "\t" + field(createdId) + "\t" + field(body);
+    }
+
+    private static String value(String field) {
+        return NONE.equals(field) ? null : field;
+    }
+
+    private static String field(Object value) {
+        return value != null ? value.toString() : NONE;
+    }
+
+    public long getOffsetMicros() { return offsetMicros; }
+    public String getKind() { return kind; }
+    public String getMethod() { return method; }
+    public String getEndpoint() { return endpoint; }
+    public String getPath() { return path; }
+    public String getUser() { return user; }
+    public int getStatus() { return status; }
+    public long getDurationMicros() { return durationMicros; }
+    public Long getCreatedId() { return createdId; }
+    public String getBody() { return body; }
+}
@@ -4,7 +4,7 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "documents")
+@Table(name = "documents", indexes = @Index(name = "idx_documents_owner", columnList = "owner"))
 public class Document {
 
     @Id
@@ -22,6 +22,13 @@ public class Document {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Revision of the last edit operation applied to the content
+    private long operationRevision;
+
+    // Row version, so a stale write of the stored entity fails instead of overwriting a newer one
+    @Version
+    private long version;
+
     // Constructors
     public Document() {}
 
@@ -51,4 +58,10 @@ public class Document {
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public long getOperationRevision() { return operationRevision; }
+    public void setOperationRevision(long operationRevision) { this.operationRevision = operationRevision; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
@@ -2,11 +2,17 @@ package com.collaborativeediting.documentediting;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.MediaType;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +26,28 @@ public class DocumentController {
     @Autowired
     private DocumentExportService documentExportService;
 
+    @Autowired
+    private DocumentOpenService documentOpenService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private HotDocumentTracker hotDocumentTracker;
+
+    private Timer jwtParseTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        jwtParseTimer = meterRegistry.timer("documents.jwt.parse");
+    }
+
     @PostMapping
     public ResponseEntity<Document> createDocument(@RequestBody CreateDocumentRequest request, @RequestHeader("Authorization") String token) {
         String owner = extractOwnerFromToken(token);
@@ -32,18 +60,67 @@ public class DocumentController {
     @GetMapping("/{id}")
     public ResponseEntity<Document> getDocument(@PathVariable Long id, @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
+        hotDocumentTracker.recordAccess(id, username);
 
         if (!documentService.hasPermission(id, username, SharePermission.READ)) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "read");
             return ResponseEntity.status(403).build();
         }
 
         Optional<Document> document = documentService.getDocument(id);
+        document.ifPresent(doc -> auditLog.publish(AuditEvent.Type.READ, username, id, null));
         return document.map(doc -> ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
+                .eTag(eTag(doc.getOperationRevision()))
                 .body(doc))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{id}/open")
+    public ResponseEntity<OpenDocumentView> openDocument(@PathVariable Long id, @RequestHeader("Authorization") String token) {
+        String username = extractOwnerFromToken(token);
+        hotDocumentTracker.recordAccess(id, username);
+
+        // One load of the document serves the permission check, the share list and the response
+        Optional<Document> document = documentService.getDocument(id);
+        if (!document.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        SharePermission permission = documentService.getUserPermission(document.get(), username);
+        if (permission == null) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "open");
+            return ResponseEntity.status(403).build();
+        }
+        auditLog.publish(AuditEvent.Type.READ, username, id, "open");
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(documentOpenService.open(document.get(), permission, username));
+    }
+
+    @GetMapping("/{id}/operations")
+    public ResponseEntity<CatchUpResponse> getOperationsSince(@PathVariable Long id, @RequestParam("since") long since, @RequestHeader("Authorization") String token) {
+        String username = extractOwnerFromToken(token);
+        hotDocumentTracker.recordAccess(id, username);
+
+        if (!documentService.hasPermission(id, username, SharePermission.READ)) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "operations");
+            return ResponseEntity.status(403).build();
+        }
+
+        Optional<List<EditOperation>> missed = documentService.getOperationsSince(id, since);
+        if (missed.isPresent()) {
+            long currentRevision = missed.get().isEmpty() ? since : missed.get().get(missed.get().size() - 1).getRevision();
+            return ResponseEntity.ok(new CatchUpResponse(id, currentRevision, missed.get(), null));
+        }
+
+        // The client's revision has aged out of the operation log: send a full snapshot instead
+        Optional<Document> document = documentService.getDocument(id);
+        return document.map(doc -> ResponseEntity.ok(new CatchUpResponse(id, doc.getOperationRevision(), null, doc)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping
     public ResponseEntity<List<Document>> getDocuments(@RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
@@ -53,36 +130,107 @@ public class DocumentController {
                 .body(documents);
     }
 
+    /**
+     * Saves the full content. A client that names the revision it edited, in {@code If-Match} or
+     * as {@code baseRevision}, gets a 409 with the current revision, the operations it missed (if
+     * still buffered) and a diff from its content to the current one, instead of overwriting.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Document> updateDocument(@PathVariable Long id, @RequestBody UpdateDocumentRequest request, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> updateDocument(@PathVariable Long id, @RequestBody UpdateDocumentRequest request,
+                                            @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                            @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
-        Document document = documentService.updateDocument(id, request.getContent(), username);
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(document);
+        hotDocumentTracker.recordAccess(id, username);
+        Long expectedRevision;
+        try {
+            expectedRevision = ifMatch != null ? parseETag(ifMatch) : request.getBaseRevision();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            Document document = documentService.updateDocument(id, request.getContent(), username, expectedRevision);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(eTag(document.getOperationRevision()))
+                    .body(document);
+        } catch (RevisionConflictException e) {
+            List<EditOperation> missed = documentService.getOperationsSince(id, expectedRevision)
+                    .filter(operations -> operations.isEmpty() || operations.get(operations.size() - 1).getRevision() == e.getCurrentRevision())
+                    .orElse(null);
+            return conflict(e, request.getContent(), missed);
+        } catch (PermissionDeniedException e) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "update");
+            throw e;
+        }
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDocument(@PathVariable Long id, @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
-        documentService.deleteDocument(id, username);
+        try {
+            documentService.deleteDocument(id, username);
+        } catch (PermissionDeniedException e) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "delete");
+            throw e;
+        }
         return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/{id}/share")
     public ResponseEntity<DocumentShare> shareDocument(@PathVariable Long id, @RequestBody ShareDocumentRequest request, @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
-        DocumentShare share = documentService.shareDocument(id, request.getSharedWithUser(), request.getPermission(), username);
+        DocumentShare share;
+        try {
+            share = documentService.shareDocument(id, request.getSharedWithUser(), request.getPermission(), username);
+        } catch (PermissionDeniedException e) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "share");
+            throw e;
+        }
+        auditLog.publish(AuditEvent.Type.SHARE, username, id, shareDetail(request.getSharedWithUser(), request.getPermission()));
         return ResponseEntity.ok(share);
     }
 
     @DeleteMapping("/{id}/share/{sharedWithUser}")
     public ResponseEntity<Void> revokeShare(@PathVariable Long id, @PathVariable String sharedWithUser, @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
-        documentService.revokeShare(id, sharedWithUser, username);
+        try {
+            documentService.revokeShare(id, sharedWithUser, username);
+        } catch (PermissionDeniedException e) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "revoke");
+            throw e;
+        }
+        auditLog.publish(AuditEvent.Type.REVOKE, username, id, shareDetail(sharedWithUser, null));
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/{id}/shares")
+    public ResponseEntity<List<BulkShareResult>> shareDocumentBulk(@PathVariable Long id, @RequestBody BulkShareRequest request, @RequestHeader("Authorization") String token) {
+        String username = extractOwnerFromToken(token);
+        List<BulkShareResult> results;
+        try {
+            results = documentService.shareDocumentBulk(id, request.getRecipients(), username);
+        } catch (PermissionDeniedException e) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "share");
+            throw e;
+        }
+        auditBulk(results, username, id);
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping("/{id}/shares/revoke")
+    public ResponseEntity<List<BulkShareResult>> revokeSharesBulk(@PathVariable Long id, @RequestBody BulkRevokeRequest request, @RequestHeader("Authorization") String token) {
+        String username = extractOwnerFromToken(token);
+        List<BulkShareResult> results;
+        try {
+            results = documentService.revokeSharesBulk(id, request.getSharedWithUsers(), username);
+        } catch (PermissionDeniedException e) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "revoke");
+            throw e;
+        }
+        auditBulk(results, username, id);
+        return ResponseEntity.ok(results);
+    }
+
     @GetMapping("/{id}/shares")
     public ResponseEntity<List<DocumentShare>> getDocumentShares(@PathVariable Long id, @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
@@ -132,17 +280,30 @@ public class DocumentController {
     }
 
     @PutMapping("/templates/{id}")
-    public ResponseEntity<DocumentTemplate> updateTemplate(@PathVariable Long id, @RequestBody UpdateTemplateRequest request, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> updateTemplate(@PathVariable Long id, @RequestBody UpdateTemplateRequest request,
+                                            @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                            @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
-        DocumentTemplate template = documentService.updateTemplate(
-                id,
-                request.getName(),
-                request.getDescription(),
-                request.getContent(),
-                request.getCategory(),
-                username
-        );
-        return ResponseEntity.ok(template);
+        Long expectedVersion;
+        try {
+            expectedVersion = ifMatch != null ? parseETag(ifMatch) : request.getVersion();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            DocumentTemplate template = documentService.updateTemplate(
+                    id,
+                    request.getName(),
+                    request.getDescription(),
+                    request.getContent(),
+                    request.getCategory(),
+                    username,
+                    expectedVersion
+            );
+            return ResponseEntity.ok().eTag(eTag(template.getVersion())).body(template);
+        } catch (RevisionConflictException e) {
+            return conflict(e, request.getContent(), null);
+        }
     }
 
     @DeleteMapping("/templates/{id}")
@@ -163,8 +324,10 @@ public class DocumentController {
     @GetMapping("/{id}/export/{format}")
     public ResponseEntity<byte[]> exportDocument(@PathVariable Long id, @PathVariable String format, @RequestHeader("Authorization") String token) {
         String username = extractOwnerFromToken(token);
+        hotDocumentTracker.recordExport(id, username);
 
         if (!documentService.hasPermission(id, username, SharePermission.READ)) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, username, id, "export");
             return ResponseEntity.status(403).build();
         }
 
@@ -183,6 +346,7 @@ public class DocumentController {
         }
 
         byte[] exportedData = documentExportService.exportDocument(document, exportFormat);
+        auditLog.publish(AuditEvent.Type.EXPORT, username, id, "format=" + format.toLowerCase() + " bytes=" + exportedData.length);
         String contentType = documentExportService.getContentType(exportFormat);
         String fileName = document.getTitle().replaceAll("[^a-zA-Z0-9.-]", "_") + documentExportService.getFileExtension(exportFormat);
 
@@ -192,7 +356,58 @@ public class DocumentController {
                 .body(exportedData);
     }
 
+    private ResponseEntity<UpdateConflictResponse> conflict(RevisionConflictException e, String submittedContent, List<EditOperation> missed) {
+        EditOperation diff = EditOperation.between(e.getId(), submittedContent, e.getCurrentContent());
+        return ResponseEntity.status(409)
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(eTag(e.getCurrentRevision()))
+                .body(new UpdateConflictResponse(e.getId(), e.getCurrentRevision(), missed, diff));
+    }
+
+    private void auditBulk(List<BulkShareResult> results, String username, Long documentId) {
+        for (BulkShareResult result : results) {
+            if (result.getStatus() == BulkShareResult.Status.SHARED) {
+                auditLog.publish(AuditEvent.Type.SHARE, username, documentId, shareDetail(result.getSharedWithUser(), result.getPermission()));
+            } else if (result.getStatus() == BulkShareResult.Status.REVOKED) {
+                auditLog.publish(AuditEvent.Type.REVOKE, username, documentId, shareDetail(result.getSharedWithUser(), null));
+            }
+        }
+    }
+
+    private static String shareDetail(String sharedWithUser, SharePermission permission) {
+        return "sharedWithUser=" + sharedWithUser + (permission != null ? " permission=" + permission : "");
+    }
+
+    private static String eTag(long revision) {
+        return "\"" + revision + "\"";
+    }
+
+    // "*" matches any revision, so the write is unconditional
+    static Long parseETag(String ifMatch) {
+        String value = ifMatch.trim();
+        if (value.equals("*")) {
+            return null;
+        }
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        try {
+            return Long.valueOf(value.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match revision: " + ifMatch);
+        }
+    }
+
     private String extractOwnerFromToken(String token) {
+        Span span = tracer.nextSpan().name("jwt.parse").start();
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return jwtParseTimer.record(() -> parseSubject(token));
+        } finally {
+            span.end();
+        }
+    }
+
+    static String parseSubject(String token) {
         try {
             String jwtToken = token.replace("Bearer ", "");
             Claims claims = Jwts.parser()
@@ -218,9 +433,13 @@ public class DocumentController {
 
     public static class UpdateDocumentRequest {
         private String content;
+        private Long baseRevision;
 
         public String getContent() { return content; }
         public void setContent(String content) { this.content = content; }
+
+        public Long getBaseRevision() { return baseRevision; }
+        public void setBaseRevision(Long baseRevision) { this.baseRevision = baseRevision; }
     }
 
     public static class ShareDocumentRequest {
@@ -234,6 +453,58 @@ public class DocumentController {
         public void setPermission(SharePermission permission) { this.permission = permission; }
     }
 
+    public static class BulkShareRequest {
+        private List<ShareRecipient> recipients = new ArrayList<>();
+
+        public List<ShareRecipient> getRecipients() { return recipients; }
+        public void setRecipients(List<ShareRecipient> recipients) { this.recipients = recipients; }
+    }
+
+    public static class BulkRevokeRequest {
+        private List<String> sharedWithUsers = new ArrayList<>();
+
+        public List<String> getSharedWithUsers() { return sharedWithUsers; }
+        public void setSharedWithUsers(List<String> sharedWithUsers) { this.sharedWithUsers = sharedWithUsers; }
+    }
+
+    public static class CatchUpResponse {
+        private final Long documentId;
+        private final long currentRevision;
+        private final List<EditOperation> operations;
+        private final Document snapshot;
+
+        public CatchUpResponse(Long documentId, long currentRevision, List<EditOperation> operations, Document snapshot) {
+            this.documentId = documentId;
+            this.currentRevision = currentRevision;
+            this.operations = operations;
+            this.snapshot = snapshot;
+        }
+
+        public Long getDocumentId() { return documentId; }
+        public long getCurrentRevision() { return currentRevision; }
+        public List<EditOperation> getOperations() { return operations; }
+        public Document getSnapshot() { return snapshot; }
+    }
+
+    public static class UpdateConflictResponse {
+        private final Long id;
+        private final long currentRevision;
+        private final List<EditOperation> operations;
+        private final EditOperation diff;
+
+        public UpdateConflictResponse(Long id, long currentRevision, List<EditOperation> operations, EditOperation diff) {
+            this.id = id;
+            this.currentRevision = currentRevision;
+            this.operations = operations;
+            this.diff = diff;
+        }
+
+        public Long getId() { return id; }
+        public long getCurrentRevision() { return currentRevision; }
+        public List<EditOperation> getOperations() { return operations; }
+        public EditOperation getDiff() { return diff; }
+    }
+
     public static class CreateTemplateRequest {
         private String name;
         private String description;
@@ -258,6 +529,7 @@ public class DocumentController {
         private String description;
         private String content;
         private String category;
+        private Long version;
 
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
@@ -270,6 +542,9 @@ public class DocumentController {
 
         public String getCategory() { return category; }
         public void setCategory(String category) { this.category = category; }
+
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
     }
 
     public static class CreateDocumentFromTemplateRequest {
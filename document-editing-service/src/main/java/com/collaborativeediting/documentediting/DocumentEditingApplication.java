@@ -2,8 +2,10 @@ package com.collaborativeediting.documentediting;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class DocumentEditingApplication {
 
     public static void main(String[] args) {
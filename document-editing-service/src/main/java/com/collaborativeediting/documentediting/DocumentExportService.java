@@ -1,15 +1,35 @@
 package com.collaborativeediting.documentediting;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DocumentExportService {
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     public enum ExportFormat {
         TXT, HTML, JSON
     }
 
     public byte[] exportDocument(Document document, ExportFormat format) {
+        String formatTag = format.name().toLowerCase();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        byte[] exported = render(document, format);
+        sample.stop(meterRegistry.timer("documents.export", "format", formatTag));
+        DistributionSummary.builder("documents.export.size")
+                .baseUnit("bytes")
+                .tag("format", formatTag)
+                .register(meterRegistry)
+                .record(exported.length);
+        return exported;
+    }
+
+    private byte[] render(Document document, ExportFormat format) {
         switch (format) {
             case TXT:
                 return exportToTxt(document);
@@ -93,7 +113,7 @@ public class DocumentExportService {
         return json.toString().getBytes();
     }
 
-    private String escapeHtml(String text) {
+    static String escapeHtml(String text) {
         if (text == null) return "";
         return text.replace("&", "&amp;")
                   .replace("<", "&lt;")
@@ -102,7 +122,7 @@ public class DocumentExportService {
                   .replace("'", "&#39;");
     }
 
-    private String escapeJson(String text) {
+    static String escapeJson(String text) {
         if (text == null) return "";
         return text.replace("\\", "\\\\")
                   .replace("\"", "\\\"")
@@ -0,0 +1,84 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Builds the "open document" response from a document and permission the caller has already
+ * loaded. The share list and the remote version lookup are independent, so with
+ * {@code documents.open.parallel} the version lookup runs on a small bounded pool while the
+ * request thread reads the shares.
+ */
+@Service
+public class DocumentOpenService {
+
+    @Autowired
+    private DocumentShareRepository documentShareRepository;
+
+    @Autowired
+    private VersionServiceClient versionServiceClient;
+
+    @Value("${documents.open.parallel:true}")
+    private boolean parallel;
+
+    @Value("${documents.open.threads:8}")
+    private int threads;
+
+    @Value("${documents.open.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${documents.version-service.timeout-ms:1000}")
+    private long versionTimeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        // When saturated the request thread does the lookup itself instead of queueing without bound
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public OpenDocumentView open(Document document, SharePermission permission, String username) {
+        boolean owner = document.getOwner().equals(username);
+        if (!parallel) {
+            List<DocumentShare> shares = owner ? documentShareRepository.findByDocumentId(document.getId()) : null;
+            return new OpenDocumentView(document, permission, shares,
+                    versionServiceClient.getLatestVersion(document.getId()).orElse(null));
+        }
+
+        CompletableFuture<VersionServiceClient.LatestVersion> latestVersion = CompletableFuture.supplyAsync(
+                () -> versionServiceClient.getLatestVersion(document.getId()).orElse(null), executor);
+        List<DocumentShare> shares = owner ? documentShareRepository.findByDocumentId(document.getId()) : null;
+        return new OpenDocumentView(document, permission, shares, await(latestVersion));
+    }
+
+    private VersionServiceClient.LatestVersion await(CompletableFuture<VersionServiceClient.LatestVersion> latestVersion) {
+        try {
+            return latestVersion.get(versionTimeoutMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            latestVersion.cancel(true);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the most recent operations of each document in a fixed-size ring buffer indexed by
+ * revision, so a reconnecting client can be sent only what it missed. Both the per-document
+ * capacity and the number of tracked documents are bounded.
+ */
+@Component
+public class DocumentOperationLog {
+
+    @Value("${documents.oplog.capacity-per-document:1024}")
+    private int capacityPerDocument;
+
+    @Value("${documents.oplog.max-documents:10000}")
+    private int maxDocuments;
+
+    private final Map<Long, OperationBuffer> buffers = new LinkedHashMap<Long, OperationBuffer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, OperationBuffer> eldest) {
+            return size() > maxDocuments;
+        }
+    };
+
+    public void append(EditOperation operation) {
+        OperationBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers.get(operation.getDocumentId());
+            if (buffer == null) {
+                buffer = new OperationBuffer(capacityPerDocument);
+                buffers.put(operation.getDocumentId(), buffer);
+            }
+        }
+        buffer.append(operation);
+    }
+
+    /**
+     * Returns the operations after {@code sinceRevision}, or empty if the log can no longer
+     * prove it holds all of them and the caller has to fall back to a snapshot.
+     */
+    public Optional<List<EditOperation>> since(Long documentId, long sinceRevision) {
+        OperationBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers.get(documentId);
+        }
+        return buffer == null ? Optional.empty() : buffer.since(sinceRevision);
+    }
+
+    public void remove(Long documentId) {
+        synchronized (buffers) {
+            buffers.remove(documentId);
+        }
+    }
+
+    private static class OperationBuffer {
+        private final EditOperation[] slots;
+        private long latestRevision;
+        private int count;
+
+        OperationBuffer(int capacity) {
+            this.slots = new EditOperation[capacity];
+        }
+
+        synchronized void append(EditOperation operation) {
+            if (count > 0 && operation.getRevision() != latestRevision + 1) {
+                // Revisions must be contiguous for catch-up to be exact; start over after a gap
+                count = 0;
+            }
+            slots[slotFor(operation.getRevision())] = operation;
+            latestRevision = operation.getRevision();
+            count = Math.min(count + 1, slots.length);
+        }
+
+        synchronized Optional<List<EditOperation>> since(long sinceRevision) {
+            if (count == 0 || sinceRevision > latestRevision) {
+                return Optional.empty();
+            }
+            if (sinceRevision == latestRevision) {
+                return Optional.of(Collections.<EditOperation>emptyList());
+            }
+            long oldestRevision = latestRevision - count + 1;
+            if (sinceRevision + 1 < oldestRevision) {
+                return Optional.empty();
+            }
+
+            List<EditOperation> missed = new ArrayList<>((int) (latestRevision - sinceRevision));
+            for (long revision = sinceRevision + 1; revision <= latestRevision; revision++) {
+                missed.add(slots[slotFor(revision)]);
+            }
+            return Optional.of(missed);
+        }
+
+        private int slotFor(long revision) {
+            return (int) (revision % slots.length);
+        }
+    }
+}
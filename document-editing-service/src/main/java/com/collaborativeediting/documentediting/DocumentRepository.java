@@ -1,8 +1,22 @@
 package com.collaborativeediting.documentediting;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findByOwner(String owner);
+
+    // Checkpoint write that only lands if nobody has persisted the document since baseRevision
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.content = :content, d.operationRevision = :revision, d.updatedAt = :updatedAt,"
+            + " d.version = d.version + 1 WHERE d.id = :id AND d.operationRevision = :baseRevision")
+    int checkpoint(@Param("id") Long id, @Param("baseRevision") long baseRevision, @Param("content") String content,
+                   @Param("revision") long revision, @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -1,10 +1,23 @@
 package com.collaborativeediting.documentediting;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,23 +32,51 @@ public class DocumentService {
     @Autowired
     private DocumentTemplateRepository documentTemplateRepository;
 
+    @Autowired
+    private DocumentOperationLog operationLog;
+
+    @Autowired
+    private LiveDocumentStore liveDocumentStore;
+
+    @Autowired
+    private DocumentShards documentShards;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${documents.share.max-bulk-recipients:500}")
+    private int maxBulkRecipients;
+
+    private Timer permissionTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        permissionTimer = meterRegistry.timer("documents.permission.check");
+    }
+
     public Document createDocument(String title, String content, String owner) {
         Document document = new Document(title, content, owner);
         return documentRepository.save(document);
     }
 
     public Optional<Document> getDocument(Long id) {
-        return documentRepository.findById(id);
+        return documentRepository.findById(id).map(liveDocumentStore::view);
     }
 
     public List<Document> getDocumentsByOwner(String owner) {
-        return documentRepository.findByOwner(owner);
+        return documentRepository.findByOwner(owner).stream()
+                .map(liveDocumentStore::view)
+                .collect(Collectors.toList());
     }
 
     public List<Document> getSharedDocuments(String username) {
         List<DocumentShare> shares = documentShareRepository.findBySharedWithUser(username);
         return shares.stream()
                 .map(DocumentShare::getDocument)
+                .map(liveDocumentStore::view)
                 .collect(Collectors.toList());
     }
 
@@ -49,32 +90,79 @@ public class DocumentService {
     }
 
     public Document updateDocument(Long id, String content, String username) {
+        return updateDocument(id, content, username, null);
+    }
+
+    /**
+     * Saves the full content. With {@code expectedRevision} the save only goes through if nobody
+     * has edited the document since that revision; otherwise {@link RevisionConflictException}.
+     */
+    public Document updateDocument(Long id, String content, String username, Long expectedRevision) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Document updated = replaceDocumentContent(id, content, username, expectedRevision);
+            outcome = "success";
+            return updated;
+        } catch (RevisionConflictException e) {
+            outcome = "conflict";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("documents.update", "outcome", outcome));
+        }
+    }
+
+    private Document replaceDocumentContent(Long id, String content, String username, Long expectedRevision) {
         Document document = documentRepository.findById(id).orElseThrow(() -> new RuntimeException("Document not found"));
 
         if (!hasPermission(id, username, SharePermission.WRITE)) {
-            throw new RuntimeException("Unauthorized");
+            throw new PermissionDeniedException("Unauthorized");
         }
 
-        document.setContent(content);
-        document.setUpdatedAt(java.time.LocalDateTime.now());
-        return documentRepository.save(document);
+        // Full saves go through the same write-ahead path as live edits so neither overwrites the other
+        liveDocumentStore.replaceContent(id, content, username, expectedRevision);
+        return liveDocumentStore.view(document);
+    }
+
+    public EditOperation applyOperation(EditOperation operation) {
+        if (!hasPermission(operation.getDocumentId(), operation.getUsername(), SharePermission.WRITE)) {
+            throw new PermissionDeniedException("Unauthorized");
+        }
+
+        return liveDocumentStore.apply(operation);
+    }
+
+    public Optional<List<EditOperation>> getOperationsSince(Long id, long sinceRevision) {
+        Optional<List<EditOperation>> missed = operationLog.since(id, sinceRevision);
+        if (missed.isPresent()) {
+            return missed;
+        }
+
+        // Nothing buffered, e.g. after a restart: only an up-to-date client can skip the snapshot
+        Document document = getDocument(id).orElseThrow(() -> new RuntimeException("Document not found"));
+        if (document.getOperationRevision() == sinceRevision) {
+            return Optional.of(java.util.Collections.<EditOperation>emptyList());
+        }
+        return Optional.empty();
     }
 
     public void deleteDocument(Long id, String username) {
         Document document = documentRepository.findById(id).orElseThrow(() -> new RuntimeException("Document not found"));
 
         if (!hasPermission(id, username, SharePermission.ADMIN) && !document.getOwner().equals(username)) {
-            throw new RuntimeException("Unauthorized");
+            throw new PermissionDeniedException("Unauthorized");
         }
 
         documentRepository.delete(document);
+        liveDocumentStore.remove(id);
+        operationLog.remove(id);
     }
 
     public DocumentShare shareDocument(Long documentId, String sharedWithUser, SharePermission permission, String sharedByUser) {
         Document document = documentRepository.findById(documentId).orElseThrow(() -> new RuntimeException("Document not found"));
 
         if (!document.getOwner().equals(sharedByUser)) {
-            throw new RuntimeException("Only document owner can share");
+            throw new PermissionDeniedException("Only document owner can share");
         }
 
         // Check if already shared
@@ -87,11 +175,127 @@ public class DocumentService {
         return documentShareRepository.save(share);
     }
 
+    /**
+     * Shares a document with many users at once: one query finds the recipients who already have
+     * a share, and the new shares are inserted in JDBC batches within a single transaction.
+     */
+    public List<BulkShareResult> shareDocumentBulk(Long documentId, List<ShareRecipient> recipients, String sharedByUser) {
+        return inDocumentTransaction(documentId, () -> doShareDocumentBulk(documentId, recipients, sharedByUser));
+    }
+
+    private List<BulkShareResult> doShareDocumentBulk(Long documentId, List<ShareRecipient> recipients, String sharedByUser) {
+        Document document = loadOwnedDocument(documentId, sharedByUser, recipients.size(), "Only document owner can share");
+
+        Set<String> seen = new HashSet<>();
+        List<ShareRecipient> valid = new ArrayList<>();
+        BulkShareResult.Status[] statuses = new BulkShareResult.Status[recipients.size()];
+        for (int i = 0; i < recipients.size(); i++) {
+            ShareRecipient recipient = recipients.get(i);
+            String user = recipient.getSharedWithUser();
+            if (user == null || user.trim().isEmpty() || recipient.getPermission() == null || user.equals(document.getOwner())) {
+                statuses[i] = BulkShareResult.Status.INVALID;
+            } else if (!seen.add(user)) {
+                statuses[i] = BulkShareResult.Status.DUPLICATE;
+            } else {
+                valid.add(recipient);
+            }
+        }
+
+        // Existing shares are left as they are and reported with the permission they already grant
+        Map<String, SharePermission> alreadyShared = new HashMap<>();
+        if (!seen.isEmpty()) {
+            for (DocumentShare share : documentShareRepository.findByDocumentIdAndSharedWithUserIn(documentId, seen)) {
+                alreadyShared.put(share.getSharedWithUser(), share.getPermission());
+            }
+        }
+
+        List<DocumentShare> newShares = new ArrayList<>();
+        for (ShareRecipient recipient : valid) {
+            if (!alreadyShared.containsKey(recipient.getSharedWithUser())) {
+                newShares.add(new DocumentShare(document, recipient.getSharedWithUser(), recipient.getPermission(), sharedByUser));
+            }
+        }
+        documentShareRepository.saveAll(newShares);
+
+        List<BulkShareResult> results = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            ShareRecipient recipient = recipients.get(i);
+            BulkShareResult.Status status = statuses[i];
+            SharePermission permission = recipient.getPermission();
+            if (status == null && alreadyShared.containsKey(recipient.getSharedWithUser())) {
+                status = BulkShareResult.Status.ALREADY_SHARED;
+                permission = alreadyShared.get(recipient.getSharedWithUser());
+            } else if (status == null) {
+                status = BulkShareResult.Status.SHARED;
+            }
+            results.add(new BulkShareResult(recipient.getSharedWithUser(), permission, status));
+        }
+        return results;
+    }
+
+    public List<BulkShareResult> revokeSharesBulk(Long documentId, List<String> sharedWithUsers, String requestingUser) {
+        return inDocumentTransaction(documentId, () -> doRevokeSharesBulk(documentId, sharedWithUsers, requestingUser));
+    }
+
+    private List<BulkShareResult> doRevokeSharesBulk(Long documentId, List<String> sharedWithUsers, String requestingUser) {
+        loadOwnedDocument(documentId, requestingUser, sharedWithUsers.size(), "Only document owner can revoke sharing");
+
+        Set<String> requested = new HashSet<>();
+        for (String user : sharedWithUsers) {
+            if (user != null && !user.trim().isEmpty()) {
+                requested.add(user);
+            }
+        }
+
+        Map<String, DocumentShare> existing = new HashMap<>();
+        if (!requested.isEmpty()) {
+            for (DocumentShare share : documentShareRepository.findByDocumentIdAndSharedWithUserIn(documentId, requested)) {
+                existing.put(share.getSharedWithUser(), share);
+            }
+            documentShareRepository.deleteAllInBatch(existing.values());
+        }
+
+        Set<String> seen = new HashSet<>();
+        List<BulkShareResult> results = new ArrayList<>(sharedWithUsers.size());
+        for (String user : sharedWithUsers) {
+            DocumentShare share = user != null ? existing.get(user) : null;
+            BulkShareResult.Status status;
+            if (user == null || !requested.contains(user)) {
+                status = BulkShareResult.Status.INVALID;
+            } else if (!seen.add(user)) {
+                status = BulkShareResult.Status.DUPLICATE;
+            } else if (share != null) {
+                status = BulkShareResult.Status.REVOKED;
+            } else {
+                status = BulkShareResult.Status.NOT_SHARED;
+            }
+            results.add(new BulkShareResult(user, share != null ? share.getPermission() : null, status));
+        }
+        return results;
+    }
+
+    // The transaction must start on the document's shard, so it is opened inside the shard scope
+    private <T> T inDocumentTransaction(Long documentId, Supplier<T> work) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return documentShards.onDocumentShard(documentId, () -> transaction.execute(status -> work.get()));
+    }
+
+    private Document loadOwnedDocument(Long documentId, String username, int recipientCount, String notOwnerMessage) {
+        if (recipientCount > maxBulkRecipients) {
+            throw new RuntimeException("At most " + maxBulkRecipients + " recipients per request");
+        }
+        Document document = documentRepository.findById(documentId).orElseThrow(() -> new RuntimeException("Document not found"));
+        if (!document.getOwner().equals(username)) {
+            throw new PermissionDeniedException(notOwnerMessage);
+        }
+        return document;
+    }
+
     public void revokeShare(Long documentId, String sharedWithUser, String requestingUser) {
         Document document = documentRepository.findById(documentId).orElseThrow(() -> new RuntimeException("Document not found"));
 
         if (!document.getOwner().equals(requestingUser)) {
-            throw new RuntimeException("Only document owner can revoke sharing");
+            throw new PermissionDeniedException("Only document owner can revoke sharing");
         }
 
         documentShareRepository.deleteByDocumentIdAndSharedWithUser(documentId, sharedWithUser);
@@ -101,13 +305,17 @@ public class DocumentService {
         Document document = documentRepository.findById(documentId).orElseThrow(() -> new RuntimeException("Document not found"));
 
         if (!document.getOwner().equals(requestingUser)) {
-            throw new RuntimeException("Unauthorized");
+            throw new PermissionDeniedException("Unauthorized");
         }
 
         return documentShareRepository.findByDocumentId(documentId);
     }
 
     public boolean hasPermission(Long documentId, String username, SharePermission requiredPermission) {
+        return permissionTimer.record(() -> checkPermission(documentId, username, requiredPermission));
+    }
+
+    private boolean checkPermission(Long documentId, String username, SharePermission requiredPermission) {
         Document document = documentRepository.findById(documentId).orElseThrow(() -> new RuntimeException("Document not found"));
 
         // Owner has all permissions
@@ -125,7 +333,7 @@ public class DocumentService {
         return false;
     }
 
-    private boolean hasRequiredPermission(SharePermission userPermission, SharePermission requiredPermission) {
+    static boolean hasRequiredPermission(SharePermission userPermission, SharePermission requiredPermission) {
         switch (requiredPermission) {
             case READ:
                 return userPermission == SharePermission.READ ||
@@ -143,14 +351,17 @@ public class DocumentService {
 
     public SharePermission getUserPermission(Long documentId, String username) {
         Document document = documentRepository.findById(documentId).orElseThrow(() -> new RuntimeException("Document not found"));
+        return getUserPermission(document, username);
+    }
 
+    public SharePermission getUserPermission(Document document, String username) {
         // Owner has admin permission
         if (document.getOwner().equals(username)) {
             return SharePermission.ADMIN;
         }
 
         // Check sharing permissions
-        Optional<DocumentShare> share = documentShareRepository.findByDocumentIdAndSharedWithUser(documentId, username);
+        Optional<DocumentShare> share = documentShareRepository.findByDocumentIdAndSharedWithUser(document.getId(), username);
         return share.map(DocumentShare::getPermission).orElse(null);
     }
 
@@ -179,11 +390,18 @@ public class DocumentService {
     }
 
     public DocumentTemplate updateTemplate(Long id, String name, String description, String content, String category, String username) {
+        return updateTemplate(id, name, description, content, category, username, null);
+    }
+
+    public DocumentTemplate updateTemplate(Long id, String name, String description, String content, String category, String username, Long expectedVersion) {
         DocumentTemplate template = documentTemplateRepository.findById(id).orElseThrow(() -> new RuntimeException("Template not found"));
 
         if (!template.getCreatedBy().equals(username)) {
             throw new RuntimeException("Unauthorized");
         }
+        if (expectedVersion != null && expectedVersion != template.getVersion()) {
+            throw new RevisionConflictException(id, template.getVersion(), template.getContent());
+        }
 
         template.setName(name);
         template.setDescription(description);
@@ -191,7 +409,13 @@ public class DocumentService {
         template.setCategory(category);
         template.setUpdatedAt(java.time.LocalDateTime.now());
 
-        return documentTemplateRepository.save(template);
+        try {
+            return documentTemplateRepository.save(template);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Someone else saved between our read and write
+            DocumentTemplate current = documentTemplateRepository.findById(id).orElseThrow(() -> new RuntimeException("Template not found"));
+            throw new RevisionConflictException(id, current.getVersion(), current.getContent());
+        }
     }
 
     public void deleteTemplate(Long id, String username) {
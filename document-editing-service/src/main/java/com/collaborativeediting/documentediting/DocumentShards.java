@@ -0,0 +1,115 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Placement rules for sharded storage of documents and their shares. A new document goes to the
+ * shard its owner hashes to, and each shard hands out ids from its own range of {@link #ID_SPAN},
+ * so a document id (or share id) alone tells which shard holds the row. With sharding disabled
+ * there is a single shard and every method runs its work as-is.
+ */
+@Component
+public class DocumentShards {
+
+    public static final long ID_SPAN = 1L << 40;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    @Value("${documents.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${documents.sharding.shards:1}")
+    private int shards;
+
+    @Value("${documents.sharding.scatter-threads:8}")
+    private int scatterThreads;
+
+    private ExecutorService scatterExecutor;
+
+    @PostConstruct
+    public void start() {
+        if (count() > 1) {
+            scatterExecutor = Executors.newFixedThreadPool(Math.min(scatterThreads, count()));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+
+    public int count() {
+        return enabled ? Math.max(1, shards) : 1;
+    }
+
+    public int shardForOwner(String owner) {
+        return owner == null ? 0 : Math.floorMod(owner.hashCode(), count());
+    }
+
+    public int shardOf(long id) {
+        return Math.floorMod(id / ID_SPAN, count());
+    }
+
+    public static long firstId(int shard) {
+        return shard * ID_SPAN + 1;
+    }
+
+    /** Shard pinned on this thread by {@link #onShard}, or null when repositories route per call. */
+    static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public <T> T onDocumentShard(Long documentId, Supplier<T> work) {
+        return onShard(shardOf(documentId), work);
+    }
+
+    /** Runs {@code query} against every shard in parallel and returns the results in shard order. */
+    public <T> List<T> scatter(IntFunction<T> query) {
+        if (scatterExecutor == null) {
+            return Collections.singletonList(onShard(0, () -> query.apply(0)));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < count(); shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(target, () -> query.apply(target)), scatterExecutor));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        return results;
+    }
+}
@@ -4,11 +4,15 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "document_shares")
+@Table(name = "document_shares",
+        uniqueConstraints = @UniqueConstraint(name = "uk_document_shares_document_user", columnNames = {"document_id", "sharedWithUser"}),
+        indexes = @Index(name = "idx_document_shares_user", columnList = "sharedWithUser"))
 public class DocumentShare {
 
+    // Sequence ids (unlike IDENTITY) let Hibernate batch the inserts of a bulk share
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_share_seq")
+    @SequenceGenerator(name = "document_share_seq", sequenceName = "document_share_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,8 @@ public interface DocumentShareRepository extends JpaRepository<DocumentShare, Lo
 
     Optional<DocumentShare> findByDocumentIdAndSharedWithUser(Long documentId, String sharedWithUser);
 
+    List<DocumentShare> findByDocumentIdAndSharedWithUserIn(Long documentId, Collection<String> sharedWithUsers);
+
     @Query("SELECT ds FROM DocumentShare ds WHERE ds.document.owner = :owner AND ds.sharedWithUser = :sharedWithUser")
     List<DocumentShare> findSharedDocumentsByOwnerAndUser(@Param("owner") String owner, @Param("sharedWithUser") String sharedWithUser);
 
@@ -4,7 +4,10 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "document_templates")
+@Table(name = "document_templates", indexes = {
+        @Index(name = "idx_document_templates_creator_category", columnList = "createdBy, category"),
+        @Index(name = "idx_document_templates_category", columnList = "category")
+})
 public class DocumentTemplate {
 
     @Id
@@ -31,6 +34,10 @@ public class DocumentTemplate {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Incremented on every update; clients send it back to update conditionally
+    @Version
+    private long version;
+
     // Constructors
     public DocumentTemplate() {}
 
@@ -71,4 +78,7 @@ public class DocumentTemplate {
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
@@ -1,16 +1,72 @@
 package com.collaborativeediting.documentediting;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
 @Controller
 public class DocumentWebSocketController {
 
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private HotDocumentTracker hotDocumentTracker;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    private final Object[] documentLocks = new Object[LOCK_STRIPES];
+
+    public DocumentWebSocketController() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            documentLocks[i] = new Object();
+        }
+    }
+
     @MessageMapping("/edit")
-    @SendTo("/topic/document")
-    public String handleEdit(String message) {
-        // Process the edit and broadcast to subscribers
-        return message;
+    public void handleEdit(EditOperation operation, SimpMessageHeaderAccessor headers) {
+        if (operation.getDocumentId() == null) {
+            throw new RuntimeException("Document id is required");
+        }
+        Principal user = headers.getUser();
+        if (user == null) {
+            throw new RuntimeException("Unauthorized");
+        }
+        // The session's authenticated user, whatever the client put in the message
+        operation.setUsername(user.getName());
+        hotDocumentTracker.recordAccess(operation.getDocumentId(), operation.getUsername());
+
+        // Apply and broadcast under the same lock so subscribers see revision order
+        try {
+            synchronized (lockFor(operation.getDocumentId())) {
+                broadcast(documentService.applyOperation(operation));
+            }
+        } catch (PermissionDeniedException e) {
+            auditLog.publish(AuditEvent.Type.PERMISSION_DENIED, operation.getUsername(), operation.getDocumentId(), "edit");
+            throw e;
+        }
+    }
+
+    private Object lockFor(Long documentId) {
+        return documentLocks[(int) Math.floorMod(documentId, (long) LOCK_STRIPES)];
+    }
+
+    private void broadcast(EditOperation operation) {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(SlowConsumerGuard.DOCUMENT_HEADER, String.valueOf(operation.getDocumentId()));
+        headers.put(SlowConsumerGuard.REVISION_HEADER, String.valueOf(operation.getRevision()));
+        messagingTemplate.convertAndSend("/topic/document/" + operation.getDocumentId(), operation, headers);
     }
 }
@@ -0,0 +1,78 @@
+package com.collaborativeediting.documentediting;
+
+/**
+ * A single text splice applied to a document: delete {@code deleteCount} characters at
+ * {@code position}, then insert {@code text}. The server assigns {@code revision} when it
+ * accepts the operation; {@code clientOpId} is echoed back so a client can recognise its own edits.
+ */
+public class EditOperation {
+
+    private Long documentId;
+    private long revision;
+    private String username;
+    private int position;
+    private int deleteCount;
+    private String text;
+    private String clientOpId;
+
+    // Constructors
+    public EditOperation() {}
+
+    public EditOperation(Long documentId, String username, int position, int deleteCount, String text) {
+        this.documentId = documentId;
+        this.username = username;
+        this.position = position;
+        this.deleteCount = deleteCount;
+        this.text = text;
+    }
+
+    /**
+     * The single splice that turns {@code from} into {@code to}: everything between their common
+     * prefix and common suffix is replaced.
+     */
+    public static EditOperation between(Long documentId, String from, String to) {
+        String before = from != null ? from : "";
+        String after = to != null ? to : "";
+        int prefix = 0;
+        int shorter = Math.min(before.length(), after.length());
+        while (prefix < shorter && before.charAt(prefix) == after.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < shorter - prefix
+                && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return new EditOperation(documentId, null, prefix, before.length() - prefix - suffix,
+                after.substring(prefix, after.length() - suffix));
+    }
+
+    public String applyTo(String content) {
+        String current = content != null ? content : "";
+        int start = Math.max(0, Math.min(position, current.length()));
+        int end = Math.min(current.length(), start + Math.max(0, deleteCount));
+        return current.substring(0, start) + (text != null ? text : "") + current.substring(end);
+    }
+
+    // Getters and Setters
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public long getRevision() { return revision; }
+    public void setRevision(long revision) { this.revision = revision; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+
+    public int getDeleteCount() { return deleteCount; }
+    public void setDeleteCount(int deleteCount) { this.deleteCount = deleteCount; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getClientOpId() { return clientOpId; }
+    public void setClientOpId(String clientOpId) { this.clientOpId = clientOpId; }
+}
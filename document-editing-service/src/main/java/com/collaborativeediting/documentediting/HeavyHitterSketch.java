@@ -0,0 +1,224 @@
+package com.collaborativeediting.documentediting;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate top-K of a stream of keys over a sliding window. Counts go to a count-min sketch per
+ * window bucket, so memory is fixed by the sketch size whatever the number of distinct keys, and
+ * a bounded min-heap keeps the keys currently estimated to be heaviest. Estimates never
+ * undercount; they overcount by at most {@code e / width} of the events in the window with
+ * probability {@code 1 - e^-depth}.
+ *
+ * <p>Adding only takes the lock when the key could enter the top-K: a key that is already a
+ * candidate, or whose estimate is no more than the lightest candidate's, is counted in the sketch
+ * alone. Candidate counts are brought up to date when a candidate could be displaced and when
+ * {@link #top} is read.
+ */
+class HeavyHitterSketch {
+
+    private final int width;
+    private final int depth;
+    private final long bucketMillis;
+    private final int capacity;
+    private final LongSupplier clock;
+    private final Bucket[] buckets;
+
+    // Candidates for the top-K, the lightest at the head of the heap. Changed under the lock only;
+    // heap counts may lag the sketch, but within a bucket estimates only grow, so they are lower bounds
+    private final Map<String, Candidate> candidates = new ConcurrentHashMap<>();
+    private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingLong(c -> c.count));
+    private volatile long refreshedSlot = -1;
+    // Count of the lightest candidate once the heap is full, -1 before; no heavier key is ever turned away below it
+    private volatile long admissionFloor = -1;
+
+    HeavyHitterSketch(int width, int depth, int buckets, long bucketMillis, int capacity, LongSupplier clock) {
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.bucketMillis = bucketMillis;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.buckets = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new Bucket(depth * this.width);
+        }
+    }
+
+    void add(String key) {
+        long slot = clock.getAsLong() / bucketMillis;
+        Bucket bucket = bucketFor(slot);
+        int hash = key.hashCode();
+        for (int row = 0; row < depth; row++) {
+            bucket.counters.incrementAndGet(row * width + column(hash, row));
+        }
+        bucket.total.incrementAndGet();
+
+        long estimate = estimate(hash, slot);
+        if (slot == refreshedSlot && (candidates.containsKey(key) || estimate <= admissionFloor)) {
+            return;
+        }
+        synchronized (this) {
+            if (slot != refreshedSlot) {
+                refresh(slot);
+            }
+            if (!candidates.containsKey(key)) {
+                if (candidates.size() < capacity) {
+                    admit(key, estimate);
+                } else if (estimate > lightest(slot).count) {
+                    candidates.remove(heap.poll().key);
+                    admit(key, estimate);
+                }
+            }
+            updateAdmissionFloor();
+        }
+    }
+
+    /** Estimated occurrences of {@code key} in the window. */
+    long estimate(String key) {
+        return estimate(key.hashCode(), clock.getAsLong() / bucketMillis);
+    }
+
+    /** Events in the window. */
+    long total() {
+        long slot = clock.getAsLong() / bucketMillis;
+        long total = 0;
+        for (Bucket bucket : buckets) {
+            if (isLive(bucket, slot)) {
+                total += bucket.total.get();
+            }
+        }
+        return total;
+    }
+
+    /** The {@code k} heaviest keys in the window, heaviest first. */
+    synchronized List<Map.Entry<String, Long>> top(int k) {
+        refresh(clock.getAsLong() / bucketMillis);
+        List<Candidate> sorted = new ArrayList<>(heap);
+        sorted.sort(Comparator.comparingLong((Candidate c) -> c.count).reversed().thenComparing(c -> c.key));
+        List<Map.Entry<String, Long>> top = new ArrayList<>(Math.min(k, sorted.size()));
+        for (Candidate candidate : sorted.subList(0, Math.min(k, sorted.size()))) {
+            top.add(new AbstractMap.SimpleImmutableEntry<>(candidate.key, candidate.count));
+        }
+        return top;
+    }
+
+    long windowMillis() {
+        return bucketMillis * buckets.length;
+    }
+
+    /** Upper bound, with high probability, of how much any estimate exceeds the true count. */
+    long maxOverestimate() {
+        return (long) Math.ceil(Math.E / width * total());
+    }
+
+    // Re-estimates every candidate once per bucket, as counts of expired buckets drop out
+    private void refresh(long slot) {
+        heap.clear();
+        candidates.values().removeIf(candidate -> {
+            candidate.count = estimate(candidate.key.hashCode(), slot);
+            return candidate.count == 0;
+        });
+        heap.addAll(candidates.values());
+        refreshedSlot = slot;
+        updateAdmissionFloor();
+    }
+
+    // Brings the head of the heap up to date until it really is the lightest candidate
+    private Candidate lightest(long slot) {
+        Candidate head = heap.peek();
+        long current = estimate(head.key.hashCode(), slot);
+        while (current > head.count) {
+            heap.poll();
+            head.count = current;
+            heap.add(head);
+            head = heap.peek();
+            current = estimate(head.key.hashCode(), slot);
+        }
+        return head;
+    }
+
+    private void updateAdmissionFloor() {
+        admissionFloor = candidates.size() < capacity ? -1 : heap.peek().count;
+    }
+
+    private void admit(String key, long estimate) {
+        Candidate candidate = new Candidate(key, estimate);
+        candidates.put(key, candidate);
+        heap.add(candidate);
+    }
+
+    private long estimate(int hash, long slot) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash, row);
+            long sum = 0;
+            for (Bucket bucket : buckets) {
+                if (isLive(bucket, slot)) {
+                    sum += bucket.counters.get(index);
+                }
+            }
+            estimate = Math.min(estimate, sum);
+        }
+        return estimate;
+    }
+
+    private Bucket bucketFor(long slot) {
+        Bucket bucket = buckets[(int) (slot % buckets.length)];
+        if (bucket.slot != slot) {
+            synchronized (bucket) {
+                if (bucket.slot != slot) {
+                    // Increments racing with the reset may be lost, which the estimates tolerate
+                    for (int i = 0; i < bucket.counters.length(); i++) {
+                        bucket.counters.set(i, 0);
+                    }
+                    bucket.total.set(0);
+                    bucket.slot = slot;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private boolean isLive(Bucket bucket, long slot) {
+        return bucket.slot <= slot && bucket.slot > slot - buckets.length;
+    }
+
+    private int column(int hash, int row) {
+        // Independent hash per row from one 32-bit hash (murmur3 finalizer with a row seed)
+        int h = hash ^ (row * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & (width - 1);
+    }
+
+    private static class Bucket {
+        private final AtomicLongArray counters;
+        private final AtomicLong total = new AtomicLong();
+        private volatile long slot = Long.MIN_VALUE;
+
+        Bucket(int size) {
+            this.counters = new AtomicLongArray(size);
+        }
+    }
+
+    private static class Candidate {
+        private final String key;
+        private long count;
+
+        Candidate(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which documents, users and exported documents generate the most load right now, served by the
+ * {@code hotspots} actuator endpoint. Each stream is a {@link HeavyHitterSketch} over the last
+ * {@code documents.hot.window-seconds}, so memory stays constant however many documents exist.
+ */
+@Component
+@Endpoint(id = "hotspots")
+public class HotDocumentTracker {
+
+    public enum Stream {
+        // Reads, saves and live edits per document
+        DOCUMENTS,
+        // Requests and live edits per user
+        USERS,
+        // Exports per document
+        EXPORTS
+    }
+
+    @Value("${documents.hot.window-seconds:60}")
+    private int windowSeconds;
+
+    @Value("${documents.hot.buckets:6}")
+    private int buckets;
+
+    @Value("${documents.hot.sketch-width:2048}")
+    private int sketchWidth;
+
+    @Value("${documents.hot.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${documents.hot.top-k:10}")
+    private int topK;
+
+    private final Map<Stream, HeavyHitterSketch> sketches = new EnumMap<>(Stream.class);
+
+    @PostConstruct
+    public void init() {
+        long bucketMillis = Math.max(1, windowSeconds * 1000L / buckets);
+        for (Stream stream : Stream.values()) {
+            // Extra candidates so a key climbing into the top-K is already tracked
+            sketches.put(stream, new HeavyHitterSketch(sketchWidth, sketchDepth, buckets, bucketMillis,
+                    topK * 4, System::currentTimeMillis));
+        }
+    }
+
+    /** A read, save or live edit of a document by a user. */
+    public void recordAccess(Long documentId, String username) {
+        if (documentId != null) {
+            sketches.get(Stream.DOCUMENTS).add(documentId.toString());
+        }
+        if (username != null) {
+            sketches.get(Stream.USERS).add(username);
+        }
+    }
+
+    public void recordExport(Long documentId, String username) {
+        sketches.get(Stream.EXPORTS).add(documentId.toString());
+        recordAccess(documentId, username);
+    }
+
+    @ReadOperation
+    public Map<String, HotList> hotspots() {
+        Map<String, HotList> hotspots = new LinkedHashMap<>();
+        for (Stream stream : Stream.values()) {
+            hotspots.put(stream.name().toLowerCase(), hotList(stream));
+        }
+        return hotspots;
+    }
+
+    @ReadOperation
+    public HotList hotspots(@Selector String stream) {
+        try {
+            return hotList(Stream.valueOf(stream.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    HotList hotList(Stream stream) {
+        HeavyHitterSketch sketch = sketches.get(stream);
+        List<HotItem> items = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : sketch.top(topK)) {
+            items.add(new HotItem(entry.getKey(), entry.getValue()));
+        }
+        return new HotList(sketch.windowMillis() / 1000, sketch.total(), sketch.maxOverestimate(), items);
+    }
+
+    public static class HotList {
+        private final long windowSeconds;
+        private final long events;
+        private final long maxOverestimate;
+        private final List<HotItem> top;
+
+        public HotList(long windowSeconds, long events, long maxOverestimate, List<HotItem> top) {
+            this.windowSeconds = windowSeconds;
+            this.events = events;
+            this.maxOverestimate = maxOverestimate;
+            this.top = top;
+        }
+
+        public long getWindowSeconds() { return windowSeconds; }
+        public long getEvents() { return events; }
+        /** Counts are upper bounds that exceed the true count by at most this, with high probability. */
+        public long getMaxOverestimate() { return maxOverestimate; }
+        public List<HotItem> getTop() { return top; }
+    }
+
+    public static class HotItem {
+        private final String key;
+        private final long count;
+
+        public HotItem(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+    }
+}
@@ -0,0 +1,33 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Writes each batch of audit events to the {@code audit_events} table in one JDBC batch. */
+class JdbcAuditEventWriter implements AuditEventWriter {
+
+    private static final String INSERT = "INSERT INTO audit_events (occurred_at, type, username, document_id, detail) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    JdbcAuditEventWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void write(List<AuditEvent> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (AuditEvent event : batch) {
+            rows.add(new Object[] {Timestamp.valueOf(event.getOccurredAt()), event.getType().name(),
+                    event.getUsername(), event.getDocumentId(), event.getDetail()});
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    @Override
+    public void close() {
+    }
+}
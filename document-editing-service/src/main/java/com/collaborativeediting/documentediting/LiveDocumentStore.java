@@ -0,0 +1,291 @@
+package com.collaborativeediting.documentediting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Holds the content of documents being edited in memory. Operations are written ahead to the
+ * {@link OperationWal} and applied here; dirty documents are persisted by a periodic checkpoint,
+ * after which the WAL segments covering them are deleted. On startup the WAL is replayed on top
+ * of the last persisted state. Instances sharing a database may take over each other's documents;
+ * a checkpoint only writes over the revision it loaded, and a document another instance has
+ * persisted since is dropped from memory and reloaded on next use.
+ */
+@Component
+public class LiveDocumentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveDocumentStore.class);
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private OperationWal operationWal;
+
+    @Autowired
+    private DocumentOperationLog operationLog;
+
+    @Value("${documents.live.idle-eviction-ms:60000}")
+    private long idleEvictionMs;
+
+    private final ConcurrentMap<Long, LiveDocument> documents = new ConcurrentHashMap<>();
+
+    // Appliers share the read lock; a checkpoint takes the write lock to cut a consistent snapshot
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void recover() {
+        operationWal.replay(this::replay);
+        checkpoint();
+    }
+
+    public EditOperation apply(EditOperation operation) {
+        long sequence;
+        checkpointLock.readLock().lock();
+        try {
+            sequence = applyLocked(operation, null, null);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        operationWal.awaitDurable(sequence);
+        return operation;
+    }
+
+    public EditOperation replaceContent(Long documentId, String content, String username) {
+        return replaceContent(documentId, content, username, null);
+    }
+
+    /**
+     * Replaces the whole content, but only if the document is still at {@code expectedRevision}
+     * (when given); otherwise throws {@link RevisionConflictException} with the current state.
+     */
+    public EditOperation replaceContent(Long documentId, String content, String username, Long expectedRevision) {
+        EditOperation operation = new EditOperation(documentId, username, 0, 0, content);
+        long sequence;
+        checkpointLock.readLock().lock();
+        try {
+            sequence = applyLocked(operation, content, expectedRevision);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        operationWal.awaitDurable(sequence);
+        return operation;
+    }
+
+    /**
+     * Returns the stored document with any edits that have not been checkpointed yet. The stored
+     * entity itself is left untouched.
+     */
+    public Document view(Document stored) {
+        LiveDocument live = documents.get(stored.getId());
+        if (live == null) {
+            return stored;
+        }
+        synchronized (live) {
+            if (stored.getOperationRevision() > live.persistedRevision) {
+                discardStale(live, stored.getOperationRevision());
+                return stored;
+            }
+            if (live.revision <= stored.getOperationRevision()) {
+                return stored;
+            }
+            Document view = new Document(stored.getTitle(), live.content, stored.getOwner());
+            view.setId(stored.getId());
+            view.setCreatedAt(stored.getCreatedAt());
+            view.setUpdatedAt(live.updatedAt);
+            view.setOperationRevision(live.revision);
+            view.setVersion(stored.getVersion());
+            return view;
+        }
+    }
+
+    public void remove(Long documentId) {
+        LiveDocument live = documents.remove(documentId);
+        if (live != null) {
+            synchronized (live) {
+                live.evicted = true;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${documents.live.checkpoint-interval-ms:5000}", initialDelayString = "${documents.live.checkpoint-interval-ms:5000}")
+    public void checkpoint() {
+        long firstUncoveredSegment;
+        List<Snapshot> dirty = new ArrayList<>();
+
+        checkpointLock.writeLock().lock();
+        try {
+            firstUncoveredSegment = operationWal.roll();
+            for (LiveDocument live : documents.values()) {
+                synchronized (live) {
+                    if (live.revision > live.persistedRevision) {
+                        dirty.add(new Snapshot(live));
+                    }
+                }
+            }
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+
+        boolean persistedAll = true;
+        for (Snapshot snapshot : dirty) {
+            try {
+                persist(snapshot);
+            } catch (RuntimeException e) {
+                persistedAll = false;
+                log.warn("Checkpoint of document {} failed, keeping its WAL segments", snapshot.live.id, e);
+            }
+        }
+        if (persistedAll) {
+            operationWal.truncateBefore(firstUncoveredSegment);
+        }
+        evictIdle();
+    }
+
+    private long applyLocked(EditOperation operation, String replacement, Long expectedRevision) {
+        while (true) {
+            LiveDocument live = documents.computeIfAbsent(operation.getDocumentId(), this::load);
+            synchronized (live) {
+                if (live.evicted) {
+                    continue;
+                }
+                if (expectedRevision != null && expectedRevision != live.revision) {
+                    throw new RevisionConflictException(live.id, live.revision, live.content);
+                }
+                if (replacement != null) {
+                    operation.setDeleteCount(live.content.length());
+                }
+                operation.setRevision(live.revision + 1);
+                long sequence = operationWal.append(operation);
+                live.apply(operation);
+                operationLog.append(operation);
+                return sequence;
+            }
+        }
+    }
+
+    private void replay(EditOperation operation) {
+        LiveDocument live;
+        try {
+            live = documents.computeIfAbsent(operation.getDocumentId(), this::load);
+        } catch (RuntimeException e) {
+            // Document was deleted after the operation was logged
+            return;
+        }
+        synchronized (live) {
+            if (operation.getRevision() <= live.revision) {
+                return;
+            }
+            if (operation.getRevision() != live.revision + 1) {
+                log.warn("Gap in WAL for document {} at revision {}, skipping", operation.getDocumentId(), operation.getRevision());
+                return;
+            }
+            live.apply(operation);
+            operationLog.append(operation);
+        }
+    }
+
+    private LiveDocument load(Long documentId) {
+        Document document = documentRepository.findById(documentId).orElseThrow(() -> new RuntimeException("Document not found"));
+        return new LiveDocument(document);
+    }
+
+    // Under the document's lock, so a view never sees the database ahead of persistedRevision
+    private void persist(Snapshot snapshot) {
+        LiveDocument live = snapshot.live;
+        synchronized (live) {
+            if (live.evicted) {
+                return;
+            }
+            int updated = documentRepository.checkpoint(live.id, snapshot.baseRevision, snapshot.content,
+                    snapshot.revision, snapshot.updatedAt);
+            if (updated == 0) {
+                // Deleted, or persisted by the instance that owns the document now
+                Optional<Document> stored = documentRepository.findById(live.id);
+                if (stored.isPresent()) {
+                    discardStale(live, stored.get().getOperationRevision());
+                } else {
+                    live.evicted = true;
+                    documents.remove(live.id, live);
+                }
+                return;
+            }
+            live.persistedRevision = Math.max(live.persistedRevision, snapshot.revision);
+        }
+    }
+
+    // Caller holds the document's lock
+    private void discardStale(LiveDocument live, long storedRevision) {
+        log.warn("Document {} was persisted at revision {} by another instance; dropping {} unpersisted revisions held here",
+                live.id, storedRevision, live.revision - live.persistedRevision);
+        live.evicted = true;
+        documents.remove(live.id, live);
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (LiveDocument live : documents.values()) {
+            synchronized (live) {
+                if (live.revision == live.persistedRevision && now - live.lastTouched > idleEvictionMs) {
+                    live.evicted = true;
+                    documents.remove(live.id, live);
+                }
+            }
+        }
+    }
+
+    private static class LiveDocument {
+        private final Long id;
+        private String content;
+        private long revision;
+        private long persistedRevision;
+        private LocalDateTime updatedAt;
+        private long lastTouched;
+        private boolean evicted;
+
+        LiveDocument(Document document) {
+            this.id = document.getId();
+            this.content = document.getContent() != null ? document.getContent() : "";
+            this.revision = document.getOperationRevision();
+            this.persistedRevision = document.getOperationRevision();
+            this.updatedAt = document.getUpdatedAt();
+            this.lastTouched = System.currentTimeMillis();
+        }
+
+        void apply(EditOperation operation) {
+            content = operation.applyTo(content);
+            revision = operation.getRevision();
+            updatedAt = LocalDateTime.now();
+            lastTouched = System.currentTimeMillis();
+        }
+    }
+
+    private static class Snapshot {
+        private final LiveDocument live;
+        private final long baseRevision;
+        private final String content;
+        private final long revision;
+        private final LocalDateTime updatedAt;
+
+        Snapshot(LiveDocument live) {
+            this.live = live;
+            this.baseRevision = live.persistedRevision;
+            this.content = live.content;
+            this.revision = live.revision;
+            this.updatedAt = live.updatedAt;
+        }
+    }
+}
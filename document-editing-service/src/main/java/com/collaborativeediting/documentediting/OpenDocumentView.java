@@ -0,0 +1,27 @@
+package com.collaborativeediting.documentediting;
+
+import java.util.List;
+
+/**
+ * Everything the editor needs to open a document. Shares are only filled in for the owner and the
+ * latest version is null when there is no history or version-control-service did not answer.
+ */
+public class OpenDocumentView {
+
+    private final Document document;
+    private final SharePermission permission;
+    private final List<DocumentShare> shares;
+    private final VersionServiceClient.LatestVersion latestVersion;
+
+    public OpenDocumentView(Document document, SharePermission permission, List<DocumentShare> shares, VersionServiceClient.LatestVersion latestVersion) {
+        this.document = document;
+        this.permission = permission;
+        this.shares = shares;
+        this.latestVersion = latestVersion;
+    }
+
+    public Document getDocument() { return document; }
+    public SharePermission getPermission() { return permission; }
+    public List<DocumentShare> getShares() { return shares; }
+    public VersionServiceClient.LatestVersion getLatestVersion() { return latestVersion; }
+}
@@ -0,0 +1,333 @@
+package com.collaborativeediting.documentediting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of edit operations, stored as a sequence of memory-mapped segment
+ * files. Each record is {@code [length][crc32][payload]}; a zero length marks the end of a
+ * segment's data. Segments older than the latest checkpoint are deleted by {@link #truncateBefore}.
+ */
+@Component
+public class OperationWal {
+
+    public enum FsyncPolicy {
+        // Force the segment to disk on every append
+        ALWAYS,
+        // Appenders wait for a force that covers their record; concurrent appenders share one force
+        GROUP,
+        // Force periodically in the background without making appenders wait
+        ASYNC
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(OperationWal.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    @Value("${documents.wal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${documents.wal.directory:${java.io.tmpdir}/document-editing-wal-${server.port:8082}}")
+    private String directory;
+
+    @Value("${documents.wal.segment-size:16777216}")
+    private int segmentSize;
+
+    @Value("${documents.wal.fsync-policy:GROUP}")
+    private FsyncPolicy fsyncPolicy;
+
+    @Value("${documents.wal.async-flush-interval-ms:100}")
+    private long asyncFlushIntervalMs;
+
+    private Path walDirectory;
+    private long activeSegment;
+    private MappedByteBuffer activeBuffer;
+    private long appendedSequence;
+    private long activeSegmentFirstSequence;
+
+    private final Object flushMonitor = new Object();
+    private volatile long durableSequence;
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            log.warn("Operation WAL is disabled: live edits are only durable once checkpointed");
+            return;
+        }
+        walDirectory = Paths.get(directory);
+        Files.createDirectories(walDirectory);
+
+        List<Long> existing = listSegments();
+        // Never append to a segment that may end in a torn record; recovery starts a fresh one
+        activeSegment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+
+        if (fsyncPolicy == FsyncPolicy.ASYNC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "operation-wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, asyncFlushIntervalMs, asyncFlushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        if (enabled) {
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the operation to the active segment and returns its sequence number. The record is
+     * not necessarily durable until {@link #awaitDurable} returns.
+     */
+    public long append(EditOperation operation) {
+        if (!enabled) {
+            return 0;
+        }
+        byte[] payload = encode(operation);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        synchronized (this) {
+            int recordSize = RECORD_HEADER_BYTES + payload.length;
+            // Keep room for the zero length that terminates the segment
+            if (activeBuffer == null || activeBuffer.remaining() < recordSize + 4) {
+                openSegment(activeSegment + (activeBuffer == null ? 0 : 1), recordSize + 4);
+            }
+            activeBuffer.putInt(payload.length);
+            activeBuffer.putInt((int) crc.getValue());
+            activeBuffer.put(payload);
+            long sequence = ++appendedSequence;
+
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                activeBuffer.force();
+                durableSequence = sequence;
+            }
+            return sequence;
+        }
+    }
+
+    public void awaitDurable(long sequence) {
+        if (!enabled || fsyncPolicy != FsyncPolicy.GROUP) {
+            return;
+        }
+        // Whoever gets the monitor first forces the segment for everyone appended so far
+        while (durableSequence < sequence) {
+            flush();
+        }
+    }
+
+    /**
+     * Closes the active segment so that a checkpoint can later delete everything before it.
+     * Returns the number of the first segment that is not covered by the checkpoint.
+     */
+    public synchronized long roll() {
+        if (!enabled) {
+            return 0;
+        }
+        if (activeBuffer != null && appendedSequence > activeSegmentFirstSequence) {
+            activeBuffer.force();
+            activeBuffer = null;
+            activeSegment++;
+        }
+        return activeSegment;
+    }
+
+    public void truncateBefore(long segment) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (Long existing : listSegments()) {
+                if (existing < segment) {
+                    // Mapped buffers are released by GC; on Linux the file can be unlinked while mapped
+                    Files.deleteIfExists(segmentPath(existing));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to truncate operation WAL before segment {}", segment, e);
+        }
+    }
+
+    /**
+     * Feeds every intact record, oldest first, to {@code consumer}. Reading a segment stops at the
+     * first zero length or checksum mismatch, which is where a crash may have torn the write.
+     */
+    public void replay(Consumer<EditOperation> consumer) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (Long segment : listSegments()) {
+                if (segment >= activeSegment) {
+                    continue;
+                }
+                replaySegment(segment, consumer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to replay operation WAL", e);
+        }
+    }
+
+    private void replaySegment(long segment, Consumer<EditOperation> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    return;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Checksum mismatch in WAL segment {}, ignoring the rest of it", segment);
+                    return;
+                }
+                consumer.accept(decode(payload));
+            }
+        }
+    }
+
+    private void flush() {
+        synchronized (flushMonitor) {
+            long target;
+            MappedByteBuffer buffer;
+            synchronized (this) {
+                target = appendedSequence;
+                buffer = activeBuffer;
+            }
+            if (target <= durableSequence) {
+                return;
+            }
+            // Records in earlier segments were forced when those segments were rolled
+            if (buffer != null) {
+                buffer.force();
+            }
+            durableSequence = target;
+        }
+    }
+
+    private void openSegment(long segment, int minimumSize) {
+        if (activeBuffer != null) {
+            activeBuffer.force();
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            activeBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, minimumSize));
+            ((Buffer) activeBuffer).position(0);
+            activeSegment = segment;
+            activeSegmentFirstSequence = appendedSequence;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open WAL segment " + segment, e);
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(walDirectory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return walDirectory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] encode(EditOperation operation) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (operation.getText() != null ? operation.getText().length() * 3 : 0));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(operation.getDocumentId());
+            out.writeLong(operation.getRevision());
+            out.writeInt(operation.getPosition());
+            out.writeInt(operation.getDeleteCount());
+            writeString(out, operation.getUsername());
+            writeString(out, operation.getText());
+            writeString(out, operation.getClientOpId());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode operation", e);
+        }
+    }
+
+    private static EditOperation decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        EditOperation operation = new EditOperation();
+        operation.setDocumentId(in.getLong());
+        operation.setRevision(in.getLong());
+        operation.setPosition(in.getInt());
+        operation.setDeleteCount(in.getInt());
+        operation.setUsername(readString(in));
+        operation.setText(readString(in));
+        operation.setClientOpId(readString(in));
+        return operation;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,16 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The user lacks the permission an action on a document needs. Thrown by the service so callers
+ * can audit refusals without looking at messages; answered with 403 like denied reads.
+ */
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class PermissionDeniedException extends RuntimeException {
+
+    public PermissionDeniedException(String message) {
+        super(message);
+    }
+}
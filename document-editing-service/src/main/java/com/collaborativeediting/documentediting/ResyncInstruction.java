@@ -0,0 +1,23 @@
+package com.collaborativeediting.documentediting;
+
+/**
+ * Sent to a subscriber in place of the operations it fell behind on. The client should discard
+ * its pending view and fetch the document state starting at {@code fromRevision}.
+ */
+public class ResyncInstruction {
+
+    private final String type = "RESYNC";
+    private final Long documentId;
+    private final long fromRevision;
+
+    public ResyncInstruction(Long documentId, long fromRevision) {
+        this.documentId = documentId;
+        this.fromRevision = fromRevision;
+    }
+
+    public String getType() { return type; }
+
+    public Long getDocumentId() { return documentId; }
+
+    public long getFromRevision() { return fromRevision; }
+}
@@ -0,0 +1,23 @@
+package com.collaborativeediting.documentediting;
+
+/**
+ * A conditional update named a revision that is no longer current. Carries the current state so
+ * the caller can answer with what changed instead of making the client reload.
+ */
+public class RevisionConflictException extends RuntimeException {
+
+    private final Long id;
+    private final long currentRevision;
+    private final String currentContent;
+
+    public RevisionConflictException(Long id, long currentRevision, String currentContent) {
+        super("Revision conflict: current revision is " + currentRevision);
+        this.id = id;
+        this.currentRevision = currentRevision;
+        this.currentContent = currentContent;
+    }
+
+    public Long getId() { return id; }
+    public long getCurrentRevision() { return currentRevision; }
+    public String getCurrentContent() { return currentContent; }
+}
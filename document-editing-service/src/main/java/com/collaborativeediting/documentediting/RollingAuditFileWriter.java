@@ -0,0 +1,120 @@
+package com.collaborativeediting.documentediting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes audit events as JSON lines to {@code audit-<date>-<n>.jsonl}. A new file is started each
+ * day and whenever the current one exceeds the size limit; only the newest files are kept.
+ */
+class RollingAuditFileWriter implements AuditEventWriter {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Path directory;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final ObjectMapper objectMapper;
+
+    private Writer writer;
+    private LocalDate day;
+    private int index;
+    private long size;
+
+    RollingAuditFileWriter(Path directory, long maxFileSize, int maxFiles, ObjectMapper objectMapper) throws IOException {
+        this.directory = directory;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        this.objectMapper = objectMapper;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void write(List<AuditEvent> batch) throws IOException {
+        for (AuditEvent event : batch) {
+            byte[] line = objectMapper.writeValueAsBytes(event);
+            if (writer == null || !LocalDate.now().equals(day) || size + line.length + 1 > maxFileSize) {
+                roll();
+            }
+            writer.write(new String(line, StandardCharsets.UTF_8));
+            writer.write('\n');
+            size += line.length + 1;
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    Path currentFile() {
+        return directory.resolve(fileName(day, index));
+    }
+
+    private void roll() throws IOException {
+        close();
+        LocalDate today = LocalDate.now();
+        index = today.equals(day) ? index + 1 : 0;
+        day = today;
+        // Never append to a file from an earlier run, which may end in a torn line
+        while (Files.exists(currentFile())) {
+            index++;
+        }
+        writer = new BufferedWriter(Files.newBufferedWriter(currentFile(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        size = 0;
+        deleteOldest();
+    }
+
+    private void deleteOldest() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "audit-*.jsonl")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        if (files.size() <= maxFiles) {
+            return;
+        }
+        files.sort(Comparator.comparing(RollingAuditFileWriter::day).thenComparingInt(RollingAuditFileWriter::index));
+        for (Path file : files.subList(0, files.size() - maxFiles)) {
+            if (!file.equals(currentFile())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static String day(Path file) {
+        return file.getFileName().toString().split("-")[1];
+    }
+
+    private static int index(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1, name.length() - ".jsonl".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String fileName(LocalDate day, int index) {
+        return "audit-" + day.format(DAY) + "-" + index + ".jsonl";
+    }
+}
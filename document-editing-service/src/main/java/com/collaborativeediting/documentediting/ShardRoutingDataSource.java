@@ -0,0 +1,15 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections to the shard pinned on the current thread, or to shard 0 (which also
+ * holds templates) when none is.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return DocumentShards.currentShard();
+    }
+}
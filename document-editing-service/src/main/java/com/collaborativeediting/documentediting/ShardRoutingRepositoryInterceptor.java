@@ -0,0 +1,241 @@
+package com.collaborativeediting.documentediting;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sits in front of the document and share repositories and picks the shard for each call from
+ * its arguments: a document or share id, a document or share entity, or an owner for the
+ * owner-keyed queries. Calls that cannot be narrowed to one shard, such as "shared with user",
+ * are sent to every shard and the results merged: rows in the caller's {@link Sort} (most recently
+ * updated document first without one), pages cut from the merged rows, counts added up and
+ * optionals and booleans combined. Query methods whose results cannot be merged are rejected when
+ * the repository is created. A shard pinned by {@link DocumentShards#onShard} (e.g. for a
+ * transaction) always wins.
+ */
+class ShardRoutingRepositoryInterceptor implements MethodInterceptor {
+
+    private static final int ALL_SHARDS = -1;
+
+    private static final Comparator<Object> MOST_RECENTLY_UPDATED = Comparator.comparing(
+            ShardRoutingRepositoryInterceptor::updatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()));
+
+    private final DocumentShards shards;
+
+    ShardRoutingRepositoryInterceptor(DocumentShards shards, Class<?> repositoryInterface) {
+        this.shards = shards;
+        // The inherited JpaRepository methods are covered by merge; the query methods are checked here
+        for (Method method : repositoryInterface.getDeclaredMethods()) {
+            if (mayScatter(method) && !canMerge(method.getReturnType())) {
+                throw new IllegalStateException(repositoryInterface.getSimpleName() + "." + method.getName()
+                        + " can run on every shard but its " + method.getReturnType().getSimpleName() + " result cannot be merged");
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (DocumentShards.currentShard() != null || invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+
+        int shard = route(invocation);
+        if (shard != ALL_SHARDS) {
+            return shards.onShard(shard, () -> proceed(invocation));
+        }
+
+        Object[] arguments = invocation.getArguments();
+        Sort sort = argument(arguments, Sort.class);
+        Pageable pageable = argument(arguments, Pageable.class);
+        if (pageable != null && pageable.isPaged()) {
+            // Every shard returns its rows up to the end of the page, which is then cut from the merged rows
+            arguments = arguments.clone();
+            arguments[indexOf(arguments, pageable)] = PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(), pageable.getSort());
+        }
+        if (pageable != null) {
+            sort = pageable.getSort();
+        }
+
+        ProxyMethodInvocation template = (ProxyMethodInvocation) invocation;
+        Object[] shardArguments = arguments;
+        List<Object> perShard = shards.scatter(target -> proceed(template.invocableClone(shardArguments)));
+        return merge(invocation.getMethod().getReturnType(), perShard, sort, pageable);
+    }
+
+    private int route(MethodInvocation invocation) {
+        Object[] arguments = invocation.getArguments();
+        Object first = arguments.length > 0 ? arguments[0] : null;
+        if (first instanceof Iterable) {
+            // saveAll / deleteAllInBatch: callers only batch rows of one document
+            Iterator<?> elements = ((Iterable<?>) first).iterator();
+            first = elements.hasNext() ? elements.next() : null;
+            if (first == null) {
+                return 0;
+            }
+        }
+
+        if (first instanceof Long) {
+            return shards.shardOf((Long) first);
+        }
+        if (first instanceof DocumentShare) {
+            Document document = ((DocumentShare) first).getDocument();
+            first = document != null ? document : first;
+        }
+        if (first instanceof Document) {
+            Document document = (Document) first;
+            return document.getId() != null ? shards.shardOf(document.getId()) : shards.shardForOwner(document.getOwner());
+        }
+        if (first instanceof String && invocation.getMethod().getName().contains("ByOwner")) {
+            return shards.shardForOwner((String) first);
+        }
+        return ALL_SHARDS;
+    }
+
+    // Whether route can return ALL_SHARDS for some arguments of this method
+    private static boolean mayScatter(Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        if (parameters.length == 0) {
+            return true;
+        }
+        Class<?> first = parameters[0];
+        if (first == String.class) {
+            return !method.getName().contains("ByOwner");
+        }
+        return !(first == Long.class || first == long.class || first == Object.class
+                || Document.class.isAssignableFrom(first) || DocumentShare.class.isAssignableFrom(first)
+                || Iterable.class.isAssignableFrom(first));
+    }
+
+    private static Object proceed(MethodInvocation invocation) {
+        try {
+            return invocation.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean canMerge(Class<?> returnType) {
+        return returnType == Page.class || returnType == Optional.class
+                || (returnType != Object.class && returnType.isAssignableFrom(ArrayList.class))
+                || returnType == long.class || returnType == Long.class || returnType == int.class || returnType == Integer.class
+                || returnType == boolean.class || returnType == Boolean.class || returnType == void.class;
+    }
+
+    private static Object merge(Class<?> returnType, List<Object> perShard, Sort sort, Pageable pageable) {
+        if (returnType == Page.class) {
+            List<Object> rows = new ArrayList<>();
+            long total = 0;
+            for (Object page : perShard) {
+                rows.addAll(((Page<?>) page).getContent());
+                total += ((Page<?>) page).getTotalElements();
+            }
+            rows.sort(order(sort));
+            if (pageable.isPaged()) {
+                int from = (int) Math.min(rows.size(), pageable.getOffset());
+                rows = rows.subList(from, Math.min(rows.size(), from + pageable.getPageSize()));
+            }
+            return new PageImpl<>(rows, pageable, total);
+        }
+        if (returnType != Object.class && returnType.isAssignableFrom(ArrayList.class)) {
+            List<Object> merged = new ArrayList<>();
+            for (Object rows : perShard) {
+                for (Object row : (Iterable<?>) rows) {
+                    merged.add(row);
+                }
+            }
+            merged.sort(order(sort));
+            return merged;
+        }
+        if (returnType == Optional.class) {
+            for (Object row : perShard) {
+                if (((Optional<?>) row).isPresent()) {
+                    return row;
+                }
+            }
+            return Optional.empty();
+        }
+        if (returnType == long.class || returnType == Long.class || returnType == int.class || returnType == Integer.class) {
+            long total = 0;
+            for (Object count : perShard) {
+                total += ((Number) count).longValue();
+            }
+            return returnType == int.class || returnType == Integer.class ? (Object) Math.toIntExact(total) : (Object) total;
+        }
+        if (returnType == boolean.class || returnType == Boolean.class) {
+            for (Object found : perShard) {
+                if ((Boolean) found) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (returnType == void.class) {
+            return null;
+        }
+        throw new UnsupportedOperationException("Cannot merge " + returnType.getSimpleName() + " results across shards");
+    }
+
+    // The caller's sort applied to the merged rows, or most recently updated first without one
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Object> order(Sort sort) {
+        if (sort == null || sort.isUnsorted()) {
+            return MOST_RECENTLY_UPDATED;
+        }
+        Comparator<Object> order = (a, b) -> 0;
+        for (Sort.Order property : sort) {
+            Comparator<Comparable> values = property.isIgnoreCase()
+                    ? (Comparator) Comparator.comparing(value -> value.toString().toLowerCase())
+                    : Comparator.<Comparable>naturalOrder();
+            if (property.isDescending()) {
+                values = values.reversed();
+            }
+            values = property.getNullHandling() == Sort.NullHandling.NULLS_FIRST
+                    ? Comparator.nullsFirst(values)
+                    : Comparator.nullsLast(values);
+            order = order.thenComparing(row -> (Comparable) new BeanWrapperImpl(row).getPropertyValue(property.getProperty()), values);
+        }
+        return order;
+    }
+
+    private static <T> T argument(Object[] arguments, Class<T> type) {
+        for (Object argument : arguments) {
+            if (type.isInstance(argument)) {
+                return type.cast(argument);
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(Object[] arguments, Object argument) {
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] == argument) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static LocalDateTime updatedAt(Object row) {
+        if (row instanceof DocumentShare) {
+            row = ((DocumentShare) row).getDocument();
+        }
+        return row instanceof Document ? ((Document) row).getUpdatedAt() : null;
+    }
+}
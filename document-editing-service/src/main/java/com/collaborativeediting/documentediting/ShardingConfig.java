@@ -0,0 +1,112 @@
+package com.collaborativeediting.documentediting;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sharded persistence, enabled with {@code documents.sharding.enabled}. Each of the
+ * {@code documents.sharding.shards} databases gets the Flyway schema and its own id range; the
+ * application sees a single routing data source, and the document and share repositories are
+ * wrapped so that every call reaches the shard that owns its rows.
+ */
+@Configuration
+@ConditionalOnProperty(name = "documents.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Value("${documents.sharding.url-pattern:jdbc:h2:file:./data/docdb-shard-%d;AUTO_SERVER=TRUE}")
+    private String urlPattern;
+
+    @Value("${spring.datasource.username:sa}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DocumentShards shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(String.format(urlPattern, shard))
+                    .username(username)
+                    .password(password)
+                    .build();
+            dataSource.setPoolName("docdb-shard-" + shard);
+
+            Flyway.configure().dataSource(dataSource).load().migrate();
+            assignIdRange(new JdbcTemplate(dataSource), shard);
+            targets.put(shard, dataSource);
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    @Bean
+    public static BeanPostProcessor shardRoutingRepositories(ObjectProvider<DocumentShards> shards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, repository) -> {
+                                Class<?> type = repository.getRepositoryInterface();
+                                if (type == DocumentRepository.class || type == DocumentShareRepository.class) {
+                                    // Outermost, so the shard is chosen before the repository opens a transaction
+                                    proxy.addAdvice(0, new ShardRoutingRepositoryInterceptor(shards.getObject(), type));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Moves a fresh shard's identity column and share sequence to the start of its id range. A
+     * shard that already holds rows from another range was not created for this layout.
+     */
+    private void assignIdRange(JdbcTemplate jdbc, int shard) {
+        Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM documents", Long.class);
+        if (maxId != null && maxId / DocumentShards.ID_SPAN != shard) {
+            throw new IllegalStateException("Shard " + shard + " holds document " + maxId + " from another shard's id range");
+        }
+
+        if (shard == 0) {
+            return;
+        }
+        long firstId = DocumentShards.firstId(shard);
+        Long nextDocumentId = jdbc.queryForObject("SELECT IDENTITY_BASE FROM INFORMATION_SCHEMA.COLUMNS"
+                + " WHERE TABLE_NAME = 'DOCUMENTS' AND COLUMN_NAME = 'ID'", Long.class);
+        if (nextDocumentId < firstId) {
+            jdbc.execute("ALTER TABLE documents ALTER COLUMN id RESTART WITH " + firstId);
+        }
+
+        // Hibernate's pooled optimizer treats each sequence value as the top of a block of 50
+        long firstShareBlock = firstId + 49;
+        Long nextShareBlock = jdbc.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES"
+                + " WHERE SEQUENCE_NAME = 'DOCUMENT_SHARE_SEQ'", Long.class);
+        if (nextShareBlock < firstShareBlock) {
+            jdbc.execute("ALTER SEQUENCE document_share_seq RESTART WITH " + firstShareBlock);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.collaborativeediting.documentediting;
+
+public class ShareRecipient {
+
+    private String sharedWithUser;
+    private SharePermission permission;
+
+    public ShareRecipient() {}
+
+    public ShareRecipient(String sharedWithUser, SharePermission permission) {
+        this.sharedWithUser = sharedWithUser;
+        this.permission = permission;
+    }
+
+    public String getSharedWithUser() { return sharedWithUser; }
+    public void setSharedWithUser(String sharedWithUser) { this.sharedWithUser = sharedWithUser; }
+
+    public SharePermission getPermission() { return permission; }
+    public void setPermission(SharePermission permission) { this.permission = permission; }
+}
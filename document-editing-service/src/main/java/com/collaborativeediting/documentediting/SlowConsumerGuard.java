@@ -0,0 +1,188 @@
+package com.collaborativeediting.documentediting;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of messages queued for each WebSocket session. Every message entering the
+ * client outbound channel counts against its session until it has been written to the socket.
+ * Once a session has more than {@code max-pending-messages} outstanding, the next document
+ * operation is replaced by a {@link ResyncInstruction} and further operations for that document
+ * are dropped until the session drains.
+ */
+@Component
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    public static final String DOCUMENT_HEADER = "document-id";
+    public static final String REVISION_HEADER = "revision";
+    public static final String TYPE_HEADER = "type";
+
+    @Value("${documents.websocket.outbound.max-pending-messages:128}")
+    private int maxPendingMessages;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, SessionQueue> sessions = new ConcurrentHashMap<>();
+
+    private Counter droppedMessages;
+    private Counter resyncedSessions;
+    private Counter terminatedSessions;
+
+    @PostConstruct
+    public void registerMetrics() {
+        droppedMessages = meterRegistry.counter("websocket.outbound.dropped");
+        resyncedSessions = meterRegistry.counter("websocket.sessions.resynced");
+        terminatedSessions = meterRegistry.counter("websocket.sessions.terminated");
+        Gauge.builder("websocket.outbound.queue.depth", this, SlowConsumerGuard::getTotalQueueDepth)
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.queue.depth.max", this, SlowConsumerGuard::getMaxQueueDepth)
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.active", sessions, ConcurrentMap::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionQueue queue = sessionId != null ? sessions.get(sessionId) : null;
+        if (queue == null) {
+            return message;
+        }
+
+        int pending = queue.pending.incrementAndGet();
+        String revision = NativeMessageHeaderAccessor.getFirstNativeHeader(REVISION_HEADER, message.getHeaders());
+        String documentId = NativeMessageHeaderAccessor.getFirstNativeHeader(DOCUMENT_HEADER, message.getHeaders());
+        if (revision == null || documentId == null) {
+            // Only document operations can be collapsed; protocol frames always go through
+            return message;
+        }
+
+        Long docId = Long.valueOf(documentId);
+        if (queue.laggingDocuments.contains(docId)) {
+            queue.release();
+            droppedMessages.increment();
+            return null;
+        }
+
+        if (pending > maxPendingMessages) {
+            queue.laggingDocuments.add(docId);
+            resyncedSessions.increment();
+            return resyncMessage(message, docId, Long.parseLong(revision));
+        }
+
+        return message;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionQueue queue = new SessionQueue();
+                sessions.put(session.getId(), queue);
+                super.afterConnectionEstablished(new CountingSessionDecorator(session, queue));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)) {
+                    // Send time or buffer size limit exceeded
+                    terminatedSessions.increment();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public int getTotalQueueDepth() {
+        int total = 0;
+        for (SessionQueue queue : sessions.values()) {
+            total += queue.pending.get();
+        }
+        return total;
+    }
+
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (SessionQueue queue : sessions.values()) {
+            max = Math.max(max, queue.pending.get());
+        }
+        return max;
+    }
+
+    private Message<?> resyncMessage(Message<?> original, Long documentId, long fromRevision) {
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(new ResyncInstruction(documentId, fromRevision));
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(original);
+            accessor.setNativeHeader(TYPE_HEADER, "RESYNC");
+            return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to build resync instruction", e);
+        }
+    }
+
+    private class SessionQueue {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Set<Long> laggingDocuments = ConcurrentHashMap.newKeySet();
+
+        private void release() {
+            int remaining = pending.decrementAndGet();
+            if (remaining < 0) {
+                pending.compareAndSet(remaining, 0);
+            }
+            if (remaining <= maxPendingMessages / 4 && !laggingDocuments.isEmpty()) {
+                // Drained far enough: resume live delivery, the client fills any gap by revision
+                laggingDocuments.clear();
+            }
+        }
+    }
+
+    private static class CountingSessionDecorator extends WebSocketSessionDecorator {
+        private final SessionQueue queue;
+
+        CountingSessionDecorator(WebSocketSession session, SessionQueue queue) {
+            super(session);
+            this.queue = queue;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            try {
+                super.sendMessage(message);
+            } finally {
+                queue.release();
+            }
+        }
+    }
+}
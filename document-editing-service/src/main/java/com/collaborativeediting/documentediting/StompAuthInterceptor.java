@@ -0,0 +1,100 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Authenticates STOMP sessions: CONNECT must carry a valid {@code Authorization: Bearer} token,
+ * whose subject becomes the session's user. Messages are attributed to that user, never to a
+ * name the client puts in the payload. SUBSCRIBE is only allowed to the topic of a document the
+ * user may read.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    static final String DOCUMENT_TOPIC = "/topic/document/";
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            authenticate(message, accessor);
+        } else if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            authorizeSubscription(message, accessor);
+        }
+        return message;
+    }
+
+    private void authenticate(Message<?> message, StompHeaderAccessor accessor) {
+        String token = accessor.getFirstNativeHeader("Authorization");
+        if (token == null) {
+            throw new MessagingException(message, "Authorization header is required");
+        }
+        try {
+            accessor.setUser(new UserPrincipal(DocumentController.parseSubject(token)));
+        } catch (RuntimeException e) {
+            throw new MessagingException(message, "Invalid token");
+        }
+    }
+
+    private void authorizeSubscription(Message<?> message, StompHeaderAccessor accessor) {
+        Principal user = accessor.getUser();
+        String destination = accessor.getDestination();
+        if (user == null) {
+            throw new MessagingException(message, "Not authenticated");
+        }
+        if (destination == null || !destination.startsWith(DOCUMENT_TOPIC)) {
+            throw new MessagingException(message, "Cannot subscribe to " + destination);
+        }
+
+        Long documentId;
+        try {
+            documentId = Long.valueOf(destination.substring(DOCUMENT_TOPIC.length()));
+        } catch (NumberFormatException e) {
+            throw new MessagingException(message, "Cannot subscribe to " + destination);
+        }
+        boolean allowed;
+        try {
+            allowed = documentService.hasPermission(documentId, user.getName(), SharePermission.READ);
+        } catch (RuntimeException e) {
+            // Unknown documents are refused the same way as documents the user cannot read
+            allowed = false;
+        }
+        if (!allowed) {
+            throw new MessagingException(message, "Access denied to document " + documentId);
+        }
+    }
+
+    static class UserPrincipal implements Principal {
+        private final String name;
+
+        UserPrincipal(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.collaborativeediting.documentediting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Hands every STOMP SEND handled by a {@code @MessageMapping} method to {@link TrafficCapture},
+ * timed from the start of handling until the broadcast has been queued.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.capture.enabled", havingValue = "true")
+public class StompCaptureInterceptor implements ExecutorChannelInterceptor {
+
+    private static final ThreadLocal<Long> STARTED = new ThreadLocal<>();
+
+    @Autowired
+    private TrafficCapture capture;
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (handler instanceof SimpAnnotationMethodMessageHandler
+                && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            STARTED.set(System.nanoTime());
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Long start = STARTED.get();
+        if (start == null || !(handler instanceof SimpAnnotationMethodMessageHandler)) {
+            return;
+        }
+        STARTED.remove();
+
+        long durationMicros = (System.nanoTime() - start) / 1000;
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        Object payload = message.getPayload();
+        byte[] body = payload instanceof byte[] ? (byte[]) payload : null;
+        int status = ex == null ? 200 : 500;
+        Principal principal = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        capture.record(() -> {
+            JsonNode anonymized = capture.anonymizedTree(body);
+            String user = principal != null ? capture.pseudonym(principal.getName()) : null;
+            return new CapturedExchange(capture.offsetMicros(start), CapturedExchange.STOMP, "SEND", destination,
+                    destination, user, status, durationMicros, null, anonymized != null ? anonymized.toString() : null);
+        });
+    }
+}
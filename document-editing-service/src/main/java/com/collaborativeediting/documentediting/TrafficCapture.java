@@ -0,0 +1,295 @@
+package com.collaborativeediting.documentediting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opt-in recording of the REST and STOMP traffic this instance serves, enabled with
+ * {@code documents.capture.enabled}, for replay against a local stack. Requests are handed over
+ * as they complete and anonymized on a background thread: users become keyed pseudonyms, free
+ * text is reduced to its length (rounded up to {@code documents.capture.length-bucket}), and
+ * tokens are never written. If the writer falls behind, requests are dropped and counted rather
+ * than slowing down the requests being captured.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.capture.enabled", havingValue = "true")
+public class TrafficCapture {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficCapture.class);
+
+    private static final Set<String> USER_FIELDS = new HashSet<>(Arrays.asList("username", "sharedWithUser", "sharedWithUsers"));
+    private static final Set<String> KEPT_FIELDS = new HashSet<>(Arrays.asList("permission", "category"));
+    private static final Set<String> DROPPED_FIELDS = new HashSet<>(Arrays.asList("clientOpId"));
+
+    @Value("${documents.capture.directory:${java.io.tmpdir}/collaborative-editing-captures}")
+    private String directory;
+
+    @Value("${documents.capture.pseudonym-key:}")
+    private String pseudonymKey;
+
+    @Value("${documents.capture.length-bucket:1}")
+    private int lengthBucket;
+
+    @Value("${documents.capture.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${documents.capture.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${server.port:8082}")
+    private String port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final long startNanos = System.nanoTime();
+    private BlockingQueue<Supplier<CapturedExchange>> queue;
+    private ThreadLocal<Mac> hmac;
+    private Counter captured;
+    private Counter dropped;
+    private Path file;
+    private Writer writer;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void open() throws IOException {
+        byte[] key = pseudonymKey.isEmpty() ? randomKey() : pseudonymKey.getBytes(StandardCharsets.UTF_8);
+        hmac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(new SecretKeySpec(key, "HmacSHA256"));
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+        captured = meterRegistry.counter("documents.capture.requests", "outcome", "captured");
+        dropped = meterRegistry.counter("documents.capture.requests", "outcome", "dropped");
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Files.createDirectories(Paths.get(directory));
+        String started = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        file = Paths.get(directory, "capture-" + port + "-" + started + ".tsv.gz");
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), 65536, true), StandardCharsets.UTF_8));
+        writer.write(CapturedExchange.HEADER);
+        writer.write('\n');
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "traffic-capture");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Capturing traffic to {}", file);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Microseconds since capture started, for a request that started at {@code nanos}. */
+    long offsetMicros(long nanos) {
+        return Math.max(0, (nanos - startNanos) / 1000);
+    }
+
+    /** Queues a request; {@code exchange} is evaluated on the writer thread. */
+    void record(Supplier<CapturedExchange> exchange) {
+        if (!queue.offer(exchange)) {
+            dropped.increment();
+        }
+    }
+
+    String pseudonym(String user) {
+        if (user == null) {
+            return null;
+        }
+        byte[] digest = hmac.get().doFinal(user.getBytes(StandardCharsets.UTF_8));
+        StringBuilder pseudonym = new StringBuilder("user-");
+        for (int i = 0; i < 5; i++) {
+            pseudonym.append(String.format("%02x", digest[i]));
+        }
+        return pseudonym.toString();
+    }
+
+    /** The JSON body with users pseudonymized and free text replaced by its (bucketed) length. */
+    String anonymize(byte[] body) {
+        JsonNode anonymized = anonymizedTree(body);
+        return anonymized != null ? anonymized.toString() : null;
+    }
+
+    JsonNode anonymizedTree(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return anonymize(null, objectMapper.readTree(body));
+        } catch (IOException e) {
+            ObjectNode opaque = objectMapper.createObjectNode();
+            opaque.put(CapturedExchange.LENGTH_MARKER, bucket(body.length));
+            return opaque;
+        }
+    }
+
+    Long createdId(byte[] responseBody) {
+        try {
+            JsonNode id = responseBody.length > 0 ? objectMapper.readTree(responseBody).get("id") : null;
+            return id != null && id.canConvertToLong() ? id.asLong() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Path of {@code pattern} with its variables filled in, user names pseudonymized. */
+    String path(String pattern, Map<String, String> variables, String query) {
+        StringBuilder path = new StringBuilder();
+        Iterator<String> segments = Arrays.asList(pattern.split("/", -1)).iterator();
+        while (segments.hasNext()) {
+            String segment = segments.next();
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String name = segment.substring(1, segment.length() - 1);
+                String value = variables != null ? variables.get(name) : null;
+                segment = USER_FIELDS.contains(name) ? pseudonym(value) : value;
+            }
+            path.append(segment);
+            if (segments.hasNext()) {
+                path.append('/');
+            }
+        }
+        return query != null ? path + "?" + query : path.toString();
+    }
+
+    private JsonNode anonymize(String field, JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            List<String> names = new ArrayList<>();
+            object.fieldNames().forEachRemaining(names::add);
+            for (String name : names) {
+                if (DROPPED_FIELDS.contains(name)) {
+                    object.remove(name);
+                } else {
+                    object.set(name, anonymize(name, object.get(name)));
+                }
+            }
+            return object;
+        }
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, anonymize(field, array.get(i)));
+            }
+            return array;
+        }
+        if (node.isTextual() && !KEPT_FIELDS.contains(field)) {
+            if (USER_FIELDS.contains(field)) {
+                return objectMapper.getNodeFactory().textNode(pseudonym(node.asText()));
+            }
+            ObjectNode length = objectMapper.createObjectNode();
+            length.put(CapturedExchange.LENGTH_MARKER, bucket(node.asText().length()));
+            return length;
+        }
+        return node;
+    }
+
+    private int bucket(int length) {
+        if (lengthBucket <= 1 || length == 0) {
+            return length;
+        }
+        return (length + lengthBucket - 1) / lengthBucket * lengthBucket;
+    }
+
+    private void writeLoop() {
+        long lastFlush = System.currentTimeMillis();
+        try {
+            while (running || !queue.isEmpty()) {
+                Supplier<CapturedExchange> next = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    write(next);
+                }
+                long now = System.currentTimeMillis();
+                if (queue.isEmpty() && now - lastFlush >= flushIntervalMs) {
+                    writer.flush();
+                    lastFlush = now;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Writing traffic capture {} failed, capture stopped", file, e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Closing traffic capture {} failed", file, e);
+            }
+        }
+    }
+
+    private void write(Supplier<CapturedExchange> next) throws IOException {
+        CapturedExchange exchange;
+        try {
+            exchange = next.get();
+        } catch (RuntimeException e) {
+            log.debug("Skipping request that could not be anonymized", e);
+            return;
+        }
+        if (exchange != null) {
+            writer.write(exchange.format());
+            writer.write('\n');
+            captured.increment();
+        }
+    }
+
+    private static byte[] randomKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,79 @@
+package com.collaborativeediting.documentediting;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Hands every {@code /api} request to {@link TrafficCapture} once it completes. Response bodies
+ * are only buffered for POST requests, to record the id of the document or template created.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.capture.enabled", havingValue = "true")
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private TrafficCapture capture;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingRequestWrapper cachingRequest = new ContentCachingRequestWrapper(request);
+        ContentCachingResponseWrapper cachingResponse = "POST".equals(request.getMethod())
+                ? new ContentCachingResponseWrapper(response) : null;
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(cachingRequest, cachingResponse != null ? cachingResponse : response);
+        } finally {
+            long durationMicros = (System.nanoTime() - start) / 1000;
+            byte[] responseBody = cachingResponse != null ? cachingResponse.getContentAsByteArray() : null;
+            if (cachingResponse != null) {
+                cachingResponse.copyBodyToResponse();
+            }
+            record(cachingRequest, response.getStatus(), start, durationMicros, responseBody);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void record(ContentCachingRequestWrapper request, int status, long start, long durationMicros, byte[] responseBody) {
+        String method = request.getMethod();
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String endpoint = pattern != null ? pattern : request.getRequestURI();
+        String query = request.getQueryString();
+        String authorization = request.getHeader("Authorization");
+        byte[] requestBody = request.getContentAsByteArray();
+
+        capture.record(() -> {
+            String user = null;
+            if (authorization != null) {
+                try {
+                    user = capture.pseudonym(DocumentController.parseSubject(authorization));
+                } catch (RuntimeException e) {
+                    user = null;
+                }
+            }
+            return new CapturedExchange(capture.offsetMicros(start), CapturedExchange.HTTP, method, endpoint,
+                    capture.path(endpoint, variables, query), user, status, durationMicros,
+                    responseBody != null && status < 300 ? capture.createdId(responseBody) : null,
+                    capture.anonymize(requestBody));
+        });
+    }
+}
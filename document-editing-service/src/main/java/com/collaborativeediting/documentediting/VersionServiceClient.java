@@ -0,0 +1,67 @@
+package com.collaborativeediting.documentediting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Reads version metadata from version-control-service. Failures are logged and reported as
+ * "no version" so that opening a document never depends on the history service being up.
+ */
+@Component
+public class VersionServiceClient {
+
+    private static final Logger log = LoggerFactory.getLogger(VersionServiceClient.class);
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+
+    public VersionServiceClient(RestTemplateBuilder builder,
+                                @Value("${documents.version-service.url:http://localhost:8083}") String baseUrl,
+                                @Value("${documents.version-service.timeout-ms:1000}") long timeoutMs) {
+        this.restTemplate = builder
+                .setConnectTimeout(Duration.ofMillis(timeoutMs))
+                .setReadTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        this.baseUrl = baseUrl;
+    }
+
+    public Optional<LatestVersion> getLatestVersion(Long documentId) {
+        try {
+            return Optional.ofNullable(restTemplate.getForObject(baseUrl + "/api/versions/latest/{id}", LatestVersion.class, documentId));
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        } catch (RestClientException e) {
+            log.warn("Could not load latest version of document {}: {}", documentId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public static class LatestVersion {
+        private Long versionId;
+        private Long documentId;
+        private String editedBy;
+        private LocalDateTime timestamp;
+        private long versionCount;
+
+        public Long getVersionId() { return versionId; }
+        public void setVersionId(Long versionId) { this.versionId = versionId; }
+        public Long getDocumentId() { return documentId; }
+        public void setDocumentId(Long documentId) { this.documentId = documentId; }
+        public String getEditedBy() { return editedBy; }
+        public void setEditedBy(String editedBy) { this.editedBy = editedBy; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+        public long getVersionCount() { return versionCount; }
+        public void setVersionCount(long versionCount) { this.versionCount = versionCount; }
+    }
+}
@@ -1,23 +1,75 @@
 package com.collaborativeediting.documentediting;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private WebSocketMessageMetrics messageMetrics;
+
+    @Autowired
+    private StompAuthInterceptor stompAuth;
+
+    @Autowired(required = false)
+    private StompCaptureInterceptor stompCapture;
+
+    @Value("${documents.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimit;
+
+    @Value("${documents.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${documents.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
+        // Keep each session's operations in revision order across outbound threads
+        config.setPreservePublishOrder(true);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").withSockJS();
     }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Hard limits: a session exceeding these is closed by the transport
+        registration.setSendTimeLimit(sendTimeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(slowConsumerGuard);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Soft limit: lagging sessions get a resync instruction instead of every operation
+        // Counted after the guard, so dropped operations are not counted as sent
+        registration.interceptors(slowConsumerGuard, messageMetrics.outbound());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authenticate first, so nothing else sees a session without its user
+        registration.interceptors(stompAuth, messageMetrics.inbound());
+        if (stompCapture != null) {
+            registration.interceptors(stompCapture);
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.collaborativeediting.documentediting;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts STOMP messages on the client inbound and outbound channels as
+ * {@code websocket.messages}, tagged by direction and message type.
+ */
+@Component
+public class WebSocketMessageMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public ChannelInterceptor inbound() {
+        return counting("inbound");
+    }
+
+    public ChannelInterceptor outbound() {
+        return counting("outbound");
+    }
+
+    private ChannelInterceptor counting(String direction) {
+        Map<SimpMessageType, Counter> counters = new EnumMap<>(SimpMessageType.class);
+        for (SimpMessageType type : SimpMessageType.values()) {
+            counters.put(type, Counter.builder("websocket.messages")
+                    .tag("direction", direction)
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+                counters.get(type != null ? type : SimpMessageType.OTHER).increment();
+                return message;
+            }
+        };
+    }
+}
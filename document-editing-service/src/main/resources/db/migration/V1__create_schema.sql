@@ -0,0 +1,33 @@
+CREATE TABLE documents (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    content TEXT,
+    owner VARCHAR(255),
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    operation_revision BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE SEQUENCE document_share_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE document_shares (
+    id BIGINT NOT NULL PRIMARY KEY,
+    document_id BIGINT NOT NULL,
+    shared_with_user VARCHAR(255) NOT NULL,
+    permission VARCHAR(255) NOT NULL,
+    shared_by_user VARCHAR(255) NOT NULL,
+    shared_at TIMESTAMP,
+    CONSTRAINT fk_document_shares_document FOREIGN KEY (document_id) REFERENCES documents (id)
+);
+
+CREATE TABLE document_templates (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    description TEXT,
+    content TEXT,
+    category VARCHAR(255) NOT NULL,
+    created_by VARCHAR(255) NOT NULL,
+    is_public BOOLEAN NOT NULL,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
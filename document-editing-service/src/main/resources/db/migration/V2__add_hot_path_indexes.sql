@@ -0,0 +1,12 @@
+-- findByOwner, and the owner filter of findSharedDocumentsByOwnerAndUser
+CREATE INDEX idx_documents_owner ON documents (owner);
+
+-- findByDocumentIdAndSharedWithUser(In) and findByDocumentId; also at most one share per user
+ALTER TABLE document_shares ADD CONSTRAINT uk_document_shares_document_user UNIQUE (document_id, shared_with_user);
+
+-- findBySharedWithUser and findSharedDocumentsByOwnerAndUser
+CREATE INDEX idx_document_shares_user ON document_shares (shared_with_user);
+
+-- findByCreatedBy(AndCategory) and findByCategory
+CREATE INDEX idx_document_templates_creator_category ON document_templates (created_by, category);
+CREATE INDEX idx_document_templates_category ON document_templates (category);
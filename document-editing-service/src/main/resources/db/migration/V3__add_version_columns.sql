@@ -0,0 +1,3 @@
+ALTER TABLE documents ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE document_templates ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
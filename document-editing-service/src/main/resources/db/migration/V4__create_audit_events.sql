@@ -0,0 +1,10 @@
+CREATE TABLE audit_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    occurred_at TIMESTAMP NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    username VARCHAR(255),
+    document_id BIGINT,
+    detail VARCHAR(1000)
+);
+
+CREATE INDEX idx_audit_events_document ON audit_events (document_id, occurred_at);
@@ -0,0 +1,169 @@
+package com.collaborativeediting.documentediting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"documents.wal.enabled=false", "documents.audit.sink=TABLE"})
+@AutoConfigureMockMvc
+@DirtiesContext
+public class AuditLogTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentWebSocketController webSocketController;
+
+    @Test
+    public void testAccessIsAudited() throws Exception {
+        String alice = token("alice");
+        String created = mockMvc.perform(post("/api/documents").header("Authorization", alice)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Audited\",\"content\":\"Some text\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        mockMvc.perform(get("/api/documents/" + id).header("Authorization", alice)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/documents/" + id).header("Authorization", token("mallory"))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/documents/" + id + "/export/txt").header("Authorization", alice)).andExpect(status().isOk());
+        mockMvc.perform(post("/api/documents/" + id + "/share").header("Authorization", alice)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sharedWithUser\":\"bob\",\"permission\":\"READ\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/documents/" + id + "/shares/revoke").header("Authorization", alice)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sharedWithUsers\":[\"bob\"]}"))
+                .andExpect(status().isOk());
+        assertTrue(auditLog.awaitWritten(5000));
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT type, username, detail FROM audit_events WHERE document_id = ? ORDER BY id", id);
+        assertEquals(5, rows.size());
+        assertEquals("READ", rows.get(0).get("TYPE"));
+        assertEquals("PERMISSION_DENIED", rows.get(1).get("TYPE"));
+        assertEquals("mallory", rows.get(1).get("USERNAME"));
+        assertEquals("read", rows.get(1).get("DETAIL"));
+        assertEquals("EXPORT", rows.get(2).get("TYPE"));
+        assertTrue(((String) rows.get(2).get("DETAIL")).startsWith("format=txt"));
+        assertEquals("SHARE", rows.get(3).get("TYPE"));
+        assertEquals("sharedWithUser=bob permission=READ", rows.get(3).get("DETAIL"));
+        assertEquals("REVOKE", rows.get(4).get("TYPE"));
+    }
+
+    @Test
+    public void testRefusedWritesAreAudited() throws Exception {
+        long id = documentService.createDocument("Guarded", "Some text", "alice").getId();
+        String mallory = token("mallory");
+
+        mockMvc.perform(put("/api/documents/" + id).header("Authorization", mallory)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"Defaced\"}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/documents/" + id).header("Authorization", mallory)).andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/documents/" + id + "/share").header("Authorization", mallory)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sharedWithUser\":\"mallory\",\"permission\":\"WRITE\"}"))
+                .andExpect(status().isForbidden());
+        SimpMessageHeaderAccessor session = SimpMessageHeaderAccessor.create();
+        session.setUser(new StompAuthInterceptor.UserPrincipal("mallory"));
+        assertThrows(PermissionDeniedException.class,
+                () -> webSocketController.handleEdit(new EditOperation(id, null, 0, 0, "x"), session));
+        assertTrue(auditLog.awaitWritten(5000));
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT type, username, detail FROM audit_events WHERE document_id = ? ORDER BY id", id);
+        assertEquals(4, rows.size());
+        for (Map<String, Object> row : rows) {
+            assertEquals("PERMISSION_DENIED", row.get("TYPE"));
+            assertEquals("mallory", row.get("USERNAME"));
+        }
+        assertEquals("update", rows.get(0).get("DETAIL"));
+        assertEquals("delete", rows.get(1).get("DETAIL"));
+        assertEquals("share", rows.get(2).get("DETAIL"));
+        assertEquals("edit", rows.get(3).get("DETAIL"));
+    }
+
+    @Test
+    public void testReadsAreShedBeforeOtherEvents() throws Exception {
+        Path directory = Paths.get("target/audit-test");
+        AuditLog log = new AuditLog();
+        ReflectionTestUtils.setField(log, "enabled", true);
+        ReflectionTestUtils.setField(log, "bufferSize", 8);
+        ReflectionTestUtils.setField(log, "batchSize", 512);
+        ReflectionTestUtils.setField(log, "overflowPolicy", AuditLog.OverflowPolicy.SHED_READS);
+        ReflectionTestUtils.setField(log, "readHighWaterMark", 0.5);
+        ReflectionTestUtils.setField(log, "sink", AuditLog.Sink.FILE);
+        ReflectionTestUtils.setField(log, "directory", directory.toString());
+        ReflectionTestUtils.setField(log, "maxFileSize", 1L << 20);
+        ReflectionTestUtils.setField(log, "maxFiles", 2);
+        // Keeps the idle consumer parked, so nothing is drained until stop()
+        ReflectionTestUtils.setField(log, "idleWaitMs", 60_000L);
+        ReflectionTestUtils.setField(log, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(log, "meterRegistry", new SimpleMeterRegistry());
+        log.start();
+
+        int reads = 0;
+        while (log.publish(AuditEvent.Type.READ, "alice", 1L, null)) {
+            reads++;
+        }
+        int shares = 0;
+        while (log.publish(AuditEvent.Type.SHARE, "alice", 1L, "sharedWithUser=bob")) {
+            shares++;
+        }
+        assertEquals(4, reads);
+        assertEquals(4, shares);
+        assertEquals(8, log.depth());
+
+        log.stop();
+        assertEquals(0, log.depth());
+        Path file = (Path) ReflectionTestUtils.invokeMethod(ReflectionTestUtils.getField(log, "writer"), "currentFile");
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(8, lines.size());
+        assertTrue(lines.get(7).contains("\"SHARE\""));
+    }
+
+    private static String token(String user) {
+        return "Bearer " + Jwts.builder()
+                .setSubject(user)
+                .signWith(SignatureAlgorithm.HS256, "mySecretKeyForJwtTokenGenerationWhichIsLongEnough")
+                .compact();
+    }
+}
@@ -4,14 +4,21 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "documents.wal.directory=target/wal-document-service-test")
 public class DocumentServiceTest {
 
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private DocumentOpenService documentOpenService;
+
     @Test
     public void testCreateDocument() {
         Document doc = documentService.createDocument("Test Doc", "Content", "user");
@@ -24,4 +31,90 @@ public class DocumentServiceTest {
         Document doc = documentService.createDocument("Test Doc2", "Content", "user");
         assertTrue(documentService.getDocument(doc.getId()).isPresent());
     }
+
+    @Test
+    public void testCatchUpFromOperationLog() {
+        Document doc = documentService.createDocument("Live Doc", "Hello", "user");
+        documentService.applyOperation(new EditOperation(doc.getId(), "user", 5, 0, " world"));
+        documentService.applyOperation(new EditOperation(doc.getId(), "user", 0, 1, "J"));
+
+        assertEquals("Jello world", documentService.getDocument(doc.getId()).get().getContent());
+
+        List<EditOperation> missed = documentService.getOperationsSince(doc.getId(), 1).get();
+        assertEquals(1, missed.size());
+        assertEquals(2, missed.get(0).getRevision());
+        assertTrue(documentService.getOperationsSince(doc.getId(), 2).get().isEmpty());
+        assertFalse(documentService.getOperationsSince(doc.getId(), 5).isPresent());
+    }
+
+    @Test
+    public void testOpenDocument() {
+        Document doc = documentService.createDocument("Open Doc", "Content", "owner");
+        documentService.shareDocument(doc.getId(), "reader", SharePermission.READ, "owner");
+
+        OpenDocumentView ownerView = documentOpenService.open(doc, documentService.getUserPermission(doc, "owner"), "owner");
+        assertEquals(SharePermission.ADMIN, ownerView.getPermission());
+        assertEquals(1, ownerView.getShares().size());
+        // version-control-service is not running in tests
+        assertNull(ownerView.getLatestVersion());
+
+        OpenDocumentView readerView = documentOpenService.open(doc, documentService.getUserPermission(doc, "reader"), "reader");
+        assertEquals(SharePermission.READ, readerView.getPermission());
+        assertNull(readerView.getShares());
+        assertNull(documentService.getUserPermission(doc, "stranger"));
+    }
+
+    @Test
+    public void testBulkShareAndRevoke() {
+        Document doc = documentService.createDocument("Team Doc", "Content", "lead");
+        documentService.shareDocument(doc.getId(), "existing", SharePermission.READ, "lead");
+
+        List<ShareRecipient> recipients = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            recipients.add(new ShareRecipient("member" + i, SharePermission.WRITE));
+        }
+        recipients.add(new ShareRecipient("existing", SharePermission.WRITE));
+        recipients.add(new ShareRecipient("member0", SharePermission.READ));
+        recipients.add(new ShareRecipient("lead", SharePermission.READ));
+
+        List<BulkShareResult> results = documentService.shareDocumentBulk(doc.getId(), recipients, "lead");
+        assertEquals(recipients.size(), results.size());
+        assertEquals(BulkShareResult.Status.SHARED, results.get(0).getStatus());
+        assertEquals(BulkShareResult.Status.ALREADY_SHARED, results.get(120).getStatus());
+        assertEquals(SharePermission.READ, results.get(120).getPermission());
+        assertEquals(BulkShareResult.Status.DUPLICATE, results.get(121).getStatus());
+        assertEquals(BulkShareResult.Status.INVALID, results.get(122).getStatus());
+        assertEquals(121, documentService.getDocumentShares(doc.getId(), "lead").size());
+        assertTrue(documentService.hasPermission(doc.getId(), "member7", SharePermission.WRITE));
+
+        List<BulkShareResult> revoked = documentService.revokeSharesBulk(doc.getId(), Arrays.asList("member1", "member2", "nobody"), "lead");
+        assertEquals(BulkShareResult.Status.REVOKED, revoked.get(0).getStatus());
+        assertEquals(BulkShareResult.Status.NOT_SHARED, revoked.get(2).getStatus());
+        assertEquals(119, documentService.getDocumentShares(doc.getId(), "lead").size());
+    }
+
+    @Test
+    public void testConditionalUpdatesDetectConflicts() {
+        Document doc = documentService.createDocument("Contended", "Hello", "writer");
+        Document saved = documentService.updateDocument(doc.getId(), "Hello there", "writer", 0L);
+        assertEquals(1, saved.getOperationRevision());
+
+        RevisionConflictException conflict = assertThrows(RevisionConflictException.class,
+                () -> documentService.updateDocument(doc.getId(), "Hello world", "writer", 0L));
+        assertEquals(1, conflict.getCurrentRevision());
+        assertEquals("Hello there", conflict.getCurrentContent());
+        EditOperation diff = EditOperation.between(doc.getId(), "Hello world", conflict.getCurrentContent());
+        assertEquals(6, diff.getPosition());
+        assertEquals("Hello there", diff.applyTo("Hello world"));
+
+        DocumentTemplate template = documentService.createTemplate("Memo", "", "Body", "general", "writer");
+        DocumentTemplate updated = documentService.updateTemplate(template.getId(), "Memo", "", "Body 2", "general", "writer", template.getVersion());
+        assertEquals(template.getVersion() + 1, updated.getVersion());
+        assertThrows(RevisionConflictException.class,
+                () -> documentService.updateTemplate(template.getId(), "Memo", "", "Body 3", "general", "writer", template.getVersion()));
+
+        assertEquals(Long.valueOf(3), DocumentController.parseETag("W/\"3\""));
+        assertNull(DocumentController.parseETag("*"));
+        assertThrows(IllegalArgumentException.class, () -> DocumentController.parseETag("\"abc\""));
+    }
 }
@@ -0,0 +1,86 @@
+package com.collaborativeediting.documentediting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeavyHitterSketchTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    public void testHeaviestKeysAreFoundAmongManyLightOnes() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1024, 4, 6, 10_000, 20, now::get);
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            int roll = random.nextInt(100);
+            String key = roll < 20 ? "doc-1" : roll < 30 ? "doc-2" : roll < 35 ? "doc-3" : "doc-" + (100 + random.nextInt(50_000));
+            sketch.add(key);
+        }
+
+        List<Map.Entry<String, Long>> top = sketch.top(3);
+        assertEquals("doc-1", top.get(0).getKey());
+        assertEquals("doc-2", top.get(1).getKey());
+        assertEquals("doc-3", top.get(2).getKey());
+        assertEquals(100_000, sketch.total());
+        // Count-min never undercounts and stays within its error bound
+        long doc1 = top.get(0).getValue();
+        assertTrue(doc1 >= 19_000 && doc1 <= 21_000 + sketch.maxOverestimate(), String.valueOf(doc1));
+    }
+
+    @Test
+    public void testConcurrentAddsFindTheSameHeavyHitters() throws InterruptedException {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1024, 4, 6, 10_000, 10, now::get);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 25_000; i++) {
+                    int roll = random.nextInt(100);
+                    sketch.add(roll < 20 ? "doc-1" : roll < 30 ? "doc-2" : "doc-" + (100 + random.nextInt(50_000)));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Map.Entry<String, Long>> top = sketch.top(2);
+        assertEquals("doc-1", top.get(0).getKey());
+        assertEquals("doc-2", top.get(1).getKey());
+        assertEquals(100_000, sketch.total());
+        // Counts skipped by the unlocked path are caught up when the top is read
+        assertEquals(sketch.estimate("doc-1"), (long) top.get(0).getValue());
+    }
+
+    @Test
+    public void testCountsExpireWithTheWindow() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(256, 4, 6, 10_000, 8, now::get);
+        for (int i = 0; i < 50; i++) {
+            sketch.add("old");
+        }
+        now.addAndGet(30_000);
+        for (int i = 0; i < 10; i++) {
+            sketch.add("new");
+        }
+        assertEquals(50, sketch.estimate("old"));
+        assertEquals("old", sketch.top(1).get(0).getKey());
+
+        // A minute after the first adds their bucket has left the window
+        now.addAndGet(31_000);
+        assertEquals(0, sketch.estimate("old"));
+        assertEquals(10, sketch.estimate("new"));
+        List<Map.Entry<String, Long>> top = sketch.top(5);
+        assertEquals(1, top.size());
+        assertEquals("new", top.get(0).getKey());
+    }
+}
@@ -0,0 +1,68 @@
+package com.collaborativeediting.documentediting;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "documents.wal.enabled=false")
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentExportService documentExportService;
+
+    @Test
+    public void testHotPathMetricsAreScrapedWithHistograms() throws Exception {
+        Document doc = documentService.createDocument("Measured", "Content", "user");
+        documentService.hasPermission(doc.getId(), "user", SharePermission.READ);
+        documentService.updateDocument(doc.getId(), "New content", "user");
+        documentExportService.exportDocument(doc, DocumentExportService.ExportFormat.HTML);
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains("documents_permission_check_seconds_bucket"));
+        assertTrue(scrape.contains("documents_update_seconds_count{outcome=\"success\""));
+        assertTrue(scrape.contains("documents_export_size_bytes_bucket{format=\"html\""));
+        assertTrue(scrape.contains("websocket_sessions_active"));
+    }
+
+    @Test
+    public void testHotspotsEndpointListsExportedDocuments() throws Exception {
+        Document doc = documentService.createDocument("Popular", "Content", "user");
+        String token = "Bearer " + Jwts.builder()
+                .setSubject("user")
+                .signWith(SignatureAlgorithm.HS256, "mySecretKeyForJwtTokenGenerationWhichIsLongEnough")
+                .compact();
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/documents/" + doc.getId() + "/export/txt").header("Authorization", token))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/actuator/hotspots/exports"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.top[0].key").value(doc.getId().toString()))
+                .andExpect(jsonPath("$.top[0].count").value(3));
+        mockMvc.perform(get("/actuator/hotspots"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.top[0].key").value("user"));
+    }
+}
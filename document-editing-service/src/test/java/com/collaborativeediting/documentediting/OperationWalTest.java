@@ -0,0 +1,88 @@
+package com.collaborativeediting.documentediting;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "documents.wal.directory=target/wal-test",
+        "documents.wal.fsync-policy=ALWAYS",
+        "documents.live.checkpoint-interval-ms=3600000"
+})
+public class OperationWalTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private OperationWal operationWal;
+
+    @Autowired
+    private LiveDocumentStore liveDocumentStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testOperationsAreLoggedUntilCheckpoint() {
+        Document doc = documentService.createDocument("WAL Doc", "abc", "user");
+        documentService.applyOperation(new EditOperation(doc.getId(), "user", 3, 0, "def"));
+        documentService.updateDocument(doc.getId(), "replaced", "user");
+
+        // Edits are served from memory before they reach the database
+        assertEquals("abc", documentRepository.findById(doc.getId()).get().getContent());
+        assertEquals("replaced", documentService.getDocument(doc.getId()).get().getContent());
+
+        operationWal.roll();
+        List<EditOperation> logged = new ArrayList<>();
+        operationWal.replay(operation -> {
+            if (operation.getDocumentId().equals(doc.getId())) {
+                logged.add(operation);
+            }
+        });
+        assertEquals(2, logged.size());
+        assertEquals("def", logged.get(0).getText());
+        assertEquals(6, logged.get(1).getDeleteCount());
+
+        liveDocumentStore.checkpoint();
+        Document persisted = documentRepository.findById(doc.getId()).get();
+        assertEquals("replaced", persisted.getContent());
+        assertEquals(2, persisted.getOperationRevision());
+
+        List<EditOperation> remaining = new ArrayList<>();
+        operationWal.roll();
+        operationWal.replay(remaining::add);
+        assertTrue(remaining.isEmpty());
+    }
+
+    @Test
+    public void testCheckpointNeverOverwritesAnotherInstancesWrite() {
+        Document checkpointed = documentService.createDocument("Handed over", "ours", "user");
+        Document viewed = documentService.createDocument("Handed over too", "ours", "user");
+        documentService.updateDocument(checkpointed.getId(), "ours, edited", "user");
+        documentService.updateDocument(viewed.getId(), "ours, edited", "user");
+
+        // The instance that now owns the documents persists its own edits
+        for (Long id : new Long[]{checkpointed.getId(), viewed.getId()}) {
+            jdbcTemplate.update("UPDATE documents SET content = 'theirs', operation_revision = 7 WHERE id = ?", id);
+        }
+
+        assertEquals("theirs", documentService.getDocument(viewed.getId()).get().getContent());
+        liveDocumentStore.checkpoint();
+        assertEquals("theirs", documentRepository.findById(checkpointed.getId()).get().getContent());
+        assertEquals(7, documentRepository.findById(checkpointed.getId()).get().getOperationRevision());
+
+        // The stale copy is gone, so new edits start from the stored revision
+        documentService.updateDocument(checkpointed.getId(), "theirs, edited", "user", 7L);
+        assertEquals("theirs, edited", documentService.getDocument(checkpointed.getId()).get().getContent());
+    }
+}
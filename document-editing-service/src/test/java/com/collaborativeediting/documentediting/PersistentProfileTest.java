@@ -0,0 +1,49 @@
+package com.collaborativeediting.documentediting;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrated-docdb;DB_CLOSE_DELAY=-1",
+        "documents.wal.enabled=false"
+})
+@ActiveProfiles("persistent")
+public class PersistentProfileTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private Environment environment;
+
+    @Test
+    public void testMigratedSchemaServesHotQueriesFromIndexes() {
+        // Hibernate validated the migrated schema on startup; make sure it is usable too
+        Document doc = documentService.createDocument("Migrated", "Content", "owner");
+        documentService.shareDocument(doc.getId(), "reader", SharePermission.READ, "owner");
+
+        assertUsesIndex("SELECT * FROM documents WHERE owner = 'owner'");
+        assertUsesIndex("SELECT * FROM document_shares WHERE document_id = 1");
+        assertUsesIndex("SELECT * FROM document_shares WHERE document_id = 1 AND shared_with_user IN ('a', 'b')");
+        assertUsesIndex("SELECT * FROM document_shares WHERE shared_with_user = 'reader'");
+    }
+
+    @Test
+    public void testWriteAheadLogIsKeptWithTheDatabase() {
+        assertTrue(environment.getProperty("documents.wal.directory").startsWith("./data/"));
+    }
+
+    private void assertUsesIndex(String query) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+}
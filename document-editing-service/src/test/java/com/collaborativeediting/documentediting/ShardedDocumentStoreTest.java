@@ -0,0 +1,135 @@
+package com.collaborativeediting.documentediting;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "documents.wal.enabled=false")
+@ActiveProfiles("sharded")
+public class ShardedDocumentStoreTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentShards documentShards;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void shardDatabases(DynamicPropertyRegistry registry) {
+        String directory = "./target/sharded-test-" + System.nanoTime();
+        registry.add("documents.sharding.url-pattern", () -> "jdbc:h2:file:" + directory + "/docdb-shard-%d");
+        registry.add("documents.sharding.shards", () -> "3");
+    }
+
+    @Test
+    public void testDocumentsLiveOnTheirOwnersShard() {
+        Set<Integer> used = new HashSet<>();
+        for (String owner : Arrays.asList("alice", "bob", "carol", "dave", "erin", "frank")) {
+            Document doc = documentService.createDocument("Doc of " + owner, "Content", owner);
+            int shard = documentShards.shardForOwner(owner);
+            used.add(shard);
+
+            assertEquals(shard, documentShards.shardOf(doc.getId()));
+            assertEquals(1, countOnShard(shard, doc.getId()));
+            for (int other = 0; other < documentShards.count(); other++) {
+                if (other != shard) {
+                    assertEquals(0, countOnShard(other, doc.getId()));
+                }
+            }
+            assertEquals("Content", documentService.getDocument(doc.getId()).get().getContent());
+            assertTrue(documentService.getDocumentsByOwner(owner).stream().anyMatch(d -> d.getId().equals(doc.getId())));
+        }
+        assertTrue(used.size() > 1);
+    }
+
+    @Test
+    public void testSharedDocumentsAreGatheredFromAllShardsNewestFirst() throws InterruptedException {
+        String first = ownerOnShard(0);
+        String second = ownerOnShard(1);
+        Document older = documentService.createDocument("Older", "a", first);
+        Thread.sleep(5);
+        Document newer = documentService.createDocument("Newer", "b", second);
+
+        documentService.shareDocument(older.getId(), "shared-reader", SharePermission.READ, first);
+        List<BulkShareResult> results = documentService.shareDocumentBulk(newer.getId(),
+                Arrays.asList(new ShareRecipient("shared-reader", SharePermission.WRITE)), second);
+        assertEquals(BulkShareResult.Status.SHARED, results.get(0).getStatus());
+
+        List<Document> shared = documentService.getSharedDocuments("shared-reader");
+        assertEquals(2, shared.size());
+        assertEquals(newer.getId(), shared.get(0).getId());
+        assertEquals(older.getId(), shared.get(1).getId());
+        assertTrue(documentService.hasPermission(newer.getId(), "shared-reader", SharePermission.WRITE));
+        assertEquals(1, documentService.getDocumentShares(newer.getId(), second).size());
+    }
+
+    @Test
+    public void testScatteredQueriesHonourTheCallersSortAndPage() {
+        for (int shard = 0; shard < documentShards.count(); shard++) {
+            documentService.createDocument("zz-" + shard, "Content", ownerOnShard(shard));
+        }
+        Sort byTitle = Sort.by(Sort.Direction.DESC, "title");
+        long total = documentRepository.count();
+
+        Page<Document> first = documentRepository.findAll(PageRequest.of(0, 2, byTitle));
+        assertEquals(Arrays.asList("zz-2", "zz-1"), titles(first.getContent()));
+        assertEquals(total, first.getTotalElements());
+        Page<Document> second = documentRepository.findAll(PageRequest.of(1, 2, byTitle));
+        assertEquals("zz-0", second.getContent().get(0).getTitle());
+
+        assertEquals(Arrays.asList("zz-2", "zz-1", "zz-0"), titles(documentRepository.findAll(byTitle)).subList(0, 3));
+
+        ExampleMatcher byTitleOnly = ExampleMatcher.matching().withIgnorePaths("operationRevision", "version");
+        Document probe = new Document();
+        probe.setTitle("zz-1");
+        assertEquals("zz-1", documentRepository.findOne(Example.of(probe, byTitleOnly)).get().getTitle());
+        assertTrue(documentRepository.exists(Example.of(probe, byTitleOnly)));
+        probe.setTitle("missing");
+        assertFalse(documentRepository.exists(Example.of(probe, byTitleOnly)));
+    }
+
+    private static List<String> titles(List<Document> documents) {
+        List<String> titles = new ArrayList<>();
+        for (Document document : documents) {
+            titles.add(document.getTitle());
+        }
+        return titles;
+    }
+
+    private int countOnShard(int shard, Long id) {
+        return documentShards.onShard(shard,
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM documents WHERE id = ?", Integer.class, id));
+    }
+
+    private String ownerOnShard(int shard) {
+        for (int i = 0; ; i++) {
+            String owner = "owner-" + i;
+            if (documentShards.shardForOwner(owner) == shard) {
+                return owner;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.collaborativeediting.documentediting;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {"documents.websocket.outbound.max-pending-messages=2", "documents.wal.enabled=false"})
+public class SlowConsumerGuardTest {
+
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Test
+    public void testLaggingSessionIsResynced() throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("slow-session");
+        WebSocketHandler handler = slowConsumerGuard.decorate(mock(WebSocketHandler.class));
+        handler.afterConnectionEstablished(session);
+
+        assertNotNull(slowConsumerGuard.preSend(operation("slow-session", 1), null));
+        assertNotNull(slowConsumerGuard.preSend(operation("slow-session", 2), null));
+
+        Message<?> resync = slowConsumerGuard.preSend(operation("slow-session", 3), null);
+        assertNotNull(resync);
+        assertEquals("RESYNC", NativeMessageHeaderAccessor.getFirstNativeHeader(SlowConsumerGuard.TYPE_HEADER, resync.getHeaders()));
+        assertTrue(new String((byte[]) resync.getPayload()).contains("\"fromRevision\":3"));
+
+        assertNull(slowConsumerGuard.preSend(operation("slow-session", 4), null));
+        assertEquals(3, slowConsumerGuard.getMaxQueueDepth());
+
+        handler.afterConnectionClosed(session, CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, slowConsumerGuard.getTotalQueueDepth());
+    }
+
+    private Message<byte[]> operation(String sessionId, long revision) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setNativeHeader(SlowConsumerGuard.DOCUMENT_HEADER, "1");
+        accessor.setNativeHeader(SlowConsumerGuard.REVISION_HEADER, String.valueOf(revision));
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
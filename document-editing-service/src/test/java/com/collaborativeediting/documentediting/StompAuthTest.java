@@ -0,0 +1,95 @@
+package com.collaborativeediting.documentediting;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "documents.wal.enabled=false")
+public class StompAuthTest {
+
+    @Autowired
+    private StompAuthInterceptor stompAuth;
+
+    @Autowired
+    private DocumentWebSocketController webSocketController;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Test
+    public void testConnectRequiresAValidToken() {
+        assertThrows(MessagingException.class, () -> stompAuth.preSend(connect(null), null));
+        assertThrows(MessagingException.class, () -> stompAuth.preSend(connect("Bearer not-a-token"), null));
+
+        Message<?> connected = stompAuth.preSend(connect("Bearer " + Jwts.builder()
+                .setSubject("alice")
+                .signWith(SignatureAlgorithm.HS256, "mySecretKeyForJwtTokenGenerationWhichIsLongEnough")
+                .compact()), null);
+        assertEquals("alice", SimpMessageHeaderAccessor.getUser(connected.getHeaders()).getName());
+    }
+
+    @Test
+    public void testEditsAreAttributedToTheSessionUser() {
+        Document doc = documentService.createDocument("Owned", "Hello", "alice");
+
+        // A client claiming to be the owner in the payload is still checked as itself
+        EditOperation forged = new EditOperation(doc.getId(), "alice", 0, 0, "X");
+        assertThrows(RuntimeException.class, () -> webSocketController.handleEdit(forged, sessionOf("mallory")));
+        assertEquals("Hello", documentService.getDocument(doc.getId()).get().getContent());
+
+        EditOperation edit = new EditOperation(doc.getId(), "someone-else", 5, 0, "!");
+        webSocketController.handleEdit(edit, sessionOf("alice"));
+        assertEquals("alice", edit.getUsername());
+        assertEquals("Hello!", documentService.getDocument(doc.getId()).get().getContent());
+    }
+
+    @Test
+    public void testSubscribeRequiresReadPermission() {
+        Document doc = documentService.createDocument("Private", "Hello", "alice");
+        documentService.shareDocument(doc.getId(), "bob", SharePermission.READ, "alice");
+        String topic = StompAuthInterceptor.DOCUMENT_TOPIC + doc.getId();
+
+        assertNotNull(stompAuth.preSend(subscribe("alice", topic), null));
+        assertNotNull(stompAuth.preSend(subscribe("bob", topic), null));
+        assertThrows(MessagingException.class, () -> stompAuth.preSend(subscribe("mallory", topic), null));
+        assertThrows(MessagingException.class, () -> stompAuth.preSend(subscribe(null, topic), null));
+        assertThrows(MessagingException.class, () -> stompAuth.preSend(subscribe("alice", StompAuthInterceptor.DOCUMENT_TOPIC + "999999"), null));
+        assertThrows(MessagingException.class, () -> stompAuth.preSend(subscribe("alice", StompAuthInterceptor.DOCUMENT_TOPIC + "abc"), null));
+        assertThrows(MessagingException.class, () -> stompAuth.preSend(subscribe("alice", "/topic/other"), null));
+    }
+
+    private static Message<byte[]> subscribe(String user, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        if (user != null) {
+            accessor.setUser(new StompAuthInterceptor.UserPrincipal(user));
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> connect(String authorization) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        if (authorization != null) {
+            accessor.setNativeHeader("Authorization", authorization);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static SimpMessageHeaderAccessor sessionOf(String user) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setUser(new StompAuthInterceptor.UserPrincipal(user));
+        return accessor;
+    }
+}
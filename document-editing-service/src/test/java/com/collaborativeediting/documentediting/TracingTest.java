@@ -0,0 +1,55 @@
+package com.collaborativeediting.documentediting;
+
+import com.collaborativeediting.tracing.TraceCollector;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"documents.wal.enabled=false", "tracing.service-spans=true"})
+@AutoConfigureMockMvc
+public class TracingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private TraceCollector traceCollector;
+
+    @Test
+    public void testRequestSpansJoinTheCallersTrace() throws Exception {
+        Document doc = documentService.createDocument("Traced", "Content", "tracer");
+        String token = Jwts.builder()
+                .setSubject("tracer")
+                .signWith(SignatureAlgorithm.HS256, "mySecretKeyForJwtTokenGenerationWhichIsLongEnough")
+                .compact();
+        String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+        mockMvc.perform(get("/api/documents/" + doc.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("traceparent", "00-" + traceId + "-00f067aa0ba902b7-01"))
+                .andExpect(status().isOk());
+
+        List<TraceCollector.SpanRecord> spans = traceCollector.trace(traceId);
+        Set<String> names = spans.stream().map(TraceCollector.SpanRecord::getName).collect(Collectors.toSet());
+        assertTrue(names.contains("jwt.parse"), names.toString());
+        assertTrue(names.contains("DocumentService.hasPermission"), names.toString());
+        assertTrue(names.contains("DocumentRepository.findById"), names.toString());
+        // The server span continues the caller's span rather than starting a new trace
+        assertTrue(spans.stream().anyMatch(span -> "00f067aa0ba902b7".equals(span.getParentId())));
+    }
+}
@@ -0,0 +1,108 @@
+package com.collaborativeediting.documentediting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"documents.wal.enabled=false", "documents.capture.enabled=true",
+        "documents.capture.directory=target/capture-test", "documents.capture.length-bucket=16",
+        "documents.capture.pseudonym-key=test-key"})
+@AutoConfigureMockMvc
+@DirtiesContext
+public class TrafficCaptureTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrafficCapture capture;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testCapturedRequestsAreAnonymized() throws Exception {
+        String token = "Bearer " + Jwts.builder()
+                .setSubject("alice")
+                .signWith(SignatureAlgorithm.HS256, "mySecretKeyForJwtTokenGenerationWhichIsLongEnough")
+                .compact();
+
+        String created = mockMvc.perform(post("/api/documents").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Merger plan\",\"content\":\"Acquire the competitor in May\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(post("/api/documents/" + id + "/share").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sharedWithUser\":\"bob\",\"permission\":\"WRITE\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/documents/" + id + "/shares/revoke").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sharedWithUsers\":[\"bob\"]}"))
+                .andExpect(status().isOk());
+        capture.close();
+
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(capture.getFile())), StandardCharsets.UTF_8))) {
+            lines = reader.lines().collect(Collectors.toList());
+        }
+        assertEquals(CapturedExchange.HEADER, lines.get(0));
+        assertEquals(4, lines.size());
+        for (String line : lines) {
+            assertFalse(line.contains("alice") || line.contains("bob") || line.contains("Merger") || line.contains("Acquire"), line);
+        }
+
+        CapturedExchange create = CapturedExchange.parse(lines.get(1));
+        assertEquals("/api/documents", create.getEndpoint());
+        assertEquals(capture.pseudonym("alice"), create.getUser());
+        assertEquals(Long.valueOf(id), create.getCreatedId());
+        JsonNode body = objectMapper.readTree(create.getBody());
+        assertEquals(16, body.get("title").get(CapturedExchange.LENGTH_MARKER).asInt());
+        assertEquals(32, body.get("content").get(CapturedExchange.LENGTH_MARKER).asInt());
+
+        CapturedExchange share = CapturedExchange.parse(lines.get(2));
+        assertEquals("/api/documents/{id}/share", share.getEndpoint());
+        assertTrue(share.getBody().contains("\"permission\":\"WRITE\""));
+        assertTrue(share.getBody().contains(capture.pseudonym("bob")));
+
+        CapturedExchange revoke = CapturedExchange.parse(lines.get(3));
+        assertEquals("/api/documents/" + id + "/shares/revoke", revoke.getPath());
+        assertEquals("{\"sharedWithUsers\":[\"" + capture.pseudonym("bob") + "\"]}", revoke.getBody());
+        assertEquals(200, revoke.getStatus());
+
+        assertEquals("/api/documents/" + id + "/share/" + capture.pseudonym("bob"), capture.path(
+                "/api/documents/{id}/share/{sharedWithUser}", map("id", String.valueOf(id), "sharedWithUser", "bob"), null));
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
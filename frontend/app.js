@@ -8,6 +8,9 @@ let websocket = null;
 // API Base URL
 const API_BASE = 'http://localhost:8080';
 
+// First line of a section where our save and another editor's overlapped
+const CONFLICT_START = '<<<<<<< your changes';
+
 // DOM Elements
 const authSection = document.getElementById('auth-section');
 const appSection = document.getElementById('app-section');
@@ -214,7 +217,8 @@ async function loadDocument(id) {
     console.log('Current user exists:', !!currentUser);
 
     try {
-        const response = await fetch(`${API_BASE}/api/documents/${id}`, {
+        // Document, permission, shares and latest version in one round trip
+        const response = await fetch(`${API_BASE}/api/documents/${id}/open`, {
             headers: {
                 'Authorization': `Bearer ${currentToken}`,
             },
@@ -223,28 +227,21 @@ async function loadDocument(id) {
         console.log('Load document response status:', response.status);
 
         if (response.ok) {
-            const documentData = await response.json();
+            const openData = await response.json();
+            const documentData = openData.document;
             console.log('Document data received:', documentData);
 
-            // Fetch user permission for this document
-            const permissionResponse = await fetch(`${API_BASE}/api/documents/${id}/permission`, {
-                headers: {
-                    'Authorization': `Bearer ${currentToken}`,
-                },
-            });
-
-            let userPermission = 'read-only'; // default
-            if (permissionResponse.ok) {
-                userPermission = await permissionResponse.text();
-                userPermission = userPermission.replace(/"/g, '').trim(); // Remove quotes and trim whitespace
-                // Convert backend enum format to frontend format
-                if (userPermission === 'READ_WRITE' || userPermission === 'WRITE') {
-                    userPermission = 'read-write';
-                } else if (userPermission === 'READ_ONLY') {
-                    userPermission = 'read-only';
-                }
+            let userPermission = openData.permission || 'read-only';
+            // Convert backend enum format to frontend format
+            if (userPermission === 'READ_WRITE' || userPermission === 'WRITE') {
+                userPermission = 'read-write';
+            } else if (userPermission === 'READ_ONLY') {
+                userPermission = 'read-only';
             }
 
+            documentData.shares = openData.shares;
+            documentData.latestVersion = openData.latestVersion;
+
             // Add permission to document data
             documentData.userPermission = userPermission;
             currentDocument = documentData;
@@ -359,6 +356,10 @@ async function saveDocument() {
     }
 
     const content = document.getElementById('document-editor').value;
+    if (content.includes(CONFLICT_START)) {
+        showMessage('Resolve the marked conflict before saving.', 'error');
+        return;
+    }
 
     try {
         const response = await fetch(`${API_BASE}/api/documents/${currentDocument.id}`, {
@@ -366,13 +367,31 @@ async function saveDocument() {
             headers: {
                 'Content-Type': 'application/json',
                 'Authorization': `Bearer ${currentToken}`,
+                'If-Match': `"${currentDocument.operationRevision}"`,
             },
             body: JSON.stringify({ content }),
         });
 
         if (response.ok) {
+            const saved = await response.json();
             showMessage('Document saved successfully!', 'success');
             currentDocument.content = content;
+            currentDocument.operationRevision = saved.operationRevision;
+        } else if (response.status === 409) {
+            // Someone saved first: their text is our submission with the returned diff applied
+            const conflict = await response.json();
+            const theirs = applySplice(content, conflict.diff);
+            const editor = document.getElementById('document-editor');
+            const merged = mergeEdits(currentDocument.content || '', editor.value, theirs);
+            // Only move to their revision once the editor holds their changes
+            editor.value = merged.content;
+            currentDocument.content = theirs;
+            currentDocument.operationRevision = conflict.currentRevision;
+            if (merged.clean) {
+                showMessage('Another editor saved first. Their changes were merged into yours; review and save again.', 'error');
+            } else {
+                showMessage('Another editor changed the same text. Resolve the marked section, then save again.', 'error');
+            }
         } else {
             showMessage('Failed to save document.', 'error');
         }
@@ -381,6 +400,53 @@ async function saveDocument() {
     }
 }
 
+
+// The single splice that turns one text into another, matching the server's EditOperation.between
+function spliceBetween(from, to) {
+    const shorter = Math.min(from.length, to.length);
+    let prefix = 0;
+    while (prefix < shorter && from[prefix] === to[prefix]) {
+        prefix++;
+    }
+    let suffix = 0;
+    while (suffix < shorter - prefix && from[from.length - 1 - suffix] === to[to.length - 1 - suffix]) {
+        suffix++;
+    }
+    return { position: prefix, deleteCount: from.length - prefix - suffix, text: to.substring(prefix, to.length - suffix) };
+}
+
+function applySplice(content, splice) {
+    const start = Math.max(0, Math.min(splice.position, content.length));
+    const end = Math.min(content.length, start + Math.max(0, splice.deleteCount));
+    return content.substring(0, start) + (splice.text || '') + content.substring(end);
+}
+
+// Three-way merge of our edit and theirs, both made on base. Edits to separate parts of the text
+// are combined; edits to the same part are shown side by side between conflict markers.
+function mergeEdits(base, mine, theirs) {
+    const ours = spliceBetween(base, mine);
+    const other = spliceBetween(base, theirs);
+    const oursEnd = ours.position + ours.deleteCount;
+    const otherEnd = other.position + other.deleteCount;
+    if (mine === base || mine === theirs) {
+        return { content: theirs, clean: true };
+    }
+    if (oursEnd <= other.position) {
+        return { content: applySplice(theirs, ours), clean: true };
+    }
+    if (ours.position >= otherEnd) {
+        const shift = other.text.length - other.deleteCount;
+        return { content: applySplice(theirs, { ...ours, position: ours.position + shift }), clean: true };
+    }
+
+    const start = Math.min(ours.position, other.position);
+    const end = Math.max(oursEnd, otherEnd);
+    const mineSection = mine.substring(start, end + ours.text.length - ours.deleteCount);
+    const theirSection = theirs.substring(start, end + other.text.length - other.deleteCount);
+    const marked = `${CONFLICT_START}\n${mineSection}\n=======\n${theirSection}\n>>>>>>> their changes\n`;
+    return { content: base.substring(0, start) + marked + base.substring(end), clean: false };
+}
+
 async function deleteDocument(id) {
     if (!confirm('Are you sure you want to delete this document?')) {
         return;
@@ -572,6 +638,39 @@ async function shareDocument(event) {
     }
 }
 
+// Share dialog autocomplete: a few letters of a username or name
+let userSearchTimer = null;
+
+document.getElementById('share-username').addEventListener('input', function() {
+    const query = this.value.trim();
+    clearTimeout(userSearchTimer);
+    if (query.length < 2) {
+        return;
+    }
+    userSearchTimer = setTimeout(async () => {
+        try {
+            const response = await fetch(`${API_BASE}/api/auth/users/search?q=${encodeURIComponent(query)}&limit=8`, {
+                headers: {
+                    'Authorization': `Bearer ${currentToken}`,
+                },
+            });
+            if (response.ok) {
+                const users = await response.json();
+                const suggestions = document.getElementById('share-user-suggestions');
+                suggestions.innerHTML = '';
+                users.forEach(user => {
+                    const option = document.createElement('option');
+                    option.value = user.username;
+                    option.label = [user.firstName, user.lastName].filter(Boolean).join(' ');
+                    suggestions.appendChild(option);
+                });
+            }
+        } catch (error) {
+            console.error('User search failed:', error);
+        }
+    }, 200);
+});
+
 async function loadDocumentShares() {
     try {
         const response = await fetch(`${API_BASE}/api/documents/${currentDocument.id}/shares`, {
@@ -0,0 +1,69 @@
+package com.collaborativeediting.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap and garbage collection of this JVM over a measurement window: peak heap in use, sampled
+ * every 100 ms, and the collections that ran. The embedded service and the editors share the JVM,
+ * so the numbers include the editors' own allocation.
+ */
+class JvmSampler {
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jvm-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long peakHeapBytes;
+    private long gcCountAtStart;
+    private long gcMillisAtStart;
+    private long gcCount;
+    private long gcMillis;
+    private long heapAtEndBytes;
+
+    void start() {
+        gcCountAtStart = collections();
+        gcMillisAtStart = collectionMillis();
+        peakHeapBytes = memory.getHeapMemoryUsage().getUsed();
+        sampler.scheduleAtFixedRate(() -> peakHeapBytes = Math.max(peakHeapBytes, memory.getHeapMemoryUsage().getUsed()),
+                100, 100, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        sampler.shutdownNow();
+        gcCount = collections() - gcCountAtStart;
+        gcMillis = collectionMillis() - gcMillisAtStart;
+        heapAtEndBytes = memory.getHeapMemoryUsage().getUsed();
+    }
+
+    long peakHeapBytes() { return peakHeapBytes; }
+
+    long heapAtEndBytes() { return heapAtEndBytes; }
+
+    long gcCount() { return gcCount; }
+
+    long gcMillis() { return gcMillis; }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
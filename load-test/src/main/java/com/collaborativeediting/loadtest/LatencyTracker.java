@@ -0,0 +1,110 @@
+package com.collaborativeediting.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Matches broadcasts to the operations that caused them by client operation id. Every editor runs
+ * in this JVM, so one clock times an operation from the moment its sender hands it to STOMP until
+ * each subscriber of the document has received the broadcast. Only operations sent while
+ * measuring count towards the results.
+ */
+class LatencyTracker {
+
+    private static final long MAX_LATENCY_MICROS = 60_000_000L;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Recorder echoLatency = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final Recorder broadcastLatency = new Recorder(MAX_LATENCY_MICROS, 3);
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private volatile boolean measuring;
+
+    void startMeasuring() {
+        echoLatency.reset();
+        broadcastLatency.reset();
+        measuring = true;
+    }
+
+    void stopMeasuring() {
+        measuring = false;
+    }
+
+    void sent(String clientOpId, int subscribers) {
+        boolean measured = measuring;
+        pending.put(clientOpId, new Pending(System.nanoTime(), subscribers, measured));
+        if (measured) {
+            sent.increment();
+        }
+    }
+
+    void received(String clientOpId, boolean ownOperation) {
+        long now = System.nanoTime();
+        Pending operation = pending.get(clientOpId);
+        if (operation == null) {
+            return;
+        }
+        if (operation.remaining.decrementAndGet() <= 0) {
+            pending.remove(clientOpId);
+        }
+        if (!operation.measured) {
+            return;
+        }
+
+        long micros = Math.min(MAX_LATENCY_MICROS, Math.max(0, (now - operation.sentAt) / 1000));
+        broadcastLatency.recordValue(micros);
+        delivered.increment();
+        if (ownOperation) {
+            echoLatency.recordValue(micros);
+            applied.increment();
+        }
+    }
+
+    void resync() {
+        if (measuring) {
+            resyncs.increment();
+        }
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    /** Time from sending an operation until its sender sees it applied. */
+    Histogram echoLatency() { return echoLatency.getIntervalHistogram(); }
+
+    /** Time from sending an operation until a subscriber receives it, over all subscribers. */
+    Histogram broadcastLatency() { return broadcastLatency.getIntervalHistogram(); }
+
+    long sent() { return sent.sum(); }
+
+    long applied() { return applied.sum(); }
+
+    long delivered() { return delivered.sum(); }
+
+    long resyncs() { return resyncs.sum(); }
+
+    long errors() { return errors.sum(); }
+
+    private static class Pending {
+        private final long sentAt;
+        private final AtomicInteger remaining;
+        private final boolean measured;
+
+        Pending(long sentAt, int subscribers, boolean measured) {
+            this.sentAt = sentAt;
+            this.remaining = new AtomicInteger(subscribers);
+            this.measured = measured;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.collaborativeediting.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+/** Outcome of one load step: a number of editors typing for the measured duration. */
+public class LevelResult {
+
+    private int clients;
+    private int documents;
+    private double targetOpsPerSecond;
+    private double sentOpsPerSecond;
+    private double appliedOpsPerSecond;
+    private double broadcastsPerSecond;
+    private long lostOperations;
+    private long resyncs;
+    private long errors;
+    private Percentiles echoLatencyMillis;
+    private Percentiles broadcastLatencyMillis;
+    private long peakHeapBytes;
+    private long heapAtEndBytes;
+    private long gcCount;
+    private long gcMillis;
+    private boolean passed;
+
+    public int getClients() { return clients; }
+    public void setClients(int clients) { this.clients = clients; }
+
+    public int getDocuments() { return documents; }
+    public void setDocuments(int documents) { this.documents = documents; }
+
+    public double getTargetOpsPerSecond() { return targetOpsPerSecond; }
+    public void setTargetOpsPerSecond(double targetOpsPerSecond) { this.targetOpsPerSecond = targetOpsPerSecond; }
+
+    public double getSentOpsPerSecond() { return sentOpsPerSecond; }
+    public void setSentOpsPerSecond(double sentOpsPerSecond) { this.sentOpsPerSecond = sentOpsPerSecond; }
+
+    public double getAppliedOpsPerSecond() { return appliedOpsPerSecond; }
+    public void setAppliedOpsPerSecond(double appliedOpsPerSecond) { this.appliedOpsPerSecond = appliedOpsPerSecond; }
+
+    public double getBroadcastsPerSecond() { return broadcastsPerSecond; }
+    public void setBroadcastsPerSecond(double broadcastsPerSecond) { this.broadcastsPerSecond = broadcastsPerSecond; }
+
+    /** Measured operations whose sender never saw them broadcast. */
+    public long getLostOperations() { return lostOperations; }
+    public void setLostOperations(long lostOperations) { this.lostOperations = lostOperations; }
+
+    public long getResyncs() { return resyncs; }
+    public void setResyncs(long resyncs) { this.resyncs = resyncs; }
+
+    public long getErrors() { return errors; }
+    public void setErrors(long errors) { this.errors = errors; }
+
+    public Percentiles getEchoLatencyMillis() { return echoLatencyMillis; }
+    public void setEchoLatencyMillis(Percentiles echoLatencyMillis) { this.echoLatencyMillis = echoLatencyMillis; }
+
+    public Percentiles getBroadcastLatencyMillis() { return broadcastLatencyMillis; }
+    public void setBroadcastLatencyMillis(Percentiles broadcastLatencyMillis) { this.broadcastLatencyMillis = broadcastLatencyMillis; }
+
+    public long getPeakHeapBytes() { return peakHeapBytes; }
+    public void setPeakHeapBytes(long peakHeapBytes) { this.peakHeapBytes = peakHeapBytes; }
+
+    public long getHeapAtEndBytes() { return heapAtEndBytes; }
+    public void setHeapAtEndBytes(long heapAtEndBytes) { this.heapAtEndBytes = heapAtEndBytes; }
+
+    public long getGcCount() { return gcCount; }
+    public void setGcCount(long gcCount) { this.gcCount = gcCount; }
+
+    public long getGcMillis() { return gcMillis; }
+    public void setGcMillis(long gcMillis) { this.gcMillis = gcMillis; }
+
+    public boolean isPassed() { return passed; }
+    public void setPassed(boolean passed) { this.passed = passed; }
+
+    public static class Percentiles {
+        private final long count;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double p999;
+        private final double max;
+
+        Percentiles(Histogram micros) {
+            this.count = micros.getTotalCount();
+            this.p50 = millis(micros.getValueAtPercentile(50));
+            this.p90 = millis(micros.getValueAtPercentile(90));
+            this.p99 = millis(micros.getValueAtPercentile(99));
+            this.p999 = millis(micros.getValueAtPercentile(99.9));
+            this.max = millis(micros.getMaxValue());
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+
+        public long getCount() { return count; }
+        public double getP50() { return p50; }
+        public double getP90() { return p90; }
+        public double getP99() { return p99; }
+        public double getP999() { return p999; }
+        public double getMax() { return max; }
+    }
+}
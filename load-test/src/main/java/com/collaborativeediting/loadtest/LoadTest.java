@@ -0,0 +1,178 @@
+package com.collaborativeediting.loadtest;
+
+import com.collaborativeediting.documentediting.Document;
+import com.collaborativeediting.documentediting.DocumentEditingApplication;
+import com.collaborativeediting.documentediting.DocumentService;
+import com.collaborativeediting.documentediting.SharePermission;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capacity test of the real-time editing path. Starts the document editing service in this JVM
+ * on a free port, then for each client level connects that many editors over SockJS/STOMP to
+ * {@code /ws}, spreads them over the documents and lets them type at the configured rate. After a
+ * warm-up, op-to-broadcast latency, throughput, heap and GC are measured; the run stops at the
+ * first level that misses the p99 target, drops or resyncs operations, or cannot keep up.
+ */
+public class LoadTest {
+
+    private static final String OWNER = "loadtest-owner";
+    private static final long DRAIN_MILLIS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LoadTestReport report = run(options);
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.writeValue(new File(options.getOutput()), report);
+        System.out.println("Capacity: " + report.getCapacityClients() + " editors (p99 <= "
+                + options.getSloP99Millis() + " ms); results in " + options.getOutput());
+        System.exit(0);
+    }
+
+    public static LoadTestReport run(LoadTestOptions options) throws Exception {
+        LoadTestReport report = new LoadTestReport(options);
+        try (ConfigurableApplicationContext service = startService(options)) {
+            String url = "http://localhost:" + service.getEnvironment().getProperty("local.server.port") + "/ws";
+            DocumentService documentService = service.getBean(DocumentService.class);
+
+            WebSocketStompClient stompClient = new WebSocketStompClient(
+                    new SockJsClient(Collections.singletonList(new WebSocketTransport(new StandardWebSocketClient()))));
+            stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+
+            System.out.printf("%8s %10s %10s %10s %9s %9s %9s %9s %7s %7s %9s %6s %8s%n",
+                    "clients", "target/s", "applied/s", "bcast/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms",
+                    "lost", "resync", "heap MB", "gcs", "result");
+            for (int clients : options.getClientLevels()) {
+                LevelResult level = runLevel(options, clients, documentService, stompClient, url);
+                report.add(level);
+                print(level);
+                if (!level.isPassed()) {
+                    break;
+                }
+            }
+            stompClient.stop();
+        }
+        return report;
+    }
+
+    static ConfigurableApplicationContext startService(LoadTestOptions options) throws Exception {
+        // Command-line arguments, so they win over the service's application.properties
+        Map<String, String> arguments = new LinkedHashMap<>();
+        arguments.put("server.port", "0");
+        arguments.put("spring.datasource.url", "jdbc:h2:mem:loadtest");
+        arguments.put("documents.wal.directory", Files.createTempDirectory("load-test-wal").toString());
+        arguments.put("tracing.file", "");
+        arguments.put("spring.main.banner-mode", "off");
+        arguments.put("logging.level.root", "WARN");
+        for (String argument : options.getServiceArguments()) {
+            int equals = argument.indexOf('=');
+            arguments.put(argument.substring(2, equals), argument.substring(equals + 1));
+        }
+
+        List<String> args = new ArrayList<>();
+        for (Map.Entry<String, String> argument : arguments.entrySet()) {
+            args.add("--" + argument.getKey() + "=" + argument.getValue());
+        }
+        return new SpringApplicationBuilder(DocumentEditingApplication.class).run(args.toArray(new String[0]));
+    }
+
+    private static LevelResult runLevel(LoadTestOptions options, int clients, DocumentService documentService,
+                                        WebSocketStompClient stompClient, String url) throws Exception {
+        int documentCount = Math.min(options.getDocuments(), clients);
+        List<Long> documentIds = new ArrayList<>();
+        for (int i = 0; i < documentCount; i++) {
+            Document document = documentService.createDocument("Load test " + clients + "/" + i, "", OWNER);
+            documentIds.add(document.getId());
+        }
+
+        LatencyTracker tracker = new LatencyTracker();
+        List<SimulatedEditor> editors = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String username = "editor-" + i;
+            int document = i % documentCount;
+            int subscribers = clients / documentCount + (document < clients % documentCount ? 1 : 0);
+            documentService.shareDocument(documentIds.get(document), username, SharePermission.WRITE, OWNER);
+            editors.add(new SimulatedEditor(username, documentIds.get(document), subscribers, tracker));
+        }
+        for (SimulatedEditor editor : editors) {
+            editor.connect(stompClient, url);
+        }
+
+        ScheduledExecutorService typists = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        long periodMicros = Math.max(1, (long) (1_000_000 / options.getTypingRate()));
+        for (SimulatedEditor editor : editors) {
+            long initialDelay = ThreadLocalRandom.current().nextLong(periodMicros);
+            typists.scheduleAtFixedRate(editor::type, initialDelay, periodMicros, TimeUnit.MICROSECONDS);
+        }
+
+        JvmSampler jvm = new JvmSampler();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.getWarmupSeconds()));
+        tracker.startMeasuring();
+        jvm.start();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.getDurationSeconds()));
+        tracker.stopMeasuring();
+
+        // Let operations still in flight arrive before they count as lost
+        typists.shutdownNow();
+        typists.awaitTermination(5, TimeUnit.SECONDS);
+        Thread.sleep(DRAIN_MILLIS);
+        jvm.stop();
+
+        double seconds = options.getDurationSeconds();
+        LevelResult level = new LevelResult();
+        level.setClients(clients);
+        level.setDocuments(documentCount);
+        level.setTargetOpsPerSecond(clients * options.getTypingRate());
+        level.setSentOpsPerSecond(tracker.sent() / seconds);
+        level.setAppliedOpsPerSecond(tracker.applied() / seconds);
+        level.setBroadcastsPerSecond(tracker.delivered() / seconds);
+        level.setLostOperations(tracker.sent() - tracker.applied());
+        level.setResyncs(tracker.resyncs());
+        level.setErrors(tracker.errors());
+        level.setEchoLatencyMillis(new LevelResult.Percentiles(tracker.echoLatency()));
+        level.setBroadcastLatencyMillis(new LevelResult.Percentiles(tracker.broadcastLatency()));
+        level.setPeakHeapBytes(jvm.peakHeapBytes());
+        level.setHeapAtEndBytes(jvm.heapAtEndBytes());
+        level.setGcCount(jvm.gcCount());
+        level.setGcMillis(jvm.gcMillis());
+        level.setPassed(level.getErrors() == 0
+                && level.getResyncs() == 0
+                && level.getLostOperations() == 0
+                && level.getBroadcastLatencyMillis().getP99() <= options.getSloP99Millis()
+                && level.getAppliedOpsPerSecond() >= 0.95 * level.getTargetOpsPerSecond());
+
+        for (SimulatedEditor editor : editors) {
+            editor.disconnect();
+        }
+        return level;
+    }
+
+    private static void print(LevelResult level) {
+        LevelResult.Percentiles latency = level.getBroadcastLatencyMillis();
+        System.out.printf("%8d %10.0f %10.0f %10.0f %9.2f %9.2f %9.2f %9.2f %7d %7d %9d %6d %8s%n",
+                level.getClients(), level.getTargetOpsPerSecond(), level.getAppliedOpsPerSecond(),
+                level.getBroadcastsPerSecond(), latency.getP50(), latency.getP99(), latency.getP999(),
+                latency.getMax(), level.getLostOperations(), level.getResyncs(),
+                level.getPeakHeapBytes() / (1024 * 1024), level.getGcCount(), level.isPassed() ? "pass" : "FAIL");
+    }
+}
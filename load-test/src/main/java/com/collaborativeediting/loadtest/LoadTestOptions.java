@@ -0,0 +1,92 @@
+package com.collaborativeediting.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings of a load test run, read from {@code --name=value} arguments. Arguments the load test
+ * does not know, such as {@code --documents.wal.fsync-policy=ALWAYS}, are passed on to the
+ * embedded document editing service.
+ */
+public class LoadTestOptions {
+
+    private List<Integer> clientLevels = list(10, 25, 50, 100, 200);
+    private int documents = 10;
+    private double typingRate = 5.0;
+    private int warmupSeconds = 10;
+    private int durationSeconds = 30;
+    private double sloP99Millis = 250.0;
+    private String output = "load-test-results.json";
+    private final List<String> serviceArguments = new ArrayList<>();
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "clients":
+                    options.clientLevels = new ArrayList<>();
+                    for (String level : value.split(",")) {
+                        options.clientLevels.add(Integer.parseInt(level.trim()));
+                    }
+                    break;
+                case "documents":
+                    options.documents = Integer.parseInt(value);
+                    break;
+                case "typing-rate":
+                    options.typingRate = Double.parseDouble(value);
+                    break;
+                case "warmup-seconds":
+                    options.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "duration-seconds":
+                    options.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "slo-p99-ms":
+                    options.sloP99Millis = Double.parseDouble(value);
+                    break;
+                case "output":
+                    options.output = value;
+                    break;
+                default:
+                    options.serviceArguments.add(arg);
+            }
+        }
+        if (options.documents < 1 || options.typingRate <= 0 || options.durationSeconds < 1) {
+            throw new IllegalArgumentException("documents, typing-rate and duration-seconds must be positive");
+        }
+        return options;
+    }
+
+    private static List<Integer> list(Integer... values) {
+        List<Integer> list = new ArrayList<>();
+        for (Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    /** Number of simulated editors for each step, run in order until one misses the target. */
+    public List<Integer> getClientLevels() { return clientLevels; }
+
+    public int getDocuments() { return documents; }
+
+    /** Operations per second sent by each editor. */
+    public double getTypingRate() { return typingRate; }
+
+    public int getWarmupSeconds() { return warmupSeconds; }
+
+    public int getDurationSeconds() { return durationSeconds; }
+
+    /** A step passes when the 99th percentile op-to-broadcast latency stays within this. */
+    public double getSloP99Millis() { return sloP99Millis; }
+
+    public String getOutput() { return output; }
+
+    public List<String> getServiceArguments() { return serviceArguments; }
+}
@@ -0,0 +1,44 @@
+package com.collaborativeediting.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Results of a run, written as JSON so capacity can be compared between releases and machines. */
+public class LoadTestReport {
+
+    private final LoadTestOptions options;
+    private final List<LevelResult> levels = new ArrayList<>();
+    private final int availableProcessors = Runtime.getRuntime().availableProcessors();
+    private final long maxHeapBytes = Runtime.getRuntime().maxMemory();
+    private final String javaVersion = System.getProperty("java.version");
+
+    LoadTestReport(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    void add(LevelResult level) {
+        levels.add(level);
+    }
+
+    public LoadTestOptions getOptions() { return options; }
+
+    public List<LevelResult> getLevels() { return levels; }
+
+    /** Most editors handled within the target, counting steps up to the first one that missed it. */
+    public int getCapacityClients() {
+        int capacity = 0;
+        for (LevelResult level : levels) {
+            if (!level.isPassed()) {
+                break;
+            }
+            capacity = Math.max(capacity, level.getClients());
+        }
+        return capacity;
+    }
+
+    public int getAvailableProcessors() { return availableProcessors; }
+
+    public long getMaxHeapBytes() { return maxHeapBytes; }
+
+    public String getJavaVersion() { return javaVersion; }
+}
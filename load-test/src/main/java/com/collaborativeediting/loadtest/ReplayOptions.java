@@ -0,0 +1,69 @@
+package com.collaborativeediting.loadtest;
+
+/** Settings of a capture replay, read from {@code --name=value} arguments. */
+public class ReplayOptions {
+
+    private String capture;
+    private String target = "http://localhost:8082";
+    private double speed = 1.0;
+    private int threads = 64;
+    private String jwtSecret = "mySecretKeyForJwtTokenGenerationWhichIsLongEnough";
+    private String output = "replay-results.json";
+
+    public static ReplayOptions parse(String[] args) {
+        ReplayOptions options = new ReplayOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "capture":
+                    options.capture = value;
+                    break;
+                case "target":
+                    options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "speed":
+                    options.speed = Double.parseDouble(value);
+                    break;
+                case "threads":
+                    options.threads = Integer.parseInt(value);
+                    break;
+                case "jwt-secret":
+                    options.jwtSecret = value;
+                    break;
+                case "output":
+                    options.output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (options.capture == null) {
+            throw new IllegalArgumentException("--capture=<file> is required");
+        }
+        if (options.speed <= 0 || options.threads < 1) {
+            throw new IllegalArgumentException("speed and threads must be positive");
+        }
+        return options;
+    }
+
+    /** Capture file written by the document editing service. */
+    public String getCapture() { return capture; }
+
+    /** Base URL of the document editing service, or of the gateway in front of it. */
+    public String getTarget() { return target; }
+
+    /** 1 replays at captured pace; 10 replays ten times faster. */
+    public double getSpeed() { return speed; }
+
+    public int getThreads() { return threads; }
+
+    /** Used to sign tokens for the pseudonymous users; must match the target stack. */
+    public String getJwtSecret() { return jwtSecret; }
+
+    public String getOutput() { return output; }
+}
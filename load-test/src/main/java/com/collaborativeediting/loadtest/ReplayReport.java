@@ -0,0 +1,83 @@
+package com.collaborativeediting.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Results of a capture replay: latency per endpoint next to what was captured. */
+public class ReplayReport {
+
+    private String capture;
+    private double speed;
+    private long requests;
+    private double captureSeconds;
+    private double replaySeconds;
+    private double maxStartLagMillis;
+    private final List<EndpointResult> endpoints = new ArrayList<>();
+
+    public String getCapture() { return capture; }
+    public void setCapture(String capture) { this.capture = capture; }
+
+    public double getSpeed() { return speed; }
+    public void setSpeed(double speed) { this.speed = speed; }
+
+    public long getRequests() { return requests; }
+    public void setRequests(long requests) { this.requests = requests; }
+
+    public double getCaptureSeconds() { return captureSeconds; }
+    public void setCaptureSeconds(double captureSeconds) { this.captureSeconds = captureSeconds; }
+
+    public double getReplaySeconds() { return replaySeconds; }
+    public void setReplaySeconds(double replaySeconds) { this.replaySeconds = replaySeconds; }
+
+    /** How late the replayer started a request compared to its schedule; large values mean it could not keep pace. */
+    public double getMaxStartLagMillis() { return maxStartLagMillis; }
+    public void setMaxStartLagMillis(double maxStartLagMillis) { this.maxStartLagMillis = maxStartLagMillis; }
+
+    public List<EndpointResult> getEndpoints() { return endpoints; }
+
+    @JsonIgnore
+    public EndpointResult endpoint(String name) {
+        for (EndpointResult endpoint : endpoints) {
+            if (endpoint.getEndpoint().equals(name)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    public static class EndpointResult {
+        private final String endpoint;
+        private final long requests;
+        private final long failed;
+        private final long skipped;
+        private final LevelResult.Percentiles replayLatencyMillis;
+        private final LevelResult.Percentiles capturedLatencyMillis;
+
+        EndpointResult(String endpoint, long requests, long failed, long skipped, Histogram replayed, Histogram captured) {
+            this.endpoint = endpoint;
+            this.requests = requests;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.replayLatencyMillis = new LevelResult.Percentiles(replayed);
+            this.capturedLatencyMillis = new LevelResult.Percentiles(captured);
+        }
+
+        /** HTTP method or STOMP command, and the endpoint pattern. */
+        public String getEndpoint() { return endpoint; }
+
+        public long getRequests() { return requests; }
+
+        /** Requests that failed in the replay but had succeeded when captured, or edits never broadcast. */
+        public long getFailed() { return failed; }
+
+        /** Requests not sent because the document or template they use could not be created. */
+        public long getSkipped() { return skipped; }
+
+        public LevelResult.Percentiles getReplayLatencyMillis() { return replayLatencyMillis; }
+
+        public LevelResult.Percentiles getCapturedLatencyMillis() { return capturedLatencyMillis; }
+    }
+}
@@ -0,0 +1,113 @@
+package com.collaborativeediting.loadtest;
+
+import com.collaborativeediting.documentediting.EditOperation;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One user typing into a document over STOMP: mostly single-character inserts at a moving
+ * cursor, with the occasional backspace, sent to {@code /app/edit} while subscribed to the
+ * document's topic like the browser client.
+ */
+class SimulatedEditor extends StompSessionHandlerAdapter {
+
+    // The key the in-process service checks tokens with
+    private static final String JWT_SECRET = "mySecretKeyForJwtTokenGenerationWhichIsLongEnough";
+
+    private final String username;
+    private final Long documentId;
+    private final int subscribers;
+    private final LatencyTracker tracker;
+
+    private StompSession session;
+    private int cursor;
+    private long sequence;
+
+    SimulatedEditor(String username, Long documentId, int subscribers, LatencyTracker tracker) {
+        this.username = username;
+        this.documentId = documentId;
+        this.subscribers = subscribers;
+        this.tracker = tracker;
+    }
+
+    void connect(WebSocketStompClient client, String url) throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.set("Authorization", "Bearer " + Jwts.builder()
+                .setSubject(username)
+                .signWith(SignatureAlgorithm.HS256, JWT_SECRET)
+                .compact());
+        session = client.connect(url, new WebSocketHttpHeaders(), connectHeaders, this).get(30, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        session.subscribe("/topic/document/" + documentId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                Map<?, ?> message = (Map<?, ?>) payload;
+                if ("RESYNC".equals(message.get("type"))) {
+                    tracker.resync();
+                } else if (message.get("clientOpId") != null) {
+                    tracker.received((String) message.get("clientOpId"), username.equals(message.get("username")));
+                }
+            }
+        });
+    }
+
+    /** Sends the next keystroke; called at the editor's typing rate. */
+    void type() {
+        if (session == null || !session.isConnected()) {
+            return;
+        }
+
+        EditOperation operation;
+        if (cursor > 0 && ThreadLocalRandom.current().nextInt(10) == 0) {
+            cursor--;
+            operation = new EditOperation(documentId, username, cursor, 1, "");
+        } else {
+            operation = new EditOperation(documentId, username, cursor, 0, String.valueOf((char) ('a' + ThreadLocalRandom.current().nextInt(26))));
+            cursor++;
+        }
+        operation.setClientOpId(username + "-" + (++sequence));
+
+        tracker.sent(operation.getClientOpId(), subscribers);
+        try {
+            session.send("/app/edit", operation);
+        } catch (RuntimeException e) {
+            tracker.error();
+        }
+    }
+
+    void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+        tracker.error();
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        tracker.error();
+    }
+}
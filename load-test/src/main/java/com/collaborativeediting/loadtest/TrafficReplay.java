@@ -0,0 +1,519 @@
+package com.collaborativeediting.loadtest;
+
+import com.collaborativeediting.documentediting.CapturedExchange;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays a traffic capture against a running stack, at the captured pace or faster, and reports
+ * latency per endpoint next to the latency that was captured. Requests are sent as the
+ * pseudonymous users of the capture with tokens signed for them, free text is regenerated at its
+ * captured length, and ids are remapped: documents and templates created during the capture are
+ * created again and later requests use the new ids, while those that existed before are recreated
+ * up front, owned by the first user who used them and shared with the others. Revision
+ * preconditions are dropped, since revisions in the replay differ from the captured ones.
+ */
+public class TrafficReplay {
+
+    private static final long MAX_LATENCY_MICROS = 60_000_000L;
+    private static final String FILLER = "The quick brown fox jumps over the lazy dog. ";
+    private static final String DOCUMENTS = "/api/documents";
+    private static final String TEMPLATES = "/api/documents/templates";
+    private static final long ID_TIMEOUT_SECONDS = 30;
+    private static final long ECHO_DRAIN_MILLIS = 2000;
+
+    private final ReplayOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final RestTemplate rest = new RestTemplate();
+    private final WebSocketStompClient stompClient;
+
+    private final Map<Long, CompletableFuture<Long>> documents = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Long>> templates = new ConcurrentHashMap<>();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final Map<String, StompSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, PendingEdit> pendingEdits = new ConcurrentHashMap<>();
+    private final AtomicLong editSequence = new AtomicLong();
+    private final AtomicLong maxStartLagNanos = new AtomicLong();
+
+    TrafficReplay(ReplayOptions options) {
+        this.options = options;
+        rest.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+        stompClient = new WebSocketStompClient(
+                new SockJsClient(Collections.singletonList(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+    }
+
+    public static void main(String[] args) throws Exception {
+        ReplayOptions options = ReplayOptions.parse(args);
+        ReplayReport report = run(options);
+
+        System.out.printf("%-52s %8s %7s %7s %10s %10s %10s %10s%n", "endpoint", "requests", "failed", "skipped",
+                "p50 ms", "p99 ms", "capt p50", "capt p99");
+        for (ReplayReport.EndpointResult endpoint : report.getEndpoints()) {
+            System.out.printf("%-52s %8d %7d %7d %10.2f %10.2f %10.2f %10.2f%n", endpoint.getEndpoint(),
+                    endpoint.getRequests(), endpoint.getFailed(), endpoint.getSkipped(),
+                    endpoint.getReplayLatencyMillis().getP50(), endpoint.getReplayLatencyMillis().getP99(),
+                    endpoint.getCapturedLatencyMillis().getP50(), endpoint.getCapturedLatencyMillis().getP99());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(options.getOutput()), report);
+        System.out.printf("Replayed %d requests of %.1f s in %.1f s; results in %s%n", report.getRequests(),
+                report.getCaptureSeconds(), report.getReplaySeconds(), options.getOutput());
+        System.exit(0);
+    }
+
+    public static ReplayReport run(ReplayOptions options) throws Exception {
+        return new TrafficReplay(options).replay(read(Paths.get(options.getCapture())));
+    }
+
+    static List<CapturedExchange> read(Path file) throws IOException {
+        List<CapturedExchange> exchanges = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    exchanges.add(CapturedExchange.parse(line));
+                }
+            }
+        }
+        exchanges.sort(Comparator.comparingLong(CapturedExchange::getOffsetMicros));
+        return exchanges;
+    }
+
+    private ReplayReport replay(List<CapturedExchange> exchanges) throws Exception {
+        for (CapturedExchange exchange : exchanges) {
+            if (exchange.getCreatedId() != null) {
+                (createsTemplate(exchange) ? templates : documents).put(exchange.getCreatedId(), new CompletableFuture<>());
+            }
+            endpoint(exchange).captured.recordValue(Math.min(MAX_LATENCY_MICROS, exchange.getDurationMicros()));
+        }
+        recreateExisting(exchanges);
+        connectEditors(exchanges);
+
+        long firstOffset = exchanges.isEmpty() ? 0 : exchanges.get(0).getOffsetMicros();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(options.getThreads());
+        CountDownLatch done = new CountDownLatch(exchanges.size());
+        long start = System.nanoTime();
+        for (CapturedExchange exchange : exchanges) {
+            long dueNanos = (long) ((exchange.getOffsetMicros() - firstOffset) * 1000 / options.getSpeed());
+            scheduler.schedule(() -> {
+                try {
+                    maxStartLagNanos.accumulateAndGet(System.nanoTime() - start - dueNanos, Math::max);
+                    send(exchange);
+                } finally {
+                    done.countDown();
+                }
+            }, dueNanos, TimeUnit.NANOSECONDS);
+        }
+        done.await();
+        Thread.sleep(ECHO_DRAIN_MILLIS);
+        long replayNanos = System.nanoTime() - start - TimeUnit.MILLISECONDS.toNanos(ECHO_DRAIN_MILLIS);
+        scheduler.shutdownNow();
+        for (StompSession session : sessions.values()) {
+            session.disconnect();
+        }
+        stompClient.stop();
+
+        // Edits still waiting for their broadcast never made it
+        for (PendingEdit edit : pendingEdits.values()) {
+            edit.endpoint.failed.increment();
+        }
+
+        ReplayReport report = new ReplayReport();
+        report.setCapture(options.getCapture());
+        report.setSpeed(options.getSpeed());
+        report.setRequests(exchanges.size());
+        if (!exchanges.isEmpty()) {
+            CapturedExchange last = exchanges.get(exchanges.size() - 1);
+            report.setCaptureSeconds((last.getOffsetMicros() + last.getDurationMicros() - firstOffset) / 1e6);
+        }
+        report.setReplaySeconds(replayNanos / 1e9);
+        report.setMaxStartLagMillis(Math.max(0, maxStartLagNanos.get()) / 1e6);
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            report.getEndpoints().add(new ReplayReport.EndpointResult(entry.getKey(), endpoint.requests.sum(),
+                    endpoint.failed.sum(), endpoint.skipped.sum(), endpoint.replayed.getIntervalHistogram(), endpoint.captured));
+        }
+        return report;
+    }
+
+    private void send(CapturedExchange exchange) {
+        Endpoint endpoint = endpoint(exchange);
+        endpoint.requests.increment();
+        try {
+            if (CapturedExchange.STOMP.equals(exchange.getKind())) {
+                sendEdit(exchange, endpoint);
+            } else {
+                sendRequest(exchange, endpoint);
+            }
+        } catch (UnresolvedIdException e) {
+            endpoint.skipped.increment();
+            created(exchange).ifPresent(future -> future.completeExceptionally(e));
+        } catch (RuntimeException | IOException e) {
+            endpoint.failed.increment();
+            created(exchange).ifPresent(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void sendRequest(CapturedExchange exchange, Endpoint endpoint) throws IOException {
+        String path = replayPath(exchange);
+        HttpHeaders headers = new HttpHeaders();
+        if (exchange.getUser() != null) {
+            headers.setBearerAuth(token(exchange.getUser()));
+        }
+        byte[] body = null;
+        if (exchange.getBody() != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            body = objectMapper.writeValueAsBytes(expand(objectMapper.readTree(exchange.getBody())));
+        }
+
+        long start = System.nanoTime();
+        ResponseEntity<byte[]> response = rest.exchange(URI.create(options.getTarget() + path),
+                HttpMethod.resolve(exchange.getMethod()), new HttpEntity<>(body, headers), byte[].class);
+        endpoint.replayed(System.nanoTime() - start);
+
+        boolean failed = response.getStatusCodeValue() >= 400 && exchange.getStatus() < 400;
+        if (failed) {
+            endpoint.failed.increment();
+        }
+        if (exchange.getCreatedId() != null) {
+            JsonNode id = !failed && response.getBody() != null ? objectMapper.readTree(response.getBody()).get("id") : null;
+            if (id != null && id.canConvertToLong()) {
+                created(exchange).get().complete(id.asLong());
+            } else {
+                created(exchange).get().completeExceptionally(new UnresolvedIdException("No id in response to " + path));
+            }
+        }
+    }
+
+    private void sendEdit(CapturedExchange exchange, Endpoint endpoint) throws IOException {
+        ObjectNode payload = (ObjectNode) expand(objectMapper.readTree(exchange.getBody()));
+        long documentId = resolve(documents, payload.path("documentId").asLong());
+        StompSession session = sessions.get(exchange.getUser());
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("No STOMP session for " + exchange.getUser());
+        }
+
+        String clientOpId = "replay-" + editSequence.incrementAndGet();
+        payload.put("documentId", documentId);
+        payload.put("clientOpId", clientOpId);
+        pendingEdits.put(clientOpId, new PendingEdit(System.nanoTime(), endpoint));
+        session.send(exchange.getPath(), payload);
+    }
+
+    /**
+     * Documents and templates used but not created during the capture existed before it; create
+     * them now so the replayed requests find them.
+     */
+    private void recreateExisting(List<CapturedExchange> exchanges) throws IOException {
+        Map<Long, Set<String>> documentUsers = new LinkedHashMap<>();
+        Map<Long, String> templateOwners = new LinkedHashMap<>();
+        for (CapturedExchange exchange : exchanges) {
+            Long document = capturedDocumentId(exchange);
+            if (document != null && !documents.containsKey(document)) {
+                Set<String> users = documentUsers.computeIfAbsent(document, id -> new LinkedHashSet<>());
+                if (exchange.getUser() != null) {
+                    users.add(exchange.getUser());
+                }
+            }
+            Long template = capturedTemplateId(exchange);
+            if (template != null && !templates.containsKey(template) && exchange.getUser() != null) {
+                templateOwners.putIfAbsent(template, exchange.getUser());
+            }
+        }
+
+        for (Map.Entry<Long, Set<String>> entry : documentUsers.entrySet()) {
+            Iterator<String> users = entry.getValue().iterator();
+            String owner = users.hasNext() ? users.next() : "replay-owner";
+            ObjectNode document = objectMapper.createObjectNode()
+                    .put("title", "Recreated " + entry.getKey())
+                    .put("content", filler(1000));
+            long id = create(DOCUMENTS, owner, document);
+            documents.put(entry.getKey(), CompletableFuture.completedFuture(id));
+            while (users.hasNext()) {
+                ObjectNode share = objectMapper.createObjectNode().put("sharedWithUser", users.next()).put("permission", "WRITE");
+                post(DOCUMENTS + "/" + id + "/share", owner, share);
+            }
+        }
+        for (Map.Entry<Long, String> entry : templateOwners.entrySet()) {
+            ObjectNode template = objectMapper.createObjectNode()
+                    .put("name", "Recreated " + entry.getKey())
+                    .put("description", filler(100))
+                    .put("content", filler(1000))
+                    .put("category", "General");
+            templates.put(entry.getKey(), CompletableFuture.completedFuture(create(TEMPLATES, entry.getValue(), template)));
+        }
+    }
+
+    /** Connects every user who edits over STOMP, subscribed to each document they edit once it exists. */
+    private void connectEditors(List<CapturedExchange> exchanges) throws Exception {
+        Map<String, Set<Long>> editedDocuments = new LinkedHashMap<>();
+        for (CapturedExchange exchange : exchanges) {
+            if (CapturedExchange.STOMP.equals(exchange.getKind()) && exchange.getUser() != null) {
+                editedDocuments.computeIfAbsent(exchange.getUser(), user -> new LinkedHashSet<>()).add(capturedDocumentId(exchange));
+            }
+        }
+
+        for (Map.Entry<String, Set<Long>> entry : editedDocuments.entrySet()) {
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.set("Authorization", "Bearer " + token(entry.getKey()));
+            StompSession session = stompClient.connect(options.getTarget() + "/ws", new WebSocketHttpHeaders(), connectHeaders,
+                    new StompSessionHandlerAdapter() {
+                    }).get(30, TimeUnit.SECONDS);
+            sessions.put(entry.getKey(), session);
+            for (Long captured : entry.getValue()) {
+                CompletableFuture<Long> id = captured != null ? documents.get(captured) : null;
+                if (id != null) {
+                    id.thenAccept(documentId -> subscribe(session, documentId));
+                }
+            }
+        }
+    }
+
+    private void subscribe(StompSession session, long documentId) {
+        session.subscribe("/topic/document/" + documentId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                Object clientOpId = ((Map<?, ?>) payload).get("clientOpId");
+                PendingEdit edit = clientOpId != null ? pendingEdits.remove(clientOpId.toString()) : null;
+                if (edit != null) {
+                    edit.endpoint.replayed(System.nanoTime() - edit.sentAt);
+                }
+            }
+        });
+    }
+
+    private long create(String path, String user, JsonNode body) throws IOException {
+        ResponseEntity<byte[]> response = post(path, user, body);
+        JsonNode id = response.getBody() != null ? objectMapper.readTree(response.getBody()).get("id") : null;
+        if (response.getStatusCodeValue() >= 400 || id == null) {
+            throw new IllegalStateException("Creating " + path + " for " + user + " failed with " + response.getStatusCodeValue());
+        }
+        return id.asLong();
+    }
+
+    private ResponseEntity<byte[]> post(String path, String user, JsonNode body) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token(user));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return rest.exchange(URI.create(options.getTarget() + path), HttpMethod.POST,
+                new HttpEntity<>(objectMapper.writeValueAsBytes(body), headers), byte[].class);
+    }
+
+    /** The captured path with document and template ids replaced by their replay ids. */
+    private String replayPath(CapturedExchange exchange) {
+        String path = exchange.getPath();
+        int query = path.indexOf('?');
+        Map<String, String> variables = variables(exchange);
+        if (variables.containsKey("id")) {
+            Map<Long, CompletableFuture<Long>> ids = exchange.getEndpoint().startsWith(TEMPLATES + "/") ? templates : documents;
+            variables.put("id", String.valueOf(resolve(ids, Long.parseLong(variables.get("id")))));
+        }
+
+        StringBuilder replayPath = new StringBuilder();
+        for (String segment : exchange.getEndpoint().split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                segment = variables.get(segment.substring(1, segment.length() - 1));
+            }
+            replayPath.append('/').append(segment);
+        }
+        return query >= 0 ? replayPath + path.substring(query) : replayPath.toString();
+    }
+
+    private Map<String, String> variables(CapturedExchange exchange) {
+        String path = exchange.getPath();
+        int query = path.indexOf('?');
+        path = query >= 0 ? path.substring(0, query) : path;
+        if (!CapturedExchange.HTTP.equals(exchange.getKind()) || !pathMatcher.match(exchange.getEndpoint(), path)) {
+            return new LinkedHashMap<>();
+        }
+        return new LinkedHashMap<>(pathMatcher.extractUriTemplateVariables(exchange.getEndpoint(), path));
+    }
+
+    private Long capturedDocumentId(CapturedExchange exchange) {
+        if (CapturedExchange.STOMP.equals(exchange.getKind())) {
+            try {
+                JsonNode id = exchange.getBody() != null ? objectMapper.readTree(exchange.getBody()).get("documentId") : null;
+                return id != null && id.canConvertToLong() ? id.asLong() : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        String id = exchange.getEndpoint().startsWith(TEMPLATES + "/") ? null : variables(exchange).get("id");
+        return id != null ? Long.valueOf(id) : null;
+    }
+
+    private Long capturedTemplateId(CapturedExchange exchange) {
+        String id = exchange.getEndpoint().startsWith(TEMPLATES + "/") ? variables(exchange).get("id") : null;
+        return id != null ? Long.valueOf(id) : null;
+    }
+
+    private boolean createsTemplate(CapturedExchange exchange) {
+        return TEMPLATES.equals(exchange.getEndpoint());
+    }
+
+    private Optional<CompletableFuture<Long>> created(CapturedExchange exchange) {
+        if (exchange.getCreatedId() == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((createsTemplate(exchange) ? templates : documents).get(exchange.getCreatedId()));
+    }
+
+    private long resolve(Map<Long, CompletableFuture<Long>> ids, long capturedId) {
+        CompletableFuture<Long> id = ids.get(capturedId);
+        if (id == null) {
+            throw new UnresolvedIdException("Id " + capturedId + " is not known to the replay");
+        }
+        try {
+            return id.get(ID_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new UnresolvedIdException("Id " + capturedId + " could not be created in the replay");
+        }
+    }
+
+    /** Replaces redacted strings with filler text of the captured length and drops revision preconditions. */
+    private JsonNode expand(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            if (object.size() == 1 && object.has(CapturedExchange.LENGTH_MARKER)) {
+                return TextNode.valueOf(filler(object.get(CapturedExchange.LENGTH_MARKER).asInt()));
+            }
+            object.remove("baseRevision");
+            object.remove("version");
+            List<String> names = new ArrayList<>();
+            object.fieldNames().forEachRemaining(names::add);
+            for (String name : names) {
+                object.set(name, expand(object.get(name)));
+            }
+        } else if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, expand(array.get(i)));
+            }
+        }
+        return node;
+    }
+
+    private String token(String user) {
+        return tokens.computeIfAbsent(user, subject -> Jwts.builder()
+                .setSubject(subject)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(SignatureAlgorithm.HS256, options.getJwtSecret())
+                .compact());
+    }
+
+    private Endpoint endpoint(CapturedExchange exchange) {
+        return endpoints.computeIfAbsent(exchange.getMethod() + " " + exchange.getEndpoint(), name -> new Endpoint());
+    }
+
+    static String filler(int length) {
+        StringBuilder text = new StringBuilder(length + FILLER.length());
+        while (text.length() < length) {
+            text.append(FILLER);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    private static class Endpoint {
+        private final Recorder replayed = new Recorder(MAX_LATENCY_MICROS, 3);
+        private final Histogram captured = new Histogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+        void replayed(long nanos) {
+            replayed.recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(0, nanos / 1000)));
+        }
+    }
+
+    private static class PendingEdit {
+        private final long sentAt;
+        private final Endpoint endpoint;
+
+        PendingEdit(long sentAt, Endpoint endpoint) {
+            this.sentAt = sentAt;
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static class UnresolvedIdException extends RuntimeException {
+        UnresolvedIdException(String message) {
+            super(message);
+        }
+    }
+}
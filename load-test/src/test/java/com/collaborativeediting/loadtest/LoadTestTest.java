@@ -0,0 +1,36 @@
+package com.collaborativeediting.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadTestTest {
+
+    @Test
+    public void testSmallRunMeasuresEveryOperation() throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(new String[] {
+                "--clients=2,4", "--documents=2", "--typing-rate=20", "--warmup-seconds=1",
+                "--duration-seconds=2", "--slo-p99-ms=5000", "--documents.wal.enabled=false"});
+
+        LoadTestReport report = LoadTest.run(options);
+
+        assertEquals(2, report.getLevels().size());
+        for (LevelResult level : report.getLevels()) {
+            assertTrue(level.getAppliedOpsPerSecond() > 0);
+            assertEquals(0, level.getLostOperations());
+            assertEquals(0, level.getErrors());
+            assertTrue(level.getEchoLatencyMillis().getCount() > 0);
+            assertTrue(level.getBroadcastLatencyMillis().getCount() >= level.getEchoLatencyMillis().getCount());
+        }
+        assertEquals(4, report.getCapacityClients());
+    }
+
+    @Test
+    public void testUnknownOptionsGoToTheService() {
+        LoadTestOptions options = LoadTestOptions.parse(new String[] {"--clients=5", "--documents.wal.fsync-policy=ALWAYS"});
+
+        assertEquals(1, options.getClientLevels().size());
+        assertEquals(5, options.getClientLevels().get(0).intValue());
+        assertEquals(1, options.getServiceArguments().size());
+    }
+}
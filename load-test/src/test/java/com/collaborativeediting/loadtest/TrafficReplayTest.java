@@ -0,0 +1,62 @@
+package com.collaborativeediting.loadtest;
+
+import com.collaborativeediting.documentediting.CapturedExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficReplayTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReplayRemapsIdsAndReportsEveryEndpoint() throws Exception {
+        Path capture = directory.resolve("capture.tsv.gz");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(capture)), StandardCharsets.UTF_8))) {
+            writer.write(CapturedExchange.HEADER + "\n");
+            // Document 7 is created during the capture, document 42 existed before it
+            write(writer, new CapturedExchange(0, CapturedExchange.HTTP, "POST", "/api/documents", "/api/documents",
+                    "user-a", 200, 4000, 7L, "{\"title\":{\"$len\":5},\"content\":{\"$len\":200}}"));
+            write(writer, new CapturedExchange(200_000, CapturedExchange.HTTP, "PUT", "/api/documents/{id}", "/api/documents/7",
+                    "user-a", 200, 6000, null, "{\"content\":{\"$len\":240},\"baseRevision\":3}"));
+            write(writer, new CapturedExchange(300_000, CapturedExchange.HTTP, "GET", "/api/documents/{id}/export/{format}",
+                    "/api/documents/7/export/html", "user-a", 200, 3000, null, null));
+            write(writer, new CapturedExchange(400_000, CapturedExchange.HTTP, "GET", "/api/documents/{id}", "/api/documents/42",
+                    "user-b", 200, 2000, null, null));
+            write(writer, new CapturedExchange(1_000_000, CapturedExchange.STOMP, "SEND", "/app/edit", "/app/edit",
+                    "user-a", 200, 300, null, "{\"documentId\":7,\"username\":\"user-a\",\"position\":0,\"deleteCount\":0,\"text\":{\"$len\":1},\"revision\":0}"));
+        }
+
+        try (ConfigurableApplicationContext service = LoadTest.startService(LoadTestOptions.parse(new String[] {"--documents.wal.enabled=false"}))) {
+            ReplayOptions options = ReplayOptions.parse(new String[] {"--capture=" + capture, "--speed=2",
+                    "--target=http://localhost:" + service.getEnvironment().getProperty("local.server.port")});
+
+            ReplayReport report = TrafficReplay.run(options);
+
+            assertEquals(5, report.getRequests());
+            assertEquals(5, report.getEndpoints().size());
+            for (ReplayReport.EndpointResult endpoint : report.getEndpoints()) {
+                assertEquals(1, endpoint.getRequests(), endpoint.getEndpoint());
+                assertEquals(0, endpoint.getFailed(), endpoint.getEndpoint());
+                assertEquals(0, endpoint.getSkipped(), endpoint.getEndpoint());
+                assertEquals(1, endpoint.getReplayLatencyMillis().getCount(), endpoint.getEndpoint());
+            }
+            assertEquals(6.0, report.endpoint("PUT /api/documents/{id}").getCapturedLatencyMillis().getMax(), 0.01);
+        }
+    }
+
+    private static void write(Writer writer, CapturedExchange exchange) throws Exception {
+        writer.write(exchange.format() + "\n");
+    }
+}
@@ -15,10 +15,10 @@ echo Starting API Gateway...
 start "API Gateway" cmd /k "cd api-gateway && java -jar target\api-gateway-1.0.0.jar"
 
 echo Starting User Management Service...
-start "User Management" cmd /k "cd user-management-service && java -jar target\user-management-service-1.0.0.jar"
+start "User Management" cmd /k "cd user-management-service && java -jar target\user-management-service-1.0.0-exec.jar"
 
 echo Starting Document Editing Service...
-start "Document Editing" cmd /k "cd document-editing-service && java -jar target\document-editing-service-1.0.0.jar"
+start "Document Editing" cmd /k "cd document-editing-service && java -jar target\document-editing-service-1.0.0-exec.jar"
 
 echo Starting Version Control Service...
 start "Version Control" cmd /k "cd version-control-service && java -jar target\version-control-service-1.0.0.jar"
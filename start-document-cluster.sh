@@ -0,0 +1,49 @@
+#!/bin/bash
+
+# Starts several document-editing-service instances behind the API gateway to try out
+# document affinity routing locally. Usage: ./start-document-cluster.sh [instance-count]
+
+COUNT=${1:-3}
+BASE_PORT=8082
+# Instances share one H2 file database so document ids are the same everywhere; the
+# persistent profile creates its schema with the Flyway migrations
+SHARED_DB="jdbc:h2:file:$(pwd)/data/docdb;AUTO_SERVER=TRUE"
+
+echo "========================================"
+echo " Document Editing Cluster ($COUNT instances)"
+echo "========================================"
+echo ""
+
+PIDS=()
+INSTANCES=""
+mkdir -p data
+
+for ((i = 0; i < COUNT; i++)); do
+    PORT=$((BASE_PORT + i * 10))
+    echo "Starting Document Editing Service on port $PORT..."
+    (cd document-editing-service && mvn spring-boot:run -Dspring-boot.run.arguments="--server.port=$PORT --spring.profiles.active=persistent --spring.datasource.url=$SHARED_DB") &
+    PIDS+=($!)
+    INSTANCES="${INSTANCES:+$INSTANCES,}http://localhost:$PORT"
+    sleep 5
+done
+
+echo "Starting API Gateway routing to $INSTANCES..."
+(cd api-gateway && mvn spring-boot:run -Dspring-boot.run.arguments="--gateway.documents.instances=$INSTANCES") &
+PIDS+=($!)
+
+echo ""
+echo "API Gateway at: http://localhost:8080"
+echo "Stop an instance to watch its documents move to the remaining ones."
+echo "Press Ctrl+C to stop all services"
+
+cleanup() {
+    echo "Stopping all services..."
+    for PID in "${PIDS[@]}"; do
+        kill $PID 2>/dev/null
+    done
+    exit 0
+}
+
+trap cleanup SIGINT SIGTERM
+
+wait
@@ -0,0 +1,255 @@
+package com.collaborativeediting.tracing;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local span collector. Finished spans of the most recent traces are kept in memory and served by
+ * the {@code spans} actuator endpoint, and every span is appended as one JSON line to
+ * {@code tracing.file}. All services write to the same directory, so a request's latency
+ * breakdown across the gateway and backends can be read by its trace id. Finishing a span only
+ * adds it to concurrent queues; a background thread writes the file.
+ */
+@Endpoint(id = "spans")
+public class TraceCollector extends SpanHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceCollector.class);
+
+    @Value("${tracing.max-traces:1000}")
+    private int maxTraces;
+
+    @Value("${tracing.file:}")
+    private String file;
+
+    @Value("${tracing.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Queue<SpanRecord>> traces = new ConcurrentHashMap<>();
+    // Trace ids in arrival order, so the oldest trace is the one dropped
+    private final Queue<String> arrivals = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger traceCount = new AtomicInteger();
+    private final Queue<SpanRecord> unwritten = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService fileWriter;
+    private Writer writer;
+
+    @PostConstruct
+    public void open() {
+        if (file.isEmpty()) {
+            return;
+        }
+        try {
+            Path path = Paths.get(file);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Cannot open trace file {}, keeping spans in memory only", file, e);
+            return;
+        }
+        fileWriter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "trace-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, flushIntervalMs);
+        fileWriter.scheduleWithFixedDelay(this::write, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (fileWriter != null) {
+            fileWriter.shutdown();
+            fileWriter.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        synchronized (this) {
+            write();
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause != Cause.FINISHED) {
+            return true;
+        }
+        SpanRecord record = new SpanRecord(span);
+        Queue<SpanRecord> spans = traces.get(record.traceId);
+        if (spans == null) {
+            Queue<SpanRecord> started = new ConcurrentLinkedQueue<>();
+            spans = traces.putIfAbsent(record.traceId, started);
+            if (spans == null) {
+                spans = started;
+                arrivals.add(record.traceId);
+                if (traceCount.incrementAndGet() > maxTraces) {
+                    evictOldest();
+                }
+            }
+        }
+        spans.add(record);
+        if (writer != null) {
+            unwritten.add(record);
+        }
+        return true;
+    }
+
+    /** Most recent traces first, one summary line each. */
+    @ReadOperation
+    public List<TraceSummary> recentTraces() {
+        List<TraceSummary> summaries = new ArrayList<>(traces.size());
+        for (Queue<SpanRecord> spans : traces.values()) {
+            List<SpanRecord> snapshot = new ArrayList<>(spans);
+            if (!snapshot.isEmpty()) {
+                summaries.add(new TraceSummary(snapshot));
+            }
+        }
+        summaries.sort(Comparator.comparingLong(TraceSummary::getStartMicros).reversed());
+        return summaries;
+    }
+
+    /** Spans of one trace in start order. */
+    @ReadOperation
+    public List<SpanRecord> trace(@Selector String traceId) {
+        Queue<SpanRecord> spans = traces.get(traceId);
+        if (spans == null) {
+            return Collections.emptyList();
+        }
+        List<SpanRecord> sorted = new ArrayList<>(spans);
+        sorted.sort(Comparator.comparingLong(SpanRecord::getStartMicros));
+        return sorted;
+    }
+
+    private void evictOldest() {
+        String oldest = arrivals.poll();
+        if (oldest != null) {
+            traces.remove(oldest);
+            traceCount.decrementAndGet();
+        }
+    }
+
+    // Runs on the writer thread, and once more on close
+    private synchronized void write() {
+        if (writer == null) {
+            unwritten.clear();
+            return;
+        }
+        try {
+            SpanRecord record;
+            while ((record = unwritten.poll()) != null) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("Writing to trace file {} failed, keeping spans in memory only", file, e);
+            writer = null;
+        }
+    }
+
+    public static class SpanRecord {
+        private final String traceId;
+        private final String spanId;
+        private final String parentId;
+        private final String service;
+        private final String name;
+        private final String kind;
+        private final long startMicros;
+        private final long durationMicros;
+        private final Map<String, String> tags;
+        private final String error;
+
+        SpanRecord(MutableSpan span) {
+            this.traceId = span.traceId();
+            this.spanId = span.id();
+            this.parentId = span.parentId();
+            this.service = span.localServiceName();
+            this.name = span.name();
+            this.kind = span.kind() != null ? span.kind().name() : null;
+            this.startMicros = span.startTimestamp();
+            this.durationMicros = span.finishTimestamp() - span.startTimestamp();
+            this.tags = new LinkedHashMap<>(span.tags());
+            this.error = span.error() != null ? span.error().toString() : span.tag("error");
+        }
+
+        public String getTraceId() { return traceId; }
+        public String getSpanId() { return spanId; }
+        public String getParentId() { return parentId; }
+        public String getService() { return service; }
+        public String getName() { return name; }
+        public String getKind() { return kind; }
+        public long getStartMicros() { return startMicros; }
+        public long getDurationMicros() { return durationMicros; }
+        public Map<String, String> getTags() { return tags; }
+        public String getError() { return error; }
+    }
+
+    public static class TraceSummary {
+        private final String traceId;
+        private final String rootName;
+        private final long startMicros;
+        private final long durationMicros;
+        private final int spanCount;
+
+        TraceSummary(List<SpanRecord> spans) {
+            SpanRecord root = spans.get(0);
+            long start = Long.MAX_VALUE;
+            long end = Long.MIN_VALUE;
+            for (SpanRecord span : spans) {
+                if (span.startMicros < root.startMicros) {
+                    root = span;
+                }
+                start = Math.min(start, span.startMicros);
+                end = Math.max(end, span.startMicros + span.durationMicros);
+            }
+            this.traceId = root.traceId;
+            this.rootName = root.name;
+            this.startMicros = start;
+            this.durationMicros = end - start;
+            this.spanCount = spans.size();
+        }
+
+        public String getTraceId() { return traceId; }
+        public String getRootName() { return rootName; }
+        public long getStartMicros() { return startMicros; }
+        public long getDurationMicros() { return durationMicros; }
+        public int getSpanCount() { return spanCount; }
+    }
+}
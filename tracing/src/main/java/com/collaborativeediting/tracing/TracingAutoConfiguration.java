@@ -0,0 +1,35 @@
+package com.collaborativeediting.tracing;
+
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Registers the span collector in every service that has this module on its classpath, and the
+ * per-call service and repository spans where {@code tracing.service-spans} is set.
+ */
+@AutoConfiguration
+public class TracingAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceCollector traceCollector() {
+        return new TraceCollector();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass({Aspect.class, Repository.class})
+    @ConditionalOnProperty(name = "tracing.service-spans", havingValue = "true")
+    static class ServiceSpans {
+
+        @Bean
+        public TracingAspect tracingAspect() {
+            return new TracingAspect();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.collaborativeediting.tracing;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceCollectorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testKeepsTheMostRecentTracesAndWritesEverySpan() throws Exception {
+        Path file = directory.resolve("spans.jsonl");
+        TraceCollector collector = new TraceCollector();
+        ReflectionTestUtils.setField(collector, "maxTraces", 3);
+        ReflectionTestUtils.setField(collector, "file", file.toString());
+        ReflectionTestUtils.setField(collector, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(collector, "objectMapper", new ObjectMapper());
+        collector.open();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    collector.end(null, span(String.format("%016x", thread * 1000 + i + 1), i), SpanHandler.Cause.FINISHED);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        collector.end(null, span("00000000000000ff", 1), SpanHandler.Cause.FINISHED);
+        collector.end(null, span("00000000000000ff", 2), SpanHandler.Cause.FINISHED);
+        collector.close();
+
+        assertEquals(3, collector.recentTraces().size());
+        assertEquals(2, collector.trace("00000000000000ff").size());
+        assertTrue(collector.trace("0000000000000001").isEmpty());
+        assertEquals(1002, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    private static MutableSpan span(String traceId, long start) {
+        MutableSpan span = new MutableSpan();
+        span.traceId(traceId);
+        span.id(String.format("%016x", start + 1));
+        span.name("call");
+        span.startTimestamp(start);
+        span.finishTimestamp(start + 10);
+        return span;
+    }
+}
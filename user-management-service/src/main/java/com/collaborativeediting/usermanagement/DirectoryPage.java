@@ -0,0 +1,20 @@
+package com.collaborativeediting.usermanagement;
+
+import java.util.List;
+
+/**
+ * One page of the user directory, with the cursor for the next page or null after the last.
+ */
+public class DirectoryPage {
+
+    private final List<UserSummary> users;
+    private final String nextAfter;
+
+    public DirectoryPage(List<UserSummary> users, String nextAfter) {
+        this.users = users;
+        this.nextAfter = nextAfter;
+    }
+
+    public List<UserSummary> getUsers() { return users; }
+    public String getNextAfter() { return nextAfter; }
+}
@@ -2,8 +2,12 @@ package com.collaborativeediting.usermanagement;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.security.Key;
 import java.util.Date;
 
@@ -13,25 +17,37 @@ public class JwtUtil {
     private static final String SECRET_KEY = "mySecretKeyForJwtTokenGenerationWhichIsLongEnough";
     private static final long EXPIRATION_TIME = 86400000; // 1 day
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer issueTimer;
+    private Timer parseTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        issueTimer = Timer.builder("users.jwt").tag("operation", "issue").register(meterRegistry);
+        parseTimer = Timer.builder("users.jwt").tag("operation", "parse").register(meterRegistry);
+    }
+
     private String getSigningKey() {
         return SECRET_KEY;
     }
 
     public String generateToken(String username) {
-        return Jwts.builder()
+        return issueTimer.record(() -> Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
                 .signWith(SignatureAlgorithm.HS256, getSigningKey())
-                .compact();
+                .compact());
     }
 
     public String extractUsername(String token) {
-        return Jwts.parser()
+        return parseTimer.record(() -> Jwts.parser()
                 .setSigningKey(getSigningKey())
                 .parseClaimsJws(token)
                 .getBody()
-                .getSubject();
+                .getSubject());
     }
 
     public boolean validateToken(String token, String username) {
@@ -40,11 +56,11 @@ public class JwtUtil {
     }
 
     private boolean isTokenExpired(String token) {
-        return Jwts.parser()
+        return parseTimer.record(() -> Jwts.parser()
                 .setSigningKey(getSigningKey())
                 .parseClaimsJws(token)
                 .getBody()
                 .getExpiration()
-                .before(new Date());
+                .before(new Date()));
     }
 }
@@ -0,0 +1,25 @@
+package com.collaborativeediting.usermanagement;
+
+public enum Permission {
+    CREATE_DOCUMENT,
+    EDIT_DOCUMENT,
+    DELETE_DOCUMENT,
+    MANAGE_USERS,
+    VIEW_ALL_DOCUMENTS;
+
+    long bit() {
+        return 1L << ordinal();
+    }
+
+    /**
+     * The permission with the given name, or null for names that are not permissions.
+     */
+    public static Permission fromName(String name) {
+        for (Permission permission : values()) {
+            if (permission.name().equals(name)) {
+                return permission;
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.collaborativeediting.usermanagement;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -12,17 +13,22 @@ import org.springframework.security.web.SecurityFilterChain;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    @Value("${users.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf().disable()
             .authorizeRequests()
             .antMatchers("/api/auth/register", "/api/auth/login", "/api/users/register", "/api/users/login").permitAll()
+            .antMatchers("/actuator/health", "/actuator/metrics/**", "/actuator/prometheus").permitAll()
             .anyRequest().authenticated();
         return http.build();
     }
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Raising the strength makes existing hashes get upgraded on the users' next login
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 }
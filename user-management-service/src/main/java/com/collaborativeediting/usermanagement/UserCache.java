@@ -0,0 +1,73 @@
+package com.collaborativeediting.usermanagement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of users by username for the profile and permission lookups. Entries expire
+ * after {@code ttl-ms} and are dropped explicitly whenever the service changes a user.
+ */
+@Component
+public class UserCache {
+
+    @Value("${users.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${users.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // Bumped on every invalidation so that a load racing with an update is not cached
+    private long generation;
+
+    public Optional<User> get(String username, Supplier<Optional<User>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(username);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt < ttlMs) {
+                return Optional.of(entry.user);
+            }
+            loadGeneration = generation;
+        }
+
+        Optional<User> user = loader.get();
+        if (user.isPresent()) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(username, new Entry(user.get(), System.currentTimeMillis()));
+                }
+            }
+        }
+        return user;
+    }
+
+    public synchronized void invalidate(String username) {
+        entries.remove(username);
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final User user;
+        private final long loadedAt;
+
+        Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -45,17 +45,30 @@ public class UserController {
     @GetMapping("/all")
     public ResponseEntity<List<User>> getAllUsers(@RequestHeader("Authorization") String token) {
         String username = extractUsernameFromToken(token);
-        if (!userService.hasPermission(username, "MANAGE_USERS")) {
+        if (!userService.hasPermission(username, Permission.MANAGE_USERS)) {
             return ResponseEntity.status(403).build();
         }
         List<User> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/users/search")
+    public ResponseEntity<List<UserSummary>> searchUsers(@RequestHeader("Authorization") String token, @RequestParam("q") String query, @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        // Only registered users may look others up
+        userService.getUserProfile(extractUsernameFromToken(token));
+        return ResponseEntity.ok(userService.searchUsers(query, limit));
+    }
+
+    @GetMapping("/users/directory")
+    public ResponseEntity<DirectoryPage> getUserDirectory(@RequestHeader("Authorization") String token, @RequestParam(value = "after", required = false) String after, @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        userService.getUserProfile(extractUsernameFromToken(token));
+        return ResponseEntity.ok(userService.getUserDirectory(after, limit));
+    }
+
     @PutMapping("/{userId}/role")
     public ResponseEntity<User> updateUserRole(@PathVariable Long userId, @RequestBody UpdateRoleRequest request, @RequestHeader("Authorization") String token) {
         String requestingUsername = extractUsernameFromToken(token);
-        if (!userService.hasPermission(requestingUsername, "MANAGE_USERS")) {
+        if (!userService.hasPermission(requestingUsername, Permission.MANAGE_USERS)) {
             return ResponseEntity.status(403).build();
         }
 
@@ -71,12 +84,13 @@ public class UserController {
         User user = userService.getUserProfile(username);
 
         UserPermissions permissions = new UserPermissions();
-        permissions.setRole(user.getRole());
-        permissions.setCanCreateDocument(userService.hasPermission(username, "CREATE_DOCUMENT"));
-        permissions.setCanEditDocument(userService.hasPermission(username, "EDIT_DOCUMENT"));
-        permissions.setCanDeleteDocument(userService.hasPermission(username, "DELETE_DOCUMENT"));
-        permissions.setCanManageUsers(userService.hasPermission(username, "MANAGE_USERS"));
-        permissions.setCanViewAllDocuments(userService.hasPermission(username, "VIEW_ALL_DOCUMENTS"));
+        UserRole role = user.getRole();
+        permissions.setRole(role);
+        permissions.setCanCreateDocument(role.grants(Permission.CREATE_DOCUMENT));
+        permissions.setCanEditDocument(role.grants(Permission.EDIT_DOCUMENT));
+        permissions.setCanDeleteDocument(role.grants(Permission.DELETE_DOCUMENT));
+        permissions.setCanManageUsers(role.grants(Permission.MANAGE_USERS));
+        permissions.setCanViewAllDocuments(role.grants(Permission.VIEW_ALL_DOCUMENTS));
 
         return ResponseEntity.ok(permissions);
     }
@@ -0,0 +1,99 @@
+package com.collaborativeediting.usermanagement;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory prefix index over username and name. Every searchable term is stored as
+ * {@code term + '\0' + username} in a sorted map, so a prefix query is a range scan. Updated by
+ * UserService as users register or change their profile; reads never block.
+ */
+@Component
+public class UserDirectoryIndex {
+
+    private static final char SEPARATOR = '\0';
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ConcurrentSkipListMap<String, UserSummary> byTerm = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, UserSummary> byUsername = new ConcurrentSkipListMap<>();
+
+    @PostConstruct
+    public void load() {
+        userRepository.findAll().forEach(this::put);
+    }
+
+    public synchronized void put(User user) {
+        UserSummary previous = byUsername.get(user.getUsername());
+        if (previous != null) {
+            for (String term : termsOf(previous)) {
+                byTerm.remove(term + SEPARATOR + previous.getUsername());
+            }
+        }
+
+        UserSummary summary = new UserSummary(user);
+        for (String term : termsOf(summary)) {
+            byTerm.put(term + SEPARATOR + summary.getUsername(), summary);
+        }
+        byUsername.put(summary.getUsername(), summary);
+    }
+
+    /**
+     * Users with any term starting with {@code prefix}, case-insensitively, at most {@code limit}.
+     */
+    public List<UserSummary> search(String prefix, int limit) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        Map<String, UserSummary> matches = new LinkedHashMap<>();
+        for (Map.Entry<String, UserSummary> entry : byTerm.tailMap(from, true).entrySet()) {
+            if (!entry.getKey().startsWith(from) || matches.size() >= limit) {
+                break;
+            }
+            matches.putIfAbsent(entry.getValue().getUsername(), entry.getValue());
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    /**
+     * Up to {@code limit} users ordered by username, starting after {@code afterUsername} (null for
+     * the first page).
+     */
+    public List<UserSummary> page(String afterUsername, int limit) {
+        Map<String, UserSummary> tail = afterUsername == null ? byUsername : byUsername.tailMap(afterUsername, false);
+        List<UserSummary> page = new ArrayList<>(Math.min(limit, 64));
+        for (UserSummary summary : tail.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(summary);
+        }
+        return page;
+    }
+
+    private static Set<String> termsOf(UserSummary user) {
+        Set<String> terms = new LinkedHashSet<>();
+        addTerm(terms, user.getUsername());
+        addTerm(terms, user.getFirstName());
+        addTerm(terms, user.getLastName());
+        if (user.getFirstName() != null && user.getLastName() != null) {
+            addTerm(terms, user.getFirstName() + " " + user.getLastName());
+        }
+        return terms;
+    }
+
+    private static void addTerm(Set<String> terms, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            terms.add(value.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -1,8 +1,25 @@
 package com.collaborativeediting.usermanagement;
 
+import static com.collaborativeediting.usermanagement.Permission.*;
+
 public enum UserRole {
-    ADMIN,
-    EDITOR,
-    USER,
-    VIEWER
+    ADMIN(CREATE_DOCUMENT, EDIT_DOCUMENT, DELETE_DOCUMENT, MANAGE_USERS, VIEW_ALL_DOCUMENTS),
+    EDITOR(CREATE_DOCUMENT, EDIT_DOCUMENT, DELETE_DOCUMENT),
+    USER(CREATE_DOCUMENT, EDIT_DOCUMENT),
+    VIEWER;
+
+    // Fixed when the enum is loaded, one bit per Permission
+    private final long permissions;
+
+    UserRole(Permission... granted) {
+        long bits = 0;
+        for (Permission permission : granted) {
+            bits |= permission.bit();
+        }
+        this.permissions = bits;
+    }
+
+    public boolean grants(Permission permission) {
+        return (permissions & permission.bit()) != 0;
+    }
 }
@@ -1,7 +1,7 @@
 package com.collaborativeediting.usermanagement;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,47 +14,79 @@ public class UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserDirectoryIndex directoryIndex;
+
+    @Value("${users.search.max-limit:50}")
+    private int maxSearchLimit;
+
     public User registerUser(String username, String password, String email, String firstName, String lastName) {
         if (userRepository.findByUsername(username).isPresent() || userRepository.findByEmail(email).isPresent()) {
             throw new RuntimeException("User already exists");
         }
-        User user = new User(username, passwordEncoder.encode(password), email, firstName, lastName);
-        return userRepository.save(user);
+        User user = new User(username, passwordHashingService.encode(password), email, firstName, lastName);
+        User saved = userRepository.save(user);
+        directoryIndex.put(saved);
+        return saved;
     }
 
     public User registerUserWithRole(String username, String password, String email, String firstName, String lastName, UserRole role) {
         if (userRepository.findByUsername(username).isPresent() || userRepository.findByEmail(email).isPresent()) {
             throw new RuntimeException("User already exists");
         }
-        User user = new User(username, passwordEncoder.encode(password), email, firstName, lastName);
+        User user = new User(username, passwordHashingService.encode(password), email, firstName, lastName);
         user.setRole(role);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        directoryIndex.put(saved);
+        return saved;
     }
 
     public String authenticateUser(String username, String password) {
         Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isPresent() && passwordEncoder.matches(password, userOpt.get().getPassword())) {
+        if (userOpt.isPresent() && passwordHashingService.matches(password, userOpt.get().getPassword())) {
+            rehashIfOutdated(userOpt.get(), password);
             return jwtUtil.generateToken(username);
         }
         throw new RuntimeException("Invalid credentials");
     }
 
+    private void rehashIfOutdated(User user, String password) {
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordHashingService.encode(password));
+            userRepository.save(user);
+            userCache.invalidate(user.getUsername());
+        } catch (PasswordHashingOverloadedException e) {
+            // Not worth failing the login for; the upgrade is retried next time
+        }
+    }
+
     public User getUserProfile(String username) {
-        return userRepository.findByUsername(username).orElseThrow(() -> new RuntimeException("User not found"));
+        return userCache.get(username, () -> userRepository.findByUsername(username))
+                .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     public User updateUserProfile(String username, String firstName, String lastName, String email) {
-        User user = getUserProfile(username);
+        // Modify a fresh copy, never the cached instance other requests may be reading
+        User user = loadUser(username);
         user.setFirstName(firstName);
         user.setLastName(lastName);
         user.setEmail(email);
         user.setUpdatedAt(java.time.LocalDateTime.now());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.invalidate(username);
+        directoryIndex.put(saved);
+        return saved;
     }
 
     public User updateUserRole(String username, UserRole newRole, String requestingUser) {
@@ -63,38 +95,52 @@ public class UserService {
             throw new RuntimeException("Only admins can change user roles");
         }
 
-        User user = getUserProfile(username);
+        User user = loadUser(username);
         user.setRole(newRole);
         user.setUpdatedAt(java.time.LocalDateTime.now());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.invalidate(username);
+        return saved;
+    }
+
+    private User loadUser(String username) {
+        return userRepository.findByUsername(username).orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    public List<UserSummary> searchUsers(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            return java.util.Collections.emptyList();
+        }
+        return directoryIndex.search(query.trim(), clampLimit(limit));
+    }
+
+    public DirectoryPage getUserDirectory(String afterUsername, int limit) {
+        int pageSize = clampLimit(limit);
+        List<UserSummary> users = directoryIndex.page(afterUsername, pageSize);
+        // A full page may have more after it; the cursor follows the page size actually used
+        String next = users.size() < pageSize ? null : users.get(users.size() - 1).getUsername();
+        return new DirectoryPage(users, next);
+    }
+
+    private int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, maxSearchLimit));
+    }
+
     public boolean hasRole(String username, UserRole role) {
         User user = getUserProfile(username);
         return user.getRole() == role;
     }
 
     public boolean hasPermission(String username, String permission) {
-        User user = getUserProfile(username);
-        UserRole role = user.getRole();
-
-        switch (permission) {
-            case "CREATE_DOCUMENT":
-                return role == UserRole.ADMIN || role == UserRole.EDITOR || role == UserRole.USER;
-            case "EDIT_DOCUMENT":
-                return role == UserRole.ADMIN || role == UserRole.EDITOR || role == UserRole.USER;
-            case "DELETE_DOCUMENT":
-                return role == UserRole.ADMIN || role == UserRole.EDITOR;
-            case "MANAGE_USERS":
-                return role == UserRole.ADMIN;
-            case "VIEW_ALL_DOCUMENTS":
-                return role == UserRole.ADMIN;
-            default:
-                return false;
-        }
+        Permission required = Permission.fromName(permission);
+        return required != null && hasPermission(username, required);
+    }
+
+    public boolean hasPermission(String username, Permission permission) {
+        return getUserProfile(username).getRole().grants(permission);
     }
 }
@@ -0,0 +1,25 @@
+package com.collaborativeediting.usermanagement;
+
+/**
+ * The public part of a user, as shown in search results and the directory. Leaves out the email
+ * address, which only the user and admins see.
+ */
+public class UserSummary {
+
+    private final Long id;
+    private final String username;
+    private final String firstName;
+    private final String lastName;
+
+    public UserSummary(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.firstName = user.getFirstName();
+        this.lastName = user.getLastName();
+    }
+
+    public Long getId() { return id; }
+    public String getUsername() { return username; }
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+}
@@ -0,0 +1,76 @@
+package com.collaborativeediting.usermanagement;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"users.password.hash-threads=1", "users.password.queue-capacity=1"})
+@AutoConfigureMockMvc
+public class PasswordHashingServiceTest {
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testFullQueueIsRejectedWith503() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHashingService, "executor");
+        assertTrue(executor.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+        double rejectedBefore = meterRegistry.get("users.password.rejected").counter().count();
+
+        // One task holds the only thread and one fills the queue
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute(blocked);
+        awaitPool(executor, 1);
+        executor.execute(blocked);
+        try {
+            assertEquals(1, executor.getQueue().size());
+            assertThrows(PasswordHashingOverloadedException.class, () -> passwordHashingService.encode("password"));
+
+            mockMvc.perform(post("/api/auth/register")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"username\":\"overloaded\",\"password\":\"password\",\"email\":\"overloaded@example.com\"}"))
+                    .andExpect(status().isServiceUnavailable());
+
+            assertEquals(rejectedBefore + 2, meterRegistry.get("users.password.rejected").counter().count());
+        } finally {
+            release.countDown();
+        }
+
+        // Once the queue drains, hashing works again
+        awaitPool(executor, 0);
+        assertTrue(passwordHashingService.matches("password", passwordHashingService.encode("password")));
+    }
+
+    // Waits until the queue is empty and this many tasks are running
+    private static void awaitPool(ThreadPoolExecutor executor, int active) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((executor.getActiveCount() != active || !executor.getQueue().isEmpty()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
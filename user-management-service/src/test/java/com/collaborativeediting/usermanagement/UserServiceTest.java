@@ -3,8 +3,10 @@ package com.collaborativeediting.usermanagement;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -16,6 +18,9 @@ public class UserServiceTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @Test
     public void testRegisterUser() {
         User user = userService.registerUser("testuser", "password", "test@example.com", "Test", "User");
@@ -29,4 +34,60 @@ public class UserServiceTest {
         String token = userService.authenticateUser("testuser2", "password");
         assertNotNull(token);
     }
+
+    @Test
+    public void testLoginUpgradesWeakerHash() {
+        String weakHash = new BCryptPasswordEncoder(4).encode("password");
+        userRepository.save(new User("legacyuser", weakHash, "legacy@example.com", "Legacy", "User"));
+
+        assertNotNull(userService.authenticateUser("legacyuser", "password"));
+
+        String upgraded = userRepository.findByUsername("legacyuser").get().getPassword();
+        assertNotEquals(weakHash, upgraded);
+        assertFalse(passwordEncoder.upgradeEncoding(upgraded));
+        assertTrue(passwordEncoder.matches("password", upgraded));
+    }
+
+    @Test
+    public void testRoleChangeInvalidatesCachedUser() {
+        userService.registerUser("cacheduser", "password", "cached@example.com", "Cached", "User");
+        assertTrue(userService.hasPermission("cacheduser", "EDIT_DOCUMENT"));
+        assertFalse(userService.hasPermission("cacheduser", Permission.DELETE_DOCUMENT));
+
+        userService.updateUserRole("cacheduser", UserRole.VIEWER, "admin");
+        assertTrue(userService.hasRole("cacheduser", UserRole.VIEWER));
+        assertFalse(userService.hasPermission("cacheduser", "EDIT_DOCUMENT"));
+        assertFalse(userService.hasPermission("cacheduser", "NOT_A_PERMISSION"));
+
+        userService.updateUserProfile("cacheduser", "Renamed", "User", "cached@example.com");
+        assertEquals("Renamed", userService.getUserProfile("cacheduser").getFirstName());
+    }
+
+    @Test
+    public void testPrefixSearchAndDirectoryPaging() {
+        userService.registerUser("searchalice", "password", "alice.search@example.com", "Alice", "Anders");
+        userService.registerUser("searchbob", "password", "bob.search@example.com", "Bob", "Baker");
+
+        assertEquals("searchalice", userService.searchUsers("Alic", 10).get(0).getUsername());
+        // Email addresses are not public, so they are not searchable either
+        assertTrue(userService.searchUsers("bob.sea", 10).isEmpty());
+        assertEquals(2, userService.searchUsers("search", 10).size());
+        assertEquals(1, userService.searchUsers("search", 1).size());
+
+        userService.updateUserProfile("searchbob", "Robert", "Baker", "bob.search@example.com");
+        assertTrue(userService.searchUsers("bob b", 10).isEmpty());
+        assertEquals("searchbob", userService.searchUsers("robert", 10).get(0).getUsername());
+
+        DirectoryPage first = userService.getUserDirectory(null, 2);
+        assertEquals(first.getUsers().get(1).getUsername(), first.getNextAfter());
+        DirectoryPage second = userService.getUserDirectory(first.getNextAfter(), 2);
+        assertTrue(first.getNextAfter().compareTo(second.getUsers().get(0).getUsername()) < 0);
+
+        // Limits outside 1..max are clamped, and the cursor follows the clamped page size
+        DirectoryPage clamped = userService.getUserDirectory(null, 0);
+        assertEquals(1, clamped.getUsers().size());
+        assertEquals(clamped.getUsers().get(0).getUsername(), clamped.getNextAfter());
+        DirectoryPage oversized = userService.getUserDirectory(null, Integer.MAX_VALUE);
+        assertEquals(userService.getUserDirectory(null, 50).getNextAfter(), oversized.getNextAfter());
+    }
 }
@@ -0,0 +1,50 @@
+package com.collaborativeediting.versioncontrol;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Who wrote each line of a document's latest version, as runs of consecutive lines that were
+ * introduced by the same version.
+ */
+public class BlameView {
+
+    private final Long documentId;
+    private final Long versionId;
+    private final List<Run> runs = new ArrayList<>();
+
+    public BlameView(Long documentId, Long versionId) {
+        this.documentId = documentId;
+        this.versionId = versionId;
+    }
+
+    public Long getDocumentId() { return documentId; }
+    /** The latest version, whose lines are attributed. */
+    public Long getVersionId() { return versionId; }
+    public List<Run> getRuns() { return runs; }
+
+    public static class Run {
+        private final int startLine;
+        private final Long versionId;
+        private final String editedBy;
+        private final LocalDateTime timestamp;
+        private final List<String> lines;
+
+        public Run(int startLine, Long versionId, VersionMetadata version, List<String> lines) {
+            this.startLine = startLine;
+            this.versionId = versionId;
+            this.editedBy = version != null ? version.getEditedBy() : null;
+            this.timestamp = version != null ? version.getTimestamp() : null;
+            this.lines = lines;
+        }
+
+        /** First line of the run, counting from 1. */
+        public int getStartLine() { return startLine; }
+        /** Version that introduced these lines. */
+        public Long getVersionId() { return versionId; }
+        public String getEditedBy() { return editedBy; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public List<String> getLines() { return lines; }
+    }
+}
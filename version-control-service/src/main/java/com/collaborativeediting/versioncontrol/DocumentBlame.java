@@ -0,0 +1,72 @@
+package com.collaborativeediting.versioncontrol;
+
+import javax.persistence.*;
+
+/**
+ * Which version introduced each line of a document, as of {@code versionId}. The attribution is
+ * run-length encoded as {@code versionId:lineCount} pairs separated by commas.
+ */
+@Entity
+@Table(name = "document_blame")
+public class DocumentBlame {
+
+    @Id
+    private Long documentId;
+
+    @Column(nullable = false)
+    private Long versionId;
+
+    @Column(columnDefinition = "TEXT")
+    private String attribution;
+
+    public DocumentBlame() {}
+
+    public DocumentBlame(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public Long getVersionId() { return versionId; }
+    public void setVersionId(Long versionId) { this.versionId = versionId; }
+
+    public String getAttribution() { return attribution; }
+    public void setAttribution(String attribution) { this.attribution = attribution; }
+
+    /** Version of every line, in line order. */
+    long[] lineVersions() {
+        if (attribution == null || attribution.isEmpty()) {
+            return new long[0];
+        }
+        String[] runs = attribution.split(",");
+        int total = 0;
+        for (String run : runs) {
+            total += Integer.parseInt(run.substring(run.indexOf(':') + 1));
+        }
+        long[] versions = new long[total];
+        int line = 0;
+        for (String run : runs) {
+            int colon = run.indexOf(':');
+            long version = Long.parseLong(run.substring(0, colon));
+            int count = Integer.parseInt(run.substring(colon + 1));
+            for (int i = 0; i < count; i++) {
+                versions[line++] = version;
+            }
+        }
+        return versions;
+    }
+
+    void setLineVersions(long[] versions) {
+        StringBuilder encoded = new StringBuilder();
+        int i = 0;
+        while (i < versions.length) {
+            int start = i;
+            while (i < versions.length && versions[i] == versions[start]) {
+                i++;
+            }
+            encoded.append(encoded.length() > 0 ? "," : "").append(versions[start]).append(':').append(i - start);
+        }
+        attribution = encoded.toString();
+    }
+}
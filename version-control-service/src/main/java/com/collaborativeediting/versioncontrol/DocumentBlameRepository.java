@@ -0,0 +1,6 @@
+package com.collaborativeediting.versioncontrol;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DocumentBlameRepository extends JpaRepository<DocumentBlame, Long> {
+}
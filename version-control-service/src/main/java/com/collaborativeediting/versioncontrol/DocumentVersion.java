@@ -4,7 +4,10 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "document_versions")
+@Table(name = "document_versions", indexes = {
+        @Index(name = "idx_document_versions_document_timestamp", columnList = "documentId, timestamp"),
+        @Index(name = "idx_document_versions_edited_by", columnList = "editedBy")
+})
 public class DocumentVersion {
 
     @Id
@@ -20,6 +23,12 @@ public class DocumentVersion {
 
     private LocalDateTime timestamp;
 
+    // Pinned or labelled versions are kept by the retention compaction
+    @Column(nullable = false)
+    private boolean pinned;
+
+    private String label;
+
     // Constructors
     public DocumentVersion() {}
 
@@ -45,4 +54,10 @@ public class DocumentVersion {
 
     public LocalDateTime getTimestamp() { return timestamp; }
     public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+
+    public boolean isPinned() { return pinned; }
+    public void setPinned(boolean pinned) { this.pinned = pinned; }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
 }
@@ -1,8 +1,32 @@
 package com.collaborativeediting.versioncontrol;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface DocumentVersionRepository extends JpaRepository<DocumentVersion, Long> {
     List<DocumentVersion> findByDocumentIdOrderByTimestampDesc(Long documentId);
+    Optional<VersionMetadata> findFirstByDocumentIdOrderByTimestampDesc(Long documentId);
+    long countByDocumentId(Long documentId);
+    List<DocumentVersion> findByEditedBy(String editedBy);
+    List<DocumentVersion> findByDocumentIdAndIdGreaterThanOrderByIdAsc(Long documentId, Long id);
+    List<VersionMetadata> findByIdIn(Collection<Long> ids);
+    List<RetainedVersion> findByDocumentIdAndTimestampBeforeOrderByTimestampAsc(Long documentId, LocalDateTime before);
+
+    @Query("select distinct v.documentId from DocumentVersion v where v.timestamp < :before and v.documentId > :after order by v.documentId")
+    List<Long> findDocumentsWithVersionsBefore(@Param("before") LocalDateTime before, @Param("after") Long after, Pageable page);
+
+    // Re-checks retention in the delete itself, so a version pinned or labelled since it was picked survives
+    @Modifying
+    @Transactional
+    @Query("delete from DocumentVersion v where v.id in :ids and v.pinned = false and v.label is null")
+    int deleteUnretainedByIdIn(@Param("ids") Collection<Long> ids);
 }
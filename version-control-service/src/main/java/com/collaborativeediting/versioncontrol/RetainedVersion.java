@@ -0,0 +1,13 @@
+package com.collaborativeediting.versioncontrol;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version columns the retention compaction decides on, without the content.
+ */
+public interface RetainedVersion {
+    Long getId();
+    LocalDateTime getTimestamp();
+    boolean isPinned();
+    String getLabel();
+}
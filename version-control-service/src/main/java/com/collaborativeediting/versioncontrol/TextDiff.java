@@ -0,0 +1,348 @@
+package com.collaborativeediting.versioncontrol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line diff with word-level detail for replaced lines, using the linear-space variant of Myers'
+ * algorithm: the middle snake of each subproblem is found with two O(N + M) arrays, so memory stays
+ * linear in the document size instead of growing with the square of the edit distance.
+ * Once {@code budgetNanos} is spent, unresolved regions are reported as whole-block replacements
+ * and word detail is skipped; the result is then marked as not exact.
+ */
+class TextDiff {
+
+    private enum Op {
+        EQUAL,
+        DELETE,
+        INSERT
+    }
+
+    private final boolean bounded;
+    private final long deadline;
+    private boolean exact = true;
+
+    private TextDiff(long budgetNanos) {
+        this.bounded = true;
+        this.deadline = System.nanoTime() + budgetNanos;
+    }
+
+    private TextDiff() {
+        this.bounded = false;
+        this.deadline = 0;
+    }
+
+    static VersionDiff diff(String oldText, String newText, int contextLines, long budgetNanos) {
+        TextDiff diff = new TextDiff(budgetNanos);
+        List<String> oldLines = lines(oldText);
+        List<String> newLines = lines(newText);
+        List<Op> script = diff.script(oldLines, newLines);
+        return diff.hunks(script, oldLines, newLines, contextLines);
+    }
+
+    /**
+     * For every new line, the index of the old line it was kept from, or -1 if it was added. Has no
+     * time budget, since the result is stored and an approximation would misattribute lines for good.
+     */
+    static int[] matchLines(List<String> oldLines, List<String> newLines) {
+        int[] matches = new int[newLines.size()];
+        int oldAt = 0;
+        int newAt = 0;
+        for (Op op : new TextDiff().script(oldLines, newLines)) {
+            if (op == Op.EQUAL) {
+                matches[newAt++] = oldAt++;
+            } else if (op == Op.DELETE) {
+                oldAt++;
+            } else {
+                matches[newAt++] = -1;
+            }
+        }
+        return matches;
+    }
+
+    private List<Op> script(List<String> a, List<String> b) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] x = intern(a, ids);
+        int[] y = intern(b, ids);
+        int max = (x.length + y.length + 1) / 2;
+        Solver solver = new Solver(x, y, max);
+        solver.diff(0, x.length, 0, y.length);
+        return solver.script;
+    }
+
+    private VersionDiff hunks(List<Op> script, List<String> oldLines, List<String> newLines, int contextLines) {
+        VersionDiff result = new VersionDiff();
+        int[] oldAt = new int[script.size() + 1];
+        int[] newAt = new int[script.size() + 1];
+        for (int i = 0; i < script.size(); i++) {
+            oldAt[i + 1] = oldAt[i] + (script.get(i) != Op.INSERT ? 1 : 0);
+            newAt[i + 1] = newAt[i] + (script.get(i) != Op.DELETE ? 1 : 0);
+        }
+
+        int i = 0;
+        while (i < script.size()) {
+            if (script.get(i) == Op.EQUAL) {
+                i++;
+                continue;
+            }
+            // Extend the hunk while the next change is within two contexts of the last one
+            int start = Math.max(0, i - contextLines);
+            int end = i;
+            int lastChange = i;
+            while (end < script.size() && end - lastChange <= 2 * contextLines) {
+                if (script.get(end) != Op.EQUAL) {
+                    lastChange = end;
+                }
+                end++;
+            }
+            end = Math.min(script.size(), lastChange + 1 + contextLines);
+            result.getHunks().add(hunk(script, start, end, oldAt, newAt, oldLines, newLines, result));
+            i = end;
+        }
+        result.setExact(exact);
+        return result;
+    }
+
+    private VersionDiff.Hunk hunk(List<Op> script, int start, int end, int[] oldAt, int[] newAt,
+                                  List<String> oldLines, List<String> newLines, VersionDiff result) {
+        VersionDiff.Hunk hunk = new VersionDiff.Hunk(oldAt[start] + 1, oldAt[end] - oldAt[start],
+                newAt[start] + 1, newAt[end] - newAt[start]);
+        int i = start;
+        while (i < end) {
+            Op op = script.get(i);
+            if (op == Op.EQUAL) {
+                hunk.getLines().add(" " + oldLines.get(oldAt[i]));
+                i++;
+                continue;
+            }
+            // A run of deletions and insertions replaces old lines with new ones
+            StringBuilder removed = new StringBuilder();
+            StringBuilder added = new StringBuilder();
+            int runEnd = i;
+            while (runEnd < end && script.get(runEnd) != Op.EQUAL) {
+                runEnd++;
+            }
+            for (int j = i; j < runEnd; j++) {
+                if (script.get(j) == Op.DELETE) {
+                    String line = oldLines.get(oldAt[j]);
+                    hunk.getLines().add("-" + line);
+                    removed.append(removed.length() > 0 ? "\n" : "").append(line);
+                    result.setLinesRemoved(result.getLinesRemoved() + 1);
+                }
+            }
+            for (int j = i; j < runEnd; j++) {
+                if (script.get(j) == Op.INSERT) {
+                    String line = newLines.get(newAt[j]);
+                    hunk.getLines().add("+" + line);
+                    added.append(added.length() > 0 ? "\n" : "").append(line);
+                    result.setLinesAdded(result.getLinesAdded() + 1);
+                }
+            }
+            if (removed.length() > 0 && added.length() > 0 && !expired()) {
+                hunk.getWords().add(words(removed.toString(), added.toString()));
+            }
+            i = runEnd;
+        }
+        return hunk;
+    }
+
+    // Word diff of a replaced block: "=", "-" or "+" followed by the text, adjacent tokens merged
+    private List<String> words(String oldText, String newText) {
+        List<String> a = tokens(oldText);
+        List<String> b = tokens(newText);
+        List<Op> script = script(a, b);
+        List<String> segments = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        Op current = null;
+        int ai = 0;
+        int bi = 0;
+        for (Op op : script) {
+            if (op != current && current != null) {
+                segments.add(prefix(current) + text);
+                text.setLength(0);
+            }
+            current = op;
+            text.append(op == Op.INSERT ? b.get(bi) : a.get(ai));
+            if (op != Op.INSERT) {
+                ai++;
+            }
+            if (op != Op.DELETE) {
+                bi++;
+            }
+        }
+        if (current != null) {
+            segments.add(prefix(current) + text);
+        }
+        return segments;
+    }
+
+    private boolean expired() {
+        return bounded && System.nanoTime() - deadline >= 0;
+    }
+
+    private static String prefix(Op op) {
+        return op == Op.EQUAL ? "=" : op == Op.DELETE ? "-" : "+";
+    }
+
+    static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return lines;
+        }
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        lines.add(text.substring(start));
+        return lines;
+    }
+
+    // Runs of letters and digits, runs of whitespace, and single other characters
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int start = i;
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+            tokens.add(text.substring(start, i));
+        }
+        return tokens;
+    }
+
+    private static int[] intern(List<String> tokens, Map<String, Integer> ids) {
+        int[] interned = new int[tokens.size()];
+        for (int i = 0; i < interned.length; i++) {
+            Integer id = ids.get(tokens.get(i));
+            if (id == null) {
+                id = ids.size();
+                ids.put(tokens.get(i), id);
+            }
+            interned[i] = id;
+        }
+        return interned;
+    }
+
+    private class Solver {
+        private final int[] a;
+        private final int[] b;
+        // Furthest x reached per diagonal, forward and backward, shared by every subproblem
+        private final int[] forward;
+        private final int[] backward;
+        private final int center;
+        private final List<Op> script = new ArrayList<>();
+
+        Solver(int[] a, int[] b, int max) {
+            this.a = a;
+            this.b = b;
+            this.center = max + 1;
+            this.forward = new int[2 * max + 3];
+            this.backward = new int[2 * max + 3];
+        }
+
+        void diff(int aLo, int aHi, int bLo, int bHi) {
+            int prefix = 0;
+            while (aLo + prefix < aHi && bLo + prefix < bHi && a[aLo + prefix] == b[bLo + prefix]) {
+                prefix++;
+            }
+            emit(Op.EQUAL, prefix);
+            aLo += prefix;
+            bLo += prefix;
+            int suffix = 0;
+            while (aLo < aHi - suffix && bLo < bHi - suffix && a[aHi - suffix - 1] == b[bHi - suffix - 1]) {
+                suffix++;
+            }
+            aHi -= suffix;
+            bHi -= suffix;
+
+            if (aLo == aHi || bLo == bHi) {
+                emit(Op.DELETE, aHi - aLo);
+                emit(Op.INSERT, bHi - bLo);
+            } else {
+                int[] snake = !expired() ? middleSnake(aLo, aHi, bLo, bHi) : null;
+                if (snake == null) {
+                    exact = false;
+                    emit(Op.DELETE, aHi - aLo);
+                    emit(Op.INSERT, bHi - bLo);
+                } else {
+                    diff(aLo, snake[0], bLo, snake[1]);
+                    emit(Op.EQUAL, snake[2] - snake[0]);
+                    diff(snake[2], aHi, snake[3], bHi);
+                }
+            }
+            emit(Op.EQUAL, suffix);
+        }
+
+        // Start and end (x, y) of the middle snake of an optimal path, or null past the deadline
+        private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+            int n = aHi - aLo;
+            int m = bHi - bLo;
+            int delta = n - m;
+            boolean odd = (delta & 1) != 0;
+            int max = (n + m + 1) / 2;
+            forward[center + 1] = 0;
+            backward[center + 1] = 0;
+            for (int d = 0; d <= max; d++) {
+                if ((d & 63) == 63 && expired()) {
+                    return null;
+                }
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || (k != d && forward[center + k - 1] < forward[center + k + 1])
+                            ? forward[center + k + 1]
+                            : forward[center + k - 1] + 1;
+                    int y = x - k;
+                    int x0 = x;
+                    int y0 = y;
+                    while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                        x++;
+                        y++;
+                    }
+                    forward[center + k] = x;
+                    int reverse = delta - k;
+                    if (odd && reverse >= -(d - 1) && reverse <= d - 1 && x + backward[center + reverse] >= n) {
+                        return new int[]{aLo + x0, bLo + y0, aLo + x, bLo + y};
+                    }
+                }
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || (k != d && backward[center + k - 1] < backward[center + k + 1])
+                            ? backward[center + k + 1]
+                            : backward[center + k - 1] + 1;
+                    int y = x - k;
+                    int x0 = x;
+                    int y0 = y;
+                    while (x < n && y < m && a[aHi - x - 1] == b[bHi - y - 1]) {
+                        x++;
+                        y++;
+                    }
+                    backward[center + k] = x;
+                    int ahead = delta - k;
+                    if (!odd && ahead >= -d && ahead <= d && x + forward[center + ahead] >= n) {
+                        return new int[]{aHi - x, bHi - y, aHi - x0, bHi - y0};
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void emit(Op op, int count) {
+            for (int i = 0; i < count; i++) {
+                script.add(op);
+            }
+        }
+    }
+}
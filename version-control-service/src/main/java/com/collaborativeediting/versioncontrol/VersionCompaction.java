@@ -0,0 +1,188 @@
+package com.collaborativeediting.versioncontrol;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Thins out old versions by retention tier, e.g. every version for a day, one per hour for a month
+ * and one per day after that ({@code versions.retention.tiers}). In each tier the last version of
+ * every interval is kept, as are pinned and labelled versions, the latest version of a document and
+ * any version the blame index still attributes lines to. Documents are visited a few at a time and
+ * versions removed in small batches with pauses between them, so saves and history reads are
+ * never held up for long.
+ */
+@Component
+public class VersionCompaction {
+
+    private static final Logger log = LoggerFactory.getLogger(VersionCompaction.class);
+
+    @Value("${versions.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${versions.retention.tiers:24h:all,30d:1h,*:1d}")
+    private String tiers;
+
+    @Value("${versions.retention.batch-size:100}")
+    private int batchSize;
+
+    @Value("${versions.retention.pause-ms:100}")
+    private long pauseMs;
+
+    @Autowired
+    private DocumentVersionRepository versionRepository;
+
+    @Autowired
+    private DocumentBlameRepository blameRepository;
+
+    @Autowired
+    private VersionControlService versionControlService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private List<Tier> retentionTiers;
+    private Counter removed;
+
+    @PostConstruct
+    public void init() {
+        retentionTiers = parseTiers(tiers);
+        removed = meterRegistry.counter("versions.retention.removed");
+    }
+
+    @Scheduled(fixedDelayString = "${versions.retention.interval-ms:600000}", initialDelayString = "${versions.retention.interval-ms:600000}")
+    public void run() throws InterruptedException {
+        if (enabled) {
+            long count = compact(LocalDateTime.now());
+            if (count > 0) {
+                log.info("Retention compaction removed {} versions", count);
+            }
+        }
+    }
+
+    /** Removes the versions the tiers no longer keep as of {@code now}; returns how many. */
+    public long compact(LocalDateTime now) throws InterruptedException {
+        // Versions within the first tier are all kept when it keeps everything
+        Tier first = retentionTiers.get(0);
+        LocalDateTime before = first.interval.isZero() && first.maxAge != null ? now.minus(first.maxAge) : now;
+
+        long total = 0;
+        Long after = Long.MIN_VALUE;
+        while (true) {
+            List<Long> documents = versionRepository.findDocumentsWithVersionsBefore(before, after, PageRequest.of(0, batchSize));
+            if (documents.isEmpty()) {
+                return total;
+            }
+            for (Long documentId : documents) {
+                total += compactDocument(documentId, before, now);
+            }
+            after = documents.get(documents.size() - 1);
+        }
+    }
+
+    private long compactDocument(Long documentId, LocalDateTime before, LocalDateTime now) throws InterruptedException {
+        List<RetainedVersion> versions = versionRepository.findByDocumentIdAndTimestampBeforeOrderByTimestampAsc(documentId, before);
+        Set<Long> protectedIds = protectedVersions(documentId);
+
+        List<Long> doomed = new ArrayList<>();
+        for (int i = 0; i < versions.size(); i++) {
+            RetainedVersion version = versions.get(i);
+            RetainedVersion next = i + 1 < versions.size() ? versions.get(i + 1) : null;
+            if (version.isPinned() || version.getLabel() != null || protectedIds.contains(version.getId())) {
+                continue;
+            }
+            // Within an interval only the last version survives
+            if (next != null && slot(version, now).equals(slot(next, now))) {
+                doomed.add(version.getId());
+            }
+        }
+
+        long deleted = 0;
+        for (int start = 0; start < doomed.size(); start += batchSize) {
+            List<Long> batch = doomed.subList(start, Math.min(doomed.size(), start + batchSize));
+            int count = versionRepository.deleteUnretainedByIdIn(batch);
+            versionControlService.evictDiffs(batch);
+            removed.increment(count);
+            deleted += count;
+            if (pauseMs > 0) {
+                Thread.sleep(pauseMs);
+            }
+        }
+        return deleted;
+    }
+
+    // The latest version is the base the blame index is updated from; the others are its authors
+    private Set<Long> protectedVersions(Long documentId) {
+        Set<Long> ids = new HashSet<>();
+        versionRepository.findFirstByDocumentIdOrderByTimestampDesc(documentId).ifPresent(latest -> ids.add(latest.getId()));
+        blameRepository.findById(documentId).ifPresent(blame -> {
+            ids.add(blame.getVersionId());
+            for (long version : blame.lineVersions()) {
+                ids.add(version);
+            }
+        });
+        return ids;
+    }
+
+    // Tier and interval a version falls in, or a slot of its own in a tier that keeps everything
+    private String slot(RetainedVersion version, LocalDateTime now) {
+        Duration age = Duration.between(version.getTimestamp(), now);
+        for (int i = 0; i < retentionTiers.size(); i++) {
+            Tier tier = retentionTiers.get(i);
+            if (tier.maxAge == null || age.compareTo(tier.maxAge) <= 0) {
+                if (tier.interval.isZero()) {
+                    return "version:" + version.getId();
+                }
+                long millis = version.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                return i + ":" + Math.floorDiv(millis, tier.interval.toMillis());
+            }
+        }
+        return "version:" + version.getId();
+    }
+
+    /** Parses {@code age:interval} pairs, e.g. {@code 24h:all,30d:1h,*:1d}; {@code *} is any age. */
+    static List<Tier> parseTiers(String tiers) {
+        List<Tier> parsed = new ArrayList<>();
+        for (String tier : tiers.split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected age:interval but got " + tier);
+            }
+            Duration maxAge = parts[0].equals("*") ? null : DurationStyle.detectAndParse(parts[0]);
+            Duration interval = parts[1].equals("all") ? Duration.ZERO : DurationStyle.detectAndParse(parts[1]);
+            if (!parsed.isEmpty() && parsed.get(parsed.size() - 1).maxAge == null) {
+                throw new IllegalArgumentException("Only the last retention tier can be unbounded");
+            }
+            parsed.add(new Tier(maxAge, interval));
+        }
+        return parsed;
+    }
+
+    static class Tier {
+        // Oldest version this tier applies to; null for no limit
+        private final Duration maxAge;
+        // One version is kept per interval; zero keeps them all
+        private final Duration interval;
+
+        Tier(Duration maxAge, Duration interval) {
+            this.maxAge = maxAge;
+            this.interval = interval;
+        }
+    }
+}
@@ -4,7 +4,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/versions")
@@ -13,6 +15,9 @@ public class VersionControlController {
     @Autowired
     private VersionControlService versionControlService;
 
+    @Autowired
+    private BlameService blameService;
+
     @PostMapping("/save")
     public ResponseEntity<Void> saveVersion(@RequestBody SaveVersionRequest request) {
         versionControlService.saveVersion(request.getDocumentId(), request.getContent(), request.getEditedBy());
@@ -25,12 +30,49 @@ public class VersionControlController {
         return ResponseEntity.ok(history);
     }
 
+    @GetMapping("/latest/{documentId}")
+    public ResponseEntity<LatestVersionResponse> getLatestVersion(@PathVariable Long documentId) {
+        Optional<VersionMetadata> latest = versionControlService.getLatestVersion(documentId);
+        return latest.map(version -> ResponseEntity.ok(new LatestVersionResponse(version, versionControlService.countVersions(documentId))))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/revert/{versionId}")
     public ResponseEntity<DocumentVersion> revertToVersion(@PathVariable Long versionId) {
         DocumentVersion version = versionControlService.revertToVersion(versionId);
         return ResponseEntity.ok(version);
     }
 
+    @GetMapping("/diff/{fromVersionId}/{toVersionId}")
+    public ResponseEntity<VersionDiff> diffVersions(@PathVariable Long fromVersionId, @PathVariable Long toVersionId) {
+        try {
+            return versionControlService.diff(fromVersionId, toVersionId)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/blame/{documentId}")
+    public ResponseEntity<BlameView> getBlame(@PathVariable Long documentId) {
+        return blameService.blame(documentId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{versionId}/pin")
+    public ResponseEntity<DocumentVersion> pinVersion(@PathVariable Long versionId, @RequestBody(required = false) PinVersionRequest request) {
+        DocumentVersion version = versionControlService.pinVersion(versionId, request != null ? request.getLabel() : null);
+        return ResponseEntity.ok(version);
+    }
+
+    @DeleteMapping("/{versionId}/pin")
+    public ResponseEntity<DocumentVersion> unpinVersion(@PathVariable Long versionId) {
+        DocumentVersion version = versionControlService.unpinVersion(versionId);
+        return ResponseEntity.ok(version);
+    }
+
     @GetMapping("/contributions/{user}")
     public ResponseEntity<List<DocumentVersion>> getContributions(@PathVariable String user) {
         List<DocumentVersion> contributions = versionControlService.getContributionsByUser(user);
@@ -50,4 +92,33 @@ public class VersionControlController {
         public String getEditedBy() { return editedBy; }
         public void setEditedBy(String editedBy) { this.editedBy = editedBy; }
     }
+
+    public static class PinVersionRequest {
+        private String label;
+
+        public String getLabel() { return label; }
+        public void setLabel(String label) { this.label = label; }
+    }
+
+    public static class LatestVersionResponse {
+        private final Long versionId;
+        private final Long documentId;
+        private final String editedBy;
+        private final LocalDateTime timestamp;
+        private final long versionCount;
+
+        public LatestVersionResponse(VersionMetadata version, long versionCount) {
+            this.versionId = version.getId();
+            this.documentId = version.getDocumentId();
+            this.editedBy = version.getEditedBy();
+            this.timestamp = version.getTimestamp();
+            this.versionCount = versionCount;
+        }
+
+        public Long getVersionId() { return versionId; }
+        public Long getDocumentId() { return documentId; }
+        public String getEditedBy() { return editedBy; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public long getVersionCount() { return versionCount; }
+    }
 }
@@ -1,10 +1,20 @@
 package com.collaborativeediting.versioncontrol;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class VersionControlService {
@@ -12,23 +22,125 @@ public class VersionControlService {
     @Autowired
     private DocumentVersionRepository versionRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BlameService blameService;
+
+    @Value("${versions.diff.context-lines:3}")
+    private int diffContextLines;
+
+    @Value("${versions.diff.time-budget-ms:200}")
+    private long diffTimeBudgetMs;
+
+    @Value("${versions.diff.cache-size:256}")
+    private int diffCacheSize;
+
+    private Timer saveTimer;
+    private Counter diffCacheHits;
+    private Counter diffCacheMisses;
+
+    // Exact diffs by version pair; compaction evicts the diffs of the versions it deletes
+    private Map<String, VersionDiff> diffCache;
+
+    @PostConstruct
+    public void registerMetrics() {
+        saveTimer = meterRegistry.timer("versions.save");
+        diffCacheHits = meterRegistry.counter("versions.diff.cache", "result", "hit");
+        diffCacheMisses = meterRegistry.counter("versions.diff.cache", "result", "miss");
+        diffCache = Collections.synchronizedMap(new LinkedHashMap<String, VersionDiff>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VersionDiff> eldest) {
+                return size() > diffCacheSize;
+            }
+        });
+    }
+
     public void saveVersion(Long documentId, String content, String editedBy) {
         DocumentVersion version = new DocumentVersion(documentId, content, editedBy);
-        versionRepository.save(version);
+        saveTimer.record(() -> versionRepository.save(version));
+        blameService.update(documentId);
     }
 
     public List<DocumentVersion> getVersionHistory(Long documentId) {
         return versionRepository.findByDocumentIdOrderByTimestampDesc(documentId);
     }
 
+    public Optional<VersionMetadata> getLatestVersion(Long documentId) {
+        return versionRepository.findFirstByDocumentIdOrderByTimestampDesc(documentId);
+    }
+
+    public long countVersions(Long documentId) {
+        return versionRepository.countByDocumentId(documentId);
+    }
+
     public DocumentVersion revertToVersion(Long versionId) {
         DocumentVersion version = versionRepository.findById(versionId).orElseThrow(() -> new RuntimeException("Version not found"));
         // In real app, update the document service via REST
         return version;
     }
 
+    /** Keeps a version through retention compaction, optionally naming it. */
+    public DocumentVersion pinVersion(Long versionId, String label) {
+        DocumentVersion version = versionRepository.findById(versionId).orElseThrow(() -> new RuntimeException("Version not found"));
+        version.setPinned(true);
+        version.setLabel(label);
+        return versionRepository.save(version);
+    }
+
+    public DocumentVersion unpinVersion(Long versionId) {
+        DocumentVersion version = versionRepository.findById(versionId).orElseThrow(() -> new RuntimeException("Version not found"));
+        version.setPinned(false);
+        version.setLabel(null);
+        return versionRepository.save(version);
+    }
+
+    /**
+     * Diff from one version to another of the same document, or empty if either does not exist.
+     * Throws {@link IllegalArgumentException} for versions of different documents.
+     */
+    public Optional<VersionDiff> diff(Long fromVersionId, Long toVersionId) {
+        String key = fromVersionId + ":" + toVersionId;
+        VersionDiff cached = diffCache.get(key);
+        if (cached != null) {
+            diffCacheHits.increment();
+            return Optional.of(cached);
+        }
+        diffCacheMisses.increment();
+
+        Optional<DocumentVersion> from = versionRepository.findById(fromVersionId);
+        Optional<DocumentVersion> to = versionRepository.findById(toVersionId);
+        if (!from.isPresent() || !to.isPresent()) {
+            return Optional.empty();
+        }
+        if (!from.get().getDocumentId().equals(to.get().getDocumentId())) {
+            throw new IllegalArgumentException("Versions belong to different documents");
+        }
+
+        long start = System.nanoTime();
+        VersionDiff diff = TextDiff.diff(from.get().getContent(), to.get().getContent(), diffContextLines,
+                TimeUnit.MILLISECONDS.toNanos(diffTimeBudgetMs));
+        meterRegistry.timer("versions.diff", "exact", String.valueOf(diff.isExact()))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        diff.setDocumentId(from.get().getDocumentId());
+        diff.setFromVersion(fromVersionId);
+        diff.setToVersion(toVersionId);
+        // A diff cut short by the time budget is worth retrying when the service is less busy
+        if (diff.isExact()) {
+            diffCache.put(key, diff);
+        }
+        return Optional.of(diff);
+    }
+
+    /** Drops cached diffs from or to any of the given versions, once they are deleted. */
+    public void evictDiffs(Collection<Long> versionIds) {
+        synchronized (diffCache) {
+            diffCache.values().removeIf(diff -> versionIds.contains(diff.getFromVersion()) || versionIds.contains(diff.getToVersion()));
+        }
+    }
+
     public List<DocumentVersion> getContributionsByUser(String user) {
-        // For simplicity, return all versions by user
-        return versionRepository.findAll().stream().filter(v -> v.getEditedBy().equals(user)).collect(Collectors.toList());
+        return versionRepository.findByEditedBy(user);
     }
 }
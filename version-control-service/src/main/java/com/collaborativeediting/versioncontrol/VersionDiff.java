@@ -0,0 +1,65 @@
+package com.collaborativeediting.versioncontrol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes from one version to another as unified-diff style hunks. Each hunk lists its lines
+ * prefixed with {@code " "}, {@code "-"} or {@code "+"}, and for every block of replaced lines a
+ * word diff whose segments are prefixed with {@code "="}, {@code "-"} or {@code "+"}.
+ */
+public class VersionDiff {
+
+    private Long documentId;
+    private Long fromVersion;
+    private Long toVersion;
+    private boolean exact;
+    private int linesAdded;
+    private int linesRemoved;
+    private final List<Hunk> hunks = new ArrayList<>();
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public Long getFromVersion() { return fromVersion; }
+    public void setFromVersion(Long fromVersion) { this.fromVersion = fromVersion; }
+
+    public Long getToVersion() { return toVersion; }
+    public void setToVersion(Long toVersion) { this.toVersion = toVersion; }
+
+    /** False when the time budget ran out and some changes are shown as whole-block replacements. */
+    public boolean isExact() { return exact; }
+    public void setExact(boolean exact) { this.exact = exact; }
+
+    public int getLinesAdded() { return linesAdded; }
+    public void setLinesAdded(int linesAdded) { this.linesAdded = linesAdded; }
+
+    public int getLinesRemoved() { return linesRemoved; }
+    public void setLinesRemoved(int linesRemoved) { this.linesRemoved = linesRemoved; }
+
+    public List<Hunk> getHunks() { return hunks; }
+
+    public static class Hunk {
+        private final int oldStart;
+        private final int oldLines;
+        private final int newStart;
+        private final int newLines;
+        private final List<String> lines = new ArrayList<>();
+        private final List<List<String>> words = new ArrayList<>();
+
+        public Hunk(int oldStart, int oldLines, int newStart, int newLines) {
+            this.oldStart = oldStart;
+            this.oldLines = oldLines;
+            this.newStart = newStart;
+            this.newLines = newLines;
+        }
+
+        /** First line of the hunk in the old version, counting from 1. */
+        public int getOldStart() { return oldStart; }
+        public int getOldLines() { return oldLines; }
+        public int getNewStart() { return newStart; }
+        public int getNewLines() { return newLines; }
+        public List<String> getLines() { return lines; }
+        public List<List<String>> getWords() { return words; }
+    }
+}
@@ -0,0 +1,13 @@
+package com.collaborativeediting.versioncontrol;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version columns without the content, for lookups that only need to know who saved what when.
+ */
+public interface VersionMetadata {
+    Long getId();
+    Long getDocumentId();
+    String getEditedBy();
+    LocalDateTime getTimestamp();
+}
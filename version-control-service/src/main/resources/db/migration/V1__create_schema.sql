@@ -0,0 +1,7 @@
+CREATE TABLE document_versions (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document_id BIGINT,
+    content TEXT,
+    edited_by VARCHAR(255),
+    timestamp TIMESTAMP
+);
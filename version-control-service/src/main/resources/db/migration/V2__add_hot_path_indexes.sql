@@ -0,0 +1,5 @@
+-- History, latest version and version count for a document, newest first
+CREATE INDEX idx_document_versions_document_timestamp ON document_versions (document_id, timestamp);
+
+-- Contributions by user
+CREATE INDEX idx_document_versions_edited_by ON document_versions (edited_by);
@@ -0,0 +1,6 @@
+-- Line attribution per document as of its latest indexed version, updated on every save
+CREATE TABLE document_blame (
+    document_id BIGINT PRIMARY KEY,
+    version_id BIGINT NOT NULL,
+    attribution TEXT
+);
@@ -0,0 +1,3 @@
+-- Pinned and named versions are never removed by the retention compaction
+ALTER TABLE document_versions ADD COLUMN pinned BOOLEAN DEFAULT FALSE NOT NULL;
+ALTER TABLE document_versions ADD COLUMN label VARCHAR(255);
@@ -0,0 +1,56 @@
+package com.collaborativeediting.versioncontrol;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class BlameServiceTest {
+
+    @Autowired
+    private VersionControlService versionControlService;
+
+    @Autowired
+    private BlameService blameService;
+
+    @Autowired
+    private DocumentBlameRepository blameRepository;
+
+    @Test
+    public void testLinesAreAttributedToTheVersionThatWroteThem() {
+        versionControlService.saveVersion(10L, "Title\nIntro", "alice");
+        versionControlService.saveVersion(10L, "Title\nIntro\nBody", "bob");
+        versionControlService.saveVersion(10L, "Title\nBetter intro\nBody", "carol");
+
+        BlameView blame = blameService.blame(10L).orElseThrow(() -> new AssertionError("No blame"));
+        List<BlameView.Run> runs = blame.getRuns();
+        assertEquals(3, runs.size());
+        assertEquals("alice", runs.get(0).getEditedBy());
+        assertEquals(Arrays.asList("Title"), runs.get(0).getLines());
+        assertEquals("carol", runs.get(1).getEditedBy());
+        assertEquals(2, runs.get(1).getStartLine());
+        assertEquals("bob", runs.get(2).getEditedBy());
+        assertEquals(Arrays.asList("Body"), runs.get(2).getLines());
+
+        // The index is kept current by the saves themselves
+        assertEquals(blame.getVersionId(), blameRepository.findById(10L).get().getVersionId());
+        assertFalse(blameService.blame(11L).isPresent());
+    }
+
+    @Test
+    public void testMissingIndexIsRebuiltFromHistory() {
+        versionControlService.saveVersion(12L, "a\nb", "alice");
+        versionControlService.saveVersion(12L, "a\nb\nc", "bob");
+        String indexed = blameRepository.findById(12L).get().getAttribution();
+        blameRepository.deleteById(12L);
+
+        BlameView blame = blameService.blame(12L).orElseThrow(() -> new AssertionError("No blame"));
+        assertEquals(indexed, blameRepository.findById(12L).get().getAttribution());
+        assertEquals("bob", blame.getRuns().get(1).getEditedBy());
+    }
+}
@@ -0,0 +1,34 @@
+package com.collaborativeediting.versioncontrol;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:migrated-versiondb;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("persistent")
+public class PersistentProfileTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VersionControlService versionControlService;
+
+    @Test
+    public void testMigratedSchemaServesHotQueriesFromIndexes() {
+        versionControlService.saveVersion(1L, "Content", "user");
+        assertEquals(1, versionControlService.getContributionsByUser("user").size());
+
+        assertUsesIndex("SELECT * FROM document_versions WHERE document_id = 1 ORDER BY timestamp DESC");
+        assertUsesIndex("SELECT * FROM document_versions WHERE edited_by = 'user'");
+    }
+
+    private void assertUsesIndex(String query) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+}
@@ -0,0 +1,144 @@
+package com.collaborativeediting.versioncontrol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextDiffTest {
+
+    private static final long BUDGET = 1_000_000_000L;
+
+    @Test
+    public void testHunksWithContextAndWordDetail() {
+        String oldText = "one\ntwo\nthree\nfour\nfive\nsix\nseven\neight\nnine\nten";
+        String newText = "one\ntwo\nthree\nfour\nfive\nsix\nseven\neight\nnine\nten".replace("five", "five and a half").replace("ten", "ten\neleven");
+
+        VersionDiff diff = TextDiff.diff(oldText, newText, 1, BUDGET);
+
+        assertTrue(diff.isExact());
+        assertEquals(2, diff.getLinesAdded());
+        assertEquals(1, diff.getLinesRemoved());
+        assertEquals(2, diff.getHunks().size());
+        VersionDiff.Hunk first = diff.getHunks().get(0);
+        assertEquals(4, first.getOldStart());
+        assertEquals(3, first.getOldLines());
+        assertEquals(Arrays.asList(" four", "-five", "+five and a half", " six"), first.getLines());
+        assertEquals(Arrays.asList(Arrays.asList("=five", "+ and a half")), first.getWords());
+        assertEquals(Arrays.asList(" ten", "+eleven"), diff.getHunks().get(1).getLines());
+        assertEquals(newText, apply(oldText, diff));
+    }
+
+    @Test
+    public void testRandomEditsAreMinimalAndReproduceTheNewText() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            List<String> oldLines = randomLines(random, random.nextInt(40));
+            List<String> newLines = new ArrayList<>(oldLines);
+            for (int edit = random.nextInt(8); edit > 0; edit--) {
+                int at = newLines.isEmpty() ? 0 : random.nextInt(newLines.size());
+                if (random.nextBoolean() && !newLines.isEmpty()) {
+                    newLines.remove(at);
+                } else {
+                    newLines.add(at, "line " + random.nextInt(6));
+                }
+            }
+            String oldText = String.join("\n", oldLines);
+            String newText = String.join("\n", newLines);
+
+            VersionDiff diff = TextDiff.diff(oldText, newText, 3, BUDGET);
+
+            assertEquals(newText, apply(oldText, diff));
+            int lcs = lcs(TextDiff.lines(oldText), TextDiff.lines(newText));
+            assertEquals(TextDiff.lines(oldText).size() - lcs, diff.getLinesRemoved());
+            assertEquals(TextDiff.lines(newText).size() - lcs, diff.getLinesAdded());
+        }
+    }
+
+    @Test
+    public void testExhaustedBudgetFallsBackToBlockReplacement() {
+        Random random = new Random(3);
+        String oldText = String.join("\n", randomLines(random, 2000));
+        String newText = String.join("\n", randomLines(random, 2000));
+
+        VersionDiff diff = TextDiff.diff(oldText, newText, 3, 0);
+
+        assertFalse(diff.isExact());
+        assertEquals(newText, apply(oldText, diff));
+        for (VersionDiff.Hunk hunk : diff.getHunks()) {
+            assertTrue(hunk.getWords().isEmpty());
+        }
+    }
+
+    @Test
+    public void testLineMatchesAreAlwaysExact() {
+        Random random = new Random(5);
+        List<String> oldLines = randomLines(random, 1500);
+        List<String> newLines = randomLines(random, 1500);
+
+        int[] matches = TextDiff.matchLines(oldLines, newLines);
+
+        int kept = 0;
+        int last = -1;
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] >= 0) {
+                assertEquals(oldLines.get(matches[i]), newLines.get(i));
+                assertTrue(matches[i] > last);
+                last = matches[i];
+                kept++;
+            }
+        }
+        assertEquals(lcs(oldLines, newLines), kept);
+    }
+
+    private static List<String> randomLines(Random random, int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add("line " + random.nextInt(6));
+        }
+        return lines;
+    }
+
+    // Applies the hunks to the old text, checking the context and removed lines as it goes
+    private static String apply(String oldText, VersionDiff diff) {
+        List<String> oldLines = TextDiff.lines(oldText);
+        List<String> result = new ArrayList<>();
+        int next = 0;
+        for (VersionDiff.Hunk hunk : diff.getHunks()) {
+            while (next < hunk.getOldStart() - 1) {
+                result.add(oldLines.get(next++));
+            }
+            for (String line : hunk.getLines()) {
+                if (line.charAt(0) == '+') {
+                    result.add(line.substring(1));
+                } else {
+                    assertEquals(oldLines.get(next), line.substring(1));
+                    if (line.charAt(0) == ' ') {
+                        result.add(line.substring(1));
+                    }
+                    next++;
+                }
+            }
+        }
+        while (next < oldLines.size()) {
+            result.add(oldLines.get(next++));
+        }
+        return String.join("\n", result);
+    }
+
+    private static int lcs(List<String> a, List<String> b) {
+        int[][] lengths = new int[a.size() + 1][b.size() + 1];
+        for (int i = 1; i <= a.size(); i++) {
+            for (int j = 1; j <= b.size(); j++) {
+                lengths[i][j] = a.get(i - 1).equals(b.get(j - 1))
+                        ? lengths[i - 1][j - 1] + 1
+                        : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[a.size()][b.size()];
+    }
+}
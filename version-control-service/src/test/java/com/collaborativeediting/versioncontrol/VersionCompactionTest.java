@@ -0,0 +1,100 @@
+package com.collaborativeediting.versioncontrol;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"versions.retention.enabled=false", "versions.retention.pause-ms=0"})
+public class VersionCompactionTest {
+
+    @Autowired
+    private VersionControlService versionControlService;
+
+    @Autowired
+    private DocumentVersionRepository versionRepository;
+
+    @Autowired
+    private VersionCompaction compaction;
+
+    @Test
+    public void testOldVersionsAreThinnedPerTier() throws InterruptedException {
+        Instant today = Instant.now().truncatedTo(ChronoUnit.DAYS);
+        Instant monthsAgo = today.minus(Duration.ofDays(40)).plus(Duration.ofHours(1));
+        Instant daysAgo = today.minus(Duration.ofDays(10)).plus(Duration.ofHours(1));
+        Long pinned = save(20L, "one", monthsAgo);
+        Long sameDay = save(20L, "two", monthsAgo.plus(Duration.ofHours(1)));
+        Long lastOfDay = save(20L, "three", monthsAgo.plus(Duration.ofHours(2)));
+        Long sameHour1 = save(20L, "four", daysAgo.plus(Duration.ofMinutes(5)));
+        Long sameHour2 = save(20L, "five", daysAgo.plus(Duration.ofMinutes(10)));
+        Long lastOfHour = save(20L, "six", daysAgo.plus(Duration.ofMinutes(20)));
+        Long recent1 = save(20L, "seven", Instant.now().minus(Duration.ofMinutes(30)));
+        Long recent2 = save(20L, "eight", Instant.now().minus(Duration.ofMinutes(20)));
+        versionControlService.pinVersion(pinned, "First draft");
+        assertTrue(versionControlService.diff(sameDay, lastOfDay).isPresent());
+
+        assertEquals(3, compaction.compact(LocalDateTime.now()));
+        // The cached diff went with the deleted version
+        assertFalse(versionControlService.diff(sameDay, lastOfDay).isPresent());
+
+        List<Long> kept = versionRepository.findByDocumentIdOrderByTimestampDesc(20L).stream()
+                .map(DocumentVersion::getId).collect(Collectors.toList());
+        assertTrue(kept.containsAll(Arrays.asList(pinned, lastOfDay, lastOfHour, recent1, recent2)), kept.toString());
+        assertFalse(kept.contains(sameDay) || kept.contains(sameHour1) || kept.contains(sameHour2), kept.toString());
+        assertEquals(0, compaction.compact(LocalDateTime.now()));
+    }
+
+    @Test
+    public void testAuthorsOfCurrentLinesAreKept() throws InterruptedException {
+        Instant monthsAgo = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(Duration.ofDays(40)).plus(Duration.ofHours(1));
+        Long first = save(21L, "a", monthsAgo);
+        Long second = save(21L, "a\nb", monthsAgo.plus(Duration.ofHours(1)));
+        save(21L, "a\nb\nc", Instant.now());
+
+        assertEquals(0, compaction.compact(LocalDateTime.now()));
+        assertTrue(versionRepository.existsById(first));
+        assertTrue(versionRepository.existsById(second));
+    }
+
+    @Test
+    public void testVersionsPinnedAfterSelectionAreNotDeleted() {
+        Long pinnedLate = save(22L, "a", Instant.now());
+        Long labelledLate = save(22L, "b", Instant.now());
+        Long doomed = save(22L, "c", Instant.now());
+        versionControlService.pinVersion(pinnedLate, null);
+        DocumentVersion labelled = versionRepository.findById(labelledLate).get();
+        labelled.setLabel("Release");
+        versionRepository.save(labelled);
+
+        // As if all three had been picked before the pin and the label arrived
+        assertEquals(1, versionRepository.deleteUnretainedByIdIn(Arrays.asList(pinnedLate, labelledLate, doomed)));
+        assertTrue(versionRepository.existsById(pinnedLate));
+        assertTrue(versionRepository.existsById(labelledLate));
+        assertFalse(versionRepository.existsById(doomed));
+    }
+
+    @Test
+    public void testTiersAreParsed() {
+        assertEquals(3, VersionCompaction.parseTiers("24h:all,30d:1h,*:1d").size());
+        assertThrows(IllegalArgumentException.class, () -> VersionCompaction.parseTiers("*:1d,30d:1h"));
+        assertThrows(IllegalArgumentException.class, () -> VersionCompaction.parseTiers("30d"));
+    }
+
+    // Saves a version and backdates it
+    private Long save(Long documentId, String content, Instant timestamp) {
+        versionControlService.saveVersion(documentId, content, "alice");
+        DocumentVersion version = versionRepository.findByDocumentIdOrderByTimestampDesc(documentId).get(0);
+        version.setTimestamp(LocalDateTime.ofInstant(timestamp, ZoneId.systemDefault()));
+        return versionRepository.save(version).getId();
+    }
+}
@@ -4,6 +4,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -17,4 +20,33 @@ public class VersionControlServiceTest {
         versionControlService.saveVersion(1L, "Content", "user");
         assertFalse(versionControlService.getVersionHistory(1L).isEmpty());
     }
+
+    @Test
+    public void testLatestVersionMetadata() throws InterruptedException {
+        versionControlService.saveVersion(2L, "First", "alice");
+        Thread.sleep(5);
+        versionControlService.saveVersion(2L, "Second", "bob");
+
+        VersionMetadata latest = versionControlService.getLatestVersion(2L).orElseThrow(() -> new AssertionError("No version"));
+        assertEquals("bob", latest.getEditedBy());
+        assertEquals(2, versionControlService.countVersions(2L));
+        assertFalse(versionControlService.getLatestVersion(99L).isPresent());
+    }
+
+    @Test
+    public void testDiffIsCachedPerVersionPair() {
+        versionControlService.saveVersion(3L, "Title\nFirst draft", "alice");
+        versionControlService.saveVersion(3L, "Title\nSecond draft", "alice");
+        versionControlService.saveVersion(4L, "Other", "bob");
+        List<DocumentVersion> history = versionControlService.getVersionHistory(3L);
+        Long older = Math.min(history.get(0).getId(), history.get(1).getId());
+        Long newer = Math.max(history.get(0).getId(), history.get(1).getId());
+
+        VersionDiff diff = versionControlService.diff(older, newer).orElseThrow(() -> new AssertionError("No diff"));
+        assertEquals(Arrays.asList("-First draft", "+Second draft"), diff.getHunks().get(0).getLines().subList(1, 3));
+        assertSame(diff, versionControlService.diff(older, newer).orElse(null));
+        assertFalse(versionControlService.diff(older, 999L).isPresent());
+        Long other = versionControlService.getVersionHistory(4L).get(0).getId();
+        assertThrows(IllegalArgumentException.class, () -> versionControlService.diff(older, other));
+    }
 }